@@ -5,6 +5,7 @@ import ch.sbb.rssched.client.RsschedMatsimRequestGenerator;
 import ch.sbb.rssched.client.config.RsschedRequestConfig;
 import ch.sbb.rssched.client.config.RsschedRequestConfigReader;
 import ch.sbb.rssched.client.dto.response.Response;
+import ch.sbb.rssched.client.pipeline.response.RequestSender;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.commons.cli.CommandLine;
@@ -23,7 +24,7 @@ import java.io.IOException;
  * <p>
  * <b>Usage:</b>
  * <pre>
- * {@code ./rssched-matsim-client <config_file> -h / --host <host> -p / --port <port> -d / --dry-run}
+ * {@code ./rssched-matsim-client <config_file> -h / --host <host> -p / --port <port> -d / --dry-run -z / --gzip}
  * </pre>
  * <p>
  * If {@code -d / --dry-run} is present, the request is not sent to the solver.
@@ -38,6 +39,7 @@ import java.io.IOException;
  *   <li>{@code -h / --host}: Scheduler base URL (default: "localhost")</li>
  *   <li>{@code -p / --port}: Scheduler port (default: 3000)</li>
  *   <li>{@code -d / --dry-run}: If present, do not send the request to the solver (default: false)</li>
+ *   <li>{@code -z / --gzip}: If present, gzip the request body sent to the solver (default: false)</li>
  * </ul>
  * <p>
  * <b>Example with maven:</b>
@@ -84,12 +86,14 @@ public class Application {
         String schedulerBaseUrl = cmd.getOptionValue("host", DEFAULT_HOST);
         int schedulerPort = Integer.parseInt(cmd.getOptionValue("port", DEFAULT_PORT));
         boolean sendToSolver = !cmd.hasOption("dry-run");
+        boolean compressRequests = cmd.hasOption("gzip");
 
         RsschedRequestConfig config = new RsschedRequestConfigReader().readExcelFile(requestConfigXlsx);
 
         if (sendToSolver) {
             // create request and send to solver
-            RsschedMatsimClient client = new RsschedMatsimClient(schedulerBaseUrl, schedulerPort);
+            RsschedMatsimClient client = new RsschedMatsimClient(schedulerBaseUrl, schedulerPort,
+                    RequestSender.DEFAULT_CONNECT_TIMEOUT, RequestSender.DEFAULT_REQUEST_TIMEOUT, compressRequests);
             Response response = client.process(config);
             System.out.println(response.getInfo());
         } else {
@@ -113,6 +117,10 @@ public class Application {
         dryRunOption.setRequired(false);
         options.addOption(dryRunOption);
 
+        Option gzipOption = new Option("z", "gzip", false, "Gzip the request body sent to the solver");
+        gzipOption.setRequired(false);
+        options.addOption(gzipOption);
+
         return options;
     }
 }
@@ -2,32 +2,125 @@ package ch.sbb.rssched.client;
 
 import ch.sbb.rssched.client.config.RsschedRequestConfig;
 import ch.sbb.rssched.client.dto.response.Response;
+import ch.sbb.rssched.client.pipeline.request.RequestPipeline;
+import ch.sbb.rssched.client.pipeline.response.DispatchMetrics;
+import ch.sbb.rssched.client.pipeline.response.RequestCollector;
+import ch.sbb.rssched.client.pipeline.response.RequestDispatcher;
+import ch.sbb.rssched.client.pipeline.response.RequestSender;
+import ch.sbb.rssched.client.pipeline.response.ResponseJSONWriter;
+import ch.sbb.rssched.client.pipeline.response.ResponsePipe;
 import ch.sbb.rssched.client.pipeline.response.ResponsePipeline;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Rolling stock scheduling service client
  * <p>
- * Converts MATSim simulation run outputs to requests and sends them to the RSS service.
+ * Converts MATSim simulation run outputs to requests and sends them to the RSS service. The client keeps one
+ * connection to the service for all requests it processes.
+ * <p>
+ * Requests processed asynchronously are composed one after another, while the scheduler solves up to the maximal
+ * number of in-flight requests. If the window is full, the next request is only composed once a response arrives.
  *
  * @author munterfi
  */
 @Log4j2
-@RequiredArgsConstructor
 public class RsschedMatsimClient {
-    private final String baseUrl;
-    private final int port;
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 2;
+    private final RequestSender sender;
+    private final RequestDispatcher dispatcher;
+    private final ExecutorService composer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-composer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RsschedMatsimClient(String baseUrl, int port) {
+        this(new RequestSender(baseUrl, port), DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    }
+
+    /**
+     * @param baseUrl          the base URL of the scheduler
+     * @param port             the port of the scheduler
+     * @param connectTimeout   the timeout to establish a connection to the scheduler
+     * @param requestTimeout   the timeout until the response of the scheduler, including the solving time
+     * @param compressRequests gzip the request bodies, the scheduler must accept the gzip content encoding
+     */
+    public RsschedMatsimClient(String baseUrl, int port, Duration connectTimeout, Duration requestTimeout, boolean compressRequests) {
+        this(baseUrl, port, connectTimeout, requestTimeout, compressRequests, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    }
+
+    /**
+     * @param baseUrl             the base URL of the scheduler
+     * @param port                the port of the scheduler
+     * @param connectTimeout      the timeout to establish a connection to the scheduler
+     * @param requestTimeout      the timeout until the response of the scheduler, including the solving time
+     * @param compressRequests    gzip the request bodies, the scheduler must accept the gzip content encoding
+     * @param maxInFlightRequests the maximal number of asynchronous requests solved by the scheduler at the same time
+     */
+    public RsschedMatsimClient(String baseUrl, int port, Duration connectTimeout, Duration requestTimeout, boolean compressRequests, int maxInFlightRequests) {
+        this(new RequestSender(baseUrl, port, connectTimeout, requestTimeout, compressRequests), maxInFlightRequests);
+    }
+
+    private RsschedMatsimClient(RequestSender sender, int maxInFlightRequests) {
+        this.sender = sender;
+        this.dispatcher = new RequestDispatcher(sender, maxInFlightRequests);
+    }
 
     public Response process(RsschedRequestConfig config) {
         AtomicReference<Response> response = new AtomicReference<>();
 
-        ResponsePipeline pipeline = new ResponsePipeline(config, baseUrl, port);
+        ResponsePipeline pipeline = new ResponsePipeline(config, sender);
         pipeline.addSink(pipe -> response.set(pipe.getResponse()));
         pipeline.run();
 
         return response.get();
     }
+
+    /**
+     * Composes the request in the background and sends it as soon as the in-flight window has a free slot.
+     *
+     * @param config the request configuration
+     * @return the response, completed when it is received and written to the output directory.
+     */
+    public CompletableFuture<Response> processAsync(RsschedRequestConfig config) {
+        return CompletableFuture.supplyAsync(() -> {
+            ResponsePipe pipe = new RequestCollector(new RequestPipeline(config)).fetch();
+            // blocks the composer while the window is full, so the next request is not composed yet
+            return dispatcher.dispatch(config.getInstanceId(), pipe.getRequest(), pipe.getRequestFile())
+                    .thenApply(response -> {
+                        pipe.setResponse(response);
+                        new ResponseJSONWriter(config.getOutputDirectory(), config.getInstanceId()).process(pipe);
+                        pipe.awaitRequestExports();
+                        return response;
+                    });
+        }, composer).thenCompose(Function.identity());
+    }
+
+    /**
+     * Processes the requests asynchronously in the given order.
+     *
+     * @param configs the request configurations
+     * @return the responses, in the order of the configurations.
+     */
+    public List<CompletableFuture<Response>> processAll(List<RsschedRequestConfig> configs) {
+        return configs.stream().map(this::processAsync).toList();
+    }
+
+    /**
+     * Adds a listener for the latency of the asynchronously processed requests.
+     *
+     * @param listener The listener to be added.
+     */
+    public void addDispatchListener(Consumer<DispatchMetrics> listener) {
+        dispatcher.addListener(listener);
+    }
 }
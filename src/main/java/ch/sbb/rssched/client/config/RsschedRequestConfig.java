@@ -36,6 +36,7 @@ public class RsschedRequestConfig {
     private final Shunting shunting = new Shunting();
     private final Maintenance maintenance = new Maintenance();
     private final Costs costs = new Costs();
+    private final Performance performance = new Performance();
     private String instanceId;
     private String runId;
     private String inputDirectory;
@@ -187,6 +188,13 @@ public class RsschedRequestConfig {
          */
         private boolean forbidDeadHeadTrips = false;
 
+        /**
+         * Only calculate deadhead trips between locations where a vehicle can start or end a deadhead trip: route
+         * terminals, depots and maintenance locations. Intermediate on-route shunting locations are omitted from the
+         * deadhead trip matrix.
+         */
+        private boolean sparseDeadHeadTrips = false;
+
         /**
          * Vehicles with stopping times under this threshold in seconds do not count into dayLimit at stations.
          */
@@ -334,4 +342,96 @@ public class RsschedRequestConfig {
         private int maintenance = 200;
 
     }
+
+    /**
+     * Settings that only affect the runtime of the pipeline, not the content of the request.
+     */
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    @Getter
+    @Setter
+    @ToString
+    public static class Performance {
+
+        /**
+         * The algorithm used to route deadhead trips in the network.
+         */
+        private RoutingAlgorithm routingAlgorithm = RoutingAlgorithm.DIJKSTRA;
+
+        /**
+         * Directory to cache the deadhead trip relations between runs, no caching if not set. The cache is keyed by the
+         * masked network and the deadhead trip routing parameters.
+         */
+        private String deadHeadTripCacheDirectory;
+
+        /**
+         * Read the events file in a pipeline of decompression, parsing and analysis stages on separate threads.
+         */
+        private boolean pipelinedEventsReading = false;
+
+        /**
+         * Number of decompressed chunks and parsed event batches buffered between the stages of the pipelined events
+         * reading.
+         */
+        private int eventsQueueDepth = 32;
+
+        /**
+         * Parse only the transit events of the selected transit lines from the events file, skipping all other events
+         * before they are created. Replaces the MATSim events reader, therefore disabled by default.
+         */
+        private boolean transitOnlyEventsParsing = false;
+
+        /**
+         * Read the network, transit schedule and transit vehicles from a binary snapshot next to the input files, which
+         * is written on the first run and renewed whenever the input files change.
+         */
+        private boolean scenarioSnapshot = false;
+
+        /**
+         * Parse the network, transit schedule and transit vehicles files concurrently instead of one after another.
+         */
+        private boolean parallelScenarioLoading = false;
+
+        /**
+         * Only load the transit routes, stop facilities and vehicles selected by the filter strategy, attributes are
+         * dropped while parsing.
+         */
+        private boolean selectiveScenarioLoading = false;
+
+        /**
+         * Only build the network links used by the selected transit routes and their stop facilities, read in a second
+         * pass after the transit schedule.
+         */
+        private boolean selectiveNetworkLoading = false;
+
+        /**
+         * Gzip compression level of the exported scenario files from 1 (fastest) to 9 (smallest), 0 writes
+         * uncompressed files.
+         */
+        private int exportCompressionLevel = 6;
+
+        /**
+         * Directory to checkpoint the masked scenario and the event analysis, no checkpoints if not set. A rerun with
+         * the same input files and global settings resumes from the checkpoints instead of masking the scenario and
+         * analysing the events again.
+         */
+        private String checkpointDirectory;
+
+        /**
+         * Directory to store the deadhead trip matrix off-heap in memory-mapped files, in a subdirectory per instance.
+         * A mapped matrix holds at most 23170 locations. The matrix is kept on the heap if not set.
+         */
+        private String tripMatrixDirectory;
+
+        public enum RoutingAlgorithm {
+            /**
+             * Grow one shortest path tree per origin, no preprocessing.
+             */
+            DIJKSTRA,
+            /**
+             * Preprocess a contraction hierarchy once per network, then answer queries on the much smaller upward
+             * search spaces.
+             */
+            CONTRACTION_HIERARCHY
+        }
+    }
 }
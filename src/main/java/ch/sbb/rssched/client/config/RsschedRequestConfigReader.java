@@ -92,6 +92,9 @@ public class RsschedRequestConfigReader {
                             case "forbidDeadHeadTrips":
                                 builder.config.getGlobal().setForbidDeadHeadTrips(valueCell.getBooleanCellValue());
                                 break;
+                            case "sparseDeadHeadTrips":
+                                builder.config.getGlobal().setSparseDeadHeadTrips(valueCell.getBooleanCellValue());
+                                break;
                             case "dayLimitThreshold":
                                 builder.config.getGlobal().setDayLimitThreshold((int) valueCell.getNumericCellValue());
                                 break;
@@ -156,6 +159,56 @@ public class RsschedRequestConfigReader {
                                 break;
                         }
                         break;
+                    case "performance":
+                        switch (parameter) {
+                            case "routingAlgorithm":
+                                builder.config.getPerformance().setRoutingAlgorithm(
+                                        RsschedRequestConfig.Performance.RoutingAlgorithm.valueOf(
+                                                valueCell.getStringCellValue().toUpperCase()));
+                                break;
+                            case "deadHeadTripCacheDirectory":
+                                builder.config.getPerformance()
+                                        .setDeadHeadTripCacheDirectory(valueCell.getStringCellValue());
+                                break;
+                            case "pipelinedEventsReading":
+                                builder.config.getPerformance()
+                                        .setPipelinedEventsReading(valueCell.getBooleanCellValue());
+                                break;
+                            case "eventsQueueDepth":
+                                builder.config.getPerformance()
+                                        .setEventsQueueDepth((int) valueCell.getNumericCellValue());
+                                break;
+                            case "transitOnlyEventsParsing":
+                                builder.config.getPerformance()
+                                        .setTransitOnlyEventsParsing(valueCell.getBooleanCellValue());
+                                break;
+                            case "scenarioSnapshot":
+                                builder.config.getPerformance().setScenarioSnapshot(valueCell.getBooleanCellValue());
+                                break;
+                            case "parallelScenarioLoading":
+                                builder.config.getPerformance()
+                                        .setParallelScenarioLoading(valueCell.getBooleanCellValue());
+                                break;
+                            case "selectiveScenarioLoading":
+                                builder.config.getPerformance()
+                                        .setSelectiveScenarioLoading(valueCell.getBooleanCellValue());
+                                break;
+                            case "selectiveNetworkLoading":
+                                builder.config.getPerformance()
+                                        .setSelectiveNetworkLoading(valueCell.getBooleanCellValue());
+                                break;
+                            case "exportCompressionLevel":
+                                builder.config.getPerformance()
+                                        .setExportCompressionLevel((int) valueCell.getNumericCellValue());
+                                break;
+                            case "checkpointDirectory":
+                                builder.config.getPerformance().setCheckpointDirectory(valueCell.getStringCellValue());
+                                break;
+                            case "tripMatrixDirectory":
+                                builder.config.getPerformance().setTripMatrixDirectory(valueCell.getStringCellValue());
+                                break;
+                        }
+                        break;
                 }
             } else {
                 throw new IllegalStateException("Incomplete scenario info row.");
@@ -1,6 +1,8 @@
 package ch.sbb.rssched.client.config.selection;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.vehicles.VehicleType;
 
 /**
  * Defines a strategy for filtering transit lines.
@@ -16,4 +18,25 @@ public interface FilterStrategy {
      * @return A transit line selection containing the filtered transit routes with their routes.
      */
     TransitLineSelection filter(Scenario scenario);
+
+    /**
+     * Check if transit routes served by a vehicle type can be selected, allows loaders to skip other routes. Strategies
+     * not selecting by vehicle type keep the default, which skips nothing.
+     *
+     * @param vehicleTypeId the vehicle type of the route departures.
+     * @return true if the routes of the vehicle type can be part of the selection.
+     */
+    default boolean selects(Id<VehicleType> vehicleTypeId) {
+        return true;
+    }
+
+    /**
+     * Describe the selection of the strategy, used to key cached scenarios. Strategies without a stable description,
+     * such as lambdas, keep the default and are not cached.
+     *
+     * @return a description that is equal for strategies selecting the same routes, or null if there is none.
+     */
+    default String getDescription() {
+        return null;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package ch.sbb.rssched.client.config.selection;
 
+import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 import org.matsim.api.core.v01.Scenario;
 
@@ -11,6 +12,7 @@ import org.matsim.api.core.v01.Scenario;
  * @author munterfi
  */
 @Log4j2
+@ToString
 public class NoFilterStrategy implements FilterStrategy {
 
     @Override
@@ -23,4 +25,9 @@ public class NoFilterStrategy implements FilterStrategy {
         return selection;
     }
 
+    @Override
+    public String getDescription() {
+        return "NoFilterStrategy";
+    }
+
 }
@@ -9,6 +9,7 @@ import org.matsim.vehicles.VehicleType;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Transit vehicle type filter
@@ -54,6 +55,16 @@ public class VehicleTypeFilterStrategy implements FilterStrategy {
         return selection;
     }
 
+    @Override
+    public boolean selects(Id<VehicleType> vehicleTypeId) {
+        return lookup.containsKey(vehicleTypeId.toString());
+    }
+
+    @Override
+    public String getDescription() {
+        return "VehicleTypeFilterStrategy" + new TreeMap<>(lookup);
+    }
+
     public record VehicleCategory(String group, Set<String> vehicleTypes) {
     }
 }
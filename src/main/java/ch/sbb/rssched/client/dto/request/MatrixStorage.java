@@ -0,0 +1,75 @@
+package ch.sbb.rssched.client.dto.request;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Allocates the int buffers of the trip matrix, either on the heap or off-heap in memory-mapped files.
+ * <p>
+ * A mapped buffer is backed by one file per name in the storage directory. Allocating the same name again maps the
+ * same file with the new size, so the content of the previous buffer is kept at the same positions. The files are kept
+ * after the run and reused by the next one. Their content is not reset, so the caller has to track which cells are
+ * valid. A buffer is a single mapping, which is limited to 2 GB, that is {@value #MAX_MAPPED_LOCATIONS} locations for a
+ * square matrix. The builder maps the relations and the final matrix as separate files, so the disk holds both while
+ * the matrix is built.
+ *
+ * @author munterfi
+ */
+final class MatrixStorage {
+    private static final String FILE_SUFFIX = ".bin";
+    static final int MAX_MAPPED_LOCATIONS = 23170; // floor(sqrt(MAX_MAPPED_CELLS))
+    private static final long MAX_MAPPED_CELLS = Integer.MAX_VALUE / Integer.BYTES;
+    private final Path directory;
+
+    private MatrixStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    static MatrixStorage onHeap() {
+        return new MatrixStorage(null);
+    }
+
+    static MatrixStorage mapped(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new MatrixStorage(directory);
+    }
+
+    boolean isMapped() {
+        return directory != null;
+    }
+
+    /**
+     * Allocates a buffer of the size.
+     *
+     * @param name the name of the buffer, used as file name if mapped.
+     * @param size the number of cells.
+     * @return a zeroed heap buffer, or a mapped buffer with the content of the previous mapping of the name.
+     */
+    IntBuffer allocate(String name, long size) {
+        if (!isMapped()) {
+            return IntBuffer.allocate(Math.toIntExact(size));
+        }
+        if (size > MAX_MAPPED_CELLS) {
+            throw new IllegalArgumentException(
+                    "Matrix with " + size + " cells exceeds the mappable size of " + MAX_MAPPED_CELLS + " cells.");
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(name + FILE_SUFFIX), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size * Integer.BYTES).order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package ch.sbb.rssched.client.dto.request;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 
 /**
@@ -23,6 +26,19 @@ public interface Request {
         return new RequestBuilderImpl();
     }
 
+    /**
+     * Creates a new Request builder instance, which stores the deadhead trip matrix off-heap in memory-mapped files.
+     * <p>
+     * The files in the directory are overwritten by the next builder using the same directory, it must not be shared
+     * between concurrent builders.
+     *
+     * @param tripMatrixDirectory the directory of the matrix files, created if missing
+     * @return a new Request.Builder instance
+     */
+    static Request.Builder builder(Path tripMatrixDirectory) {
+        return new RequestBuilderImpl(tripMatrixDirectory);
+    }
+
     /**
      * Serializes the Request object to its JSON representation.
      *
@@ -31,6 +47,15 @@ public interface Request {
      */
     String toJSON() throws JsonProcessingException;
 
+    /**
+     * Streams the compact JSON representation of the Request object in UTF-8 to the output stream, without holding the
+     * serialized request in memory. Used for the request file, which is sent to the scheduler.
+     *
+     * @param out the stream to write to, not closed
+     * @throws IOException if there is an error during JSON processing or writing
+     */
+    void writeJSON(OutputStream out) throws IOException;
+
     /**
      * The Builder interface provides methods to add various components to the scheduler request and construct the final
      * Request object.
@@ -153,6 +178,15 @@ public interface Request {
          */
         Request.Builder addDeadHeadTrip(String originId, String destinationId, int duration, int distance);
 
+        /**
+         * Restricts the deadhead trip matrix to the locations of the added deadhead trips. If set, the matrix does not
+         * need to cover all locations, but must still contain all relations between the locations it covers.
+         *
+         * @param sparseDeadHeadTrips true if the deadhead trip matrix only covers a subset of the locations
+         * @return the Builder instance
+         */
+        Builder setSparseDeadHeadTrips(boolean sparseDeadHeadTrips);
+
         /**
          * Set shunting parameters.
          *
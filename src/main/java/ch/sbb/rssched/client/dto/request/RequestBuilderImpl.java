@@ -1,11 +1,13 @@
 package ch.sbb.rssched.client.dto.request;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author munterfi
@@ -20,15 +22,21 @@ class RequestBuilderImpl implements Request.Builder {
     private final Map<String, DepartureSegment> departureSegments = new HashMap<>();
     private final Map<String, Departure> departures = new HashMap<>();
     private final Map<String, MaintenanceSlot> maintenanceSlots = new HashMap<>();
-    private final TripMatrix.Builder tripMatrixBuilder = new TripMatrix.Builder();
+    private final TripMatrix.Builder tripMatrixBuilder;
     private ShuntingConfig shunting;
     private CostConfig costs;
     private MaintenanceConfig maintenance;
     private boolean forbidDeadHeadTrips;
+    private boolean sparseDeadHeadTrips;
     private int dayLimitThreshold = INITIAL_CONFIG_VALUE;
 
 
     RequestBuilderImpl() {
+        tripMatrixBuilder = new TripMatrix.Builder();
+    }
+
+    RequestBuilderImpl(Path tripMatrixDirectory) {
+        tripMatrixBuilder = new TripMatrix.Builder(MatrixStorage.mapped(tripMatrixDirectory));
     }
 
     @Override
@@ -198,6 +206,12 @@ class RequestBuilderImpl implements Request.Builder {
     }
 
 
+    @Override
+    public Request.Builder setSparseDeadHeadTrips(boolean sparseDeadHeadTrips) {
+        this.sparseDeadHeadTrips = sparseDeadHeadTrips;
+        return this;
+    }
+
     @Override
     public Request.Builder setShuntingParameters(int minimalDuration, int deadHeadTripDuration, int couplingDuration) {
         this.shunting = new ShuntingConfig(minimalDuration, deadHeadTripDuration, couplingDuration);
@@ -299,8 +313,10 @@ class RequestBuilderImpl implements Request.Builder {
     }
 
     private void checkTripMatrixIndices() {
-        for (String originId : locations.keySet()) {
-            for (String destinationId : locations.keySet()) {
+        // a sparse matrix only has to be complete between the locations it covers
+        Set<String> matrixLocations = sparseDeadHeadTrips ? tripMatrixBuilder.getLocations() : locations.keySet();
+        for (String originId : matrixLocations) {
+            for (String destinationId : matrixLocations) {
                 if (originId.equals(destinationId)) {
                     continue;
                 }
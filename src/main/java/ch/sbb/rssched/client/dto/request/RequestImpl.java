@@ -1,7 +1,9 @@
 package ch.sbb.rssched.client.dto.request;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -10,12 +12,20 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @NoArgsConstructor(access = AccessLevel.PACKAGE)
 @Setter(AccessLevel.PACKAGE)
 @Getter
 class RequestImpl implements Request {
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new Jdk8Module())
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // Ensure dates are written in ISO 8601 format
+    private static final ObjectWriter COMPACT_WRITER = MAPPER.writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // the caller owns the stream
+    private static final ObjectWriter INDENTED_WRITER = MAPPER.writer(SerializationFeature.INDENT_OUTPUT);
     private List<VehicleType> vehicleTypes;
     private List<Location> locations;
     private List<Depot> depots;
@@ -26,11 +36,10 @@ class RequestImpl implements Request {
     private Config parameters;
 
     public String toJSON() throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new Jdk8Module());
-        mapper.registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // Ensure dates are written in ISO 8601 format
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        return mapper.writeValueAsString(this);
+        return INDENTED_WRITER.writeValueAsString(this);
+    }
+
+    public void writeJSON(OutputStream out) throws IOException {
+        COMPACT_WRITER.writeValue(out, this);
     }
 }
@@ -1,72 +1,170 @@
 package ch.sbb.rssched.client.dto.request;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * Trip matrix with the durations and distances between all pairs of locations.
+ * <p>
+ * The matrices are stored row-major in flat int buffers, indexed by the position of the locations in the sorted
+ * indices. The buffers are heap arrays, or memory-mapped files for very large location sets, see {@link MatrixStorage}.
+ * They are serialized as nested arrays, one row per origin, streamed out of the buffers.
+ *
  * @author munterfi
  */
-record TripMatrix(List<String> indices, List<List<Integer>> durations, List<List<Integer>> distances) {
+@JsonSerialize(using = TripMatrix.Serializer.class)
+record TripMatrix(List<String> indices, IntBuffer durations, IntBuffer distances) {
+
+    int size() {
+        return indices.size();
+    }
+
+    int duration(int origin, int destination) {
+        return durations.get(origin * size() + destination);
+    }
+
+    int distance(int origin, int destination) {
+        return distances.get(origin * size() + destination);
+    }
+
+    /**
+     * Collects the relations in dense buffers indexed by the insertion position of the locations, which grow with the
+     * number of locations.
+     */
     static class Builder {
+        private static final int INITIAL_CAPACITY = 16;
 
-        private final Set<String> locations = new HashSet<>();
-        private final Map<String, Map<String, Relation>> relations = new HashMap<>();
+        private final MatrixStorage storage;
+        private final Map<String, Integer> locations = new HashMap<>();
+        private final BitSet relations = new BitSet(); // cell origin * capacity + destination is set
+        private int capacity = 0;
+        private IntBuffer durations = IntBuffer.allocate(0);
+        private IntBuffer distances = IntBuffer.allocate(0);
+        private int[] outgoing = new int[0]; // number of relations per origin position
+        private int[] incoming = new int[0]; // number of relations per destination position
 
         Builder() {
+            this(MatrixStorage.onHeap());
+        }
+
+        Builder(MatrixStorage storage) {
+            this.storage = storage;
+        }
+
+        /**
+         * Copies the rows of the buffer to the wider rows of the target, from the last cell to the first. The target can
+         * be a mapping of the same file as the source, since every cell moves to an equal or higher position.
+         */
+        private static IntBuffer widenRows(IntBuffer source, IntBuffer target, int rows, int width, int newWidth) {
+            for (int row = rows - 1; row >= 0; row--) {
+                for (int col = width - 1; col >= 0; col--) {
+                    target.put(row * newWidth + col, source.get(row * width + col));
+                }
+            }
+            return target;
         }
 
         public Builder addRelation(String originLocationId, String destinationLocationId, int duration, int distance) {
-            validateAndAddLocation(originLocationId);
-            validateAndAddLocation(destinationLocationId);
-            relations.computeIfAbsent(originLocationId, k -> new HashMap<>()).put(destinationLocationId,
-                    new Relation(originLocationId, destinationLocationId, duration, distance));
+            int origin = validateAndAddLocation(originLocationId);
+            int destination = validateAndAddLocation(destinationLocationId);
+            int cell = origin * capacity + destination;
+            if (!relations.get(cell)) {
+                relations.set(cell);
+                outgoing[origin]++;
+                incoming[destination]++;
+            }
+            durations.put(cell, duration);
+            distances.put(cell, distance);
             return this;
         }
 
-        private void validateAndAddLocation(String locationId) {
+        private int validateAndAddLocation(String locationId) {
             if (locationId == null || locationId.isEmpty()) {
                 throw new IllegalArgumentException("Location ID cannot be null or empty.");
             }
-            locations.add(locationId);
+            Integer position = locations.get(locationId);
+            if (position == null) {
+                position = locations.size();
+                locations.put(locationId, position);
+                ensureCapacity(locations.size());
+            }
+            return position;
+        }
+
+        private void ensureCapacity(int size) {
+            if (size <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(INITIAL_CAPACITY, capacity * 2);
+            if (storage.isMapped()) {
+                // doubling past the largest mappable square would fail already at 16384 locations
+                newCapacity = Math.max(size, Math.min(newCapacity, MatrixStorage.MAX_MAPPED_LOCATIONS));
+            }
+            long cells = (long) newCapacity * newCapacity;
+            durations = widenRows(durations, storage.allocate("relation_durations", cells), capacity, capacity,
+                    newCapacity);
+            distances = widenRows(distances, storage.allocate("relation_distances", cells), capacity, capacity,
+                    newCapacity);
+            BitSet newRelations = new BitSet(newCapacity * newCapacity);
+            for (int cell = relations.nextSetBit(0); cell >= 0; cell = relations.nextSetBit(cell + 1)) {
+                newRelations.set(cell / capacity * newCapacity + cell % capacity);
+            }
+            relations.clear();
+            relations.or(newRelations);
+            outgoing = Arrays.copyOf(outgoing, newCapacity);
+            incoming = Arrays.copyOf(incoming, newCapacity);
+            capacity = newCapacity;
         }
 
         public boolean containsRelation(String originLocationId, String destinationLocationId) {
-            Map<String, Relation> originRelations = relations.get(originLocationId);
-            return originRelations != null && originRelations.containsKey(destinationLocationId);
+            Integer origin = locations.get(originLocationId);
+            Integer destination = locations.get(destinationLocationId);
+            return origin != null && destination != null && relations.get(origin * capacity + destination);
+        }
+
+        public Set<String> getLocations() {
+            return Collections.unmodifiableSet(locations.keySet());
         }
 
         public TripMatrix build() {
             validateLocationsCount();
             validateOriginDestinationConsistency();
             // setup
-            List<String> indices = new ArrayList<>(locations);
+            List<String> indices = new ArrayList<>(locations.keySet());
             Collections.sort(indices);
             final int n = indices.size();
-            List<List<Integer>> durations = new ArrayList<>(n);
-            List<List<Integer>> distances = new ArrayList<>(n);
-            // fill matrix
-            for (String origIndex : indices) {
-                List<Integer> durationRow = new ArrayList<>(n);
-                List<Integer> distanceRow = new ArrayList<>(n);
-                for (String destIndex : indices) {
-                    if (origIndex.equals(destIndex)) {
-                        durationRow.add(0);
-                        distanceRow.add(0);
-                    } else {
-                        var relation = relations.get(origIndex).get(destIndex);
-                        durationRow.add(relation.duration);
-                        distanceRow.add(relation.distance);
+            int[] positions = new int[n];
+            for (int i = 0; i < n; i++) {
+                positions[i] = locations.get(indices.get(i));
+            }
+            IntBuffer matrixDurations = storage.allocate("durations", (long) n * n);
+            IntBuffer matrixDistances = storage.allocate("distances", (long) n * n);
+            // fill matrix, zero on the diagonal
+            for (int orig = 0; orig < n; orig++) {
+                for (int dest = 0; dest < n; dest++) {
+                    int cell = positions[orig] * capacity + positions[dest];
+                    if (orig != dest && !relations.get(cell)) {
+                        throw new IllegalArgumentException(
+                                "Missing relation from " + indices.get(orig) + " to " + indices.get(dest));
                     }
+                    matrixDurations.put(orig * n + dest, orig == dest ? 0 : durations.get(cell));
+                    matrixDistances.put(orig * n + dest, orig == dest ? 0 : distances.get(cell));
                 }
-                durations.add(durationRow);
-                distances.add(distanceRow);
             }
-            return new TripMatrix(indices, durations, distances);
+            return new TripMatrix(indices, matrixDurations, matrixDistances);
         }
 
         private void validateLocationsCount() {
@@ -76,17 +174,51 @@ record TripMatrix(List<String> indices, List<List<Integer>> durations, List<List
         }
 
         private void validateOriginDestinationConsistency() {
-            Set<String> originIds = relations.keySet();
-            Set<String> destinationsIds = new HashSet<>(relations.size());
-            for (var destinationMap : relations.values()) {
-                destinationsIds.addAll(destinationMap.keySet());
+            for (int position = 0; position < locations.size(); position++) {
+                if (outgoing[position] > 0 != incoming[position] > 0) {
+                    throw new IllegalArgumentException("Origins and destinations sets must contain the same values.");
+                }
             }
-            if (!originIds.equals(destinationsIds)) {
-                throw new IllegalArgumentException("Origins and destinations sets must contain the same values.");
+        }
+    }
+
+    /**
+     * Writes the matrix in the JSON shape expected by the scheduler: the indices and the durations and distances as
+     * nested arrays, one row per origin.
+     */
+    static class Serializer extends StdSerializer<TripMatrix> {
+
+        Serializer() {
+            super(TripMatrix.class);
+        }
+
+        private static void writeMatrix(JsonGenerator generator, String fieldName, IntBuffer values, int size) throws IOException {
+            generator.writeArrayFieldStart(fieldName);
+            for (int row = 0; row < size; row++) {
+                if (values.hasArray()) {
+                    generator.writeArray(values.array(), values.arrayOffset() + row * size, size);
+                } else {
+                    generator.writeStartArray();
+                    for (int col = 0; col < size; col++) {
+                        generator.writeNumber(values.get(row * size + col));
+                    }
+                    generator.writeEndArray();
+                }
             }
+            generator.writeEndArray();
         }
 
-        record Relation(String originLocationId, String destinationLocationId, int duration, int distance) {
+        @Override
+        public void serialize(TripMatrix matrix, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("indices");
+            for (String index : matrix.indices()) {
+                generator.writeString(index);
+            }
+            generator.writeEndArray();
+            writeMatrix(generator, "durations", matrix.durations(), matrix.size());
+            writeMatrix(generator, "distances", matrix.distances(), matrix.size());
+            generator.writeEndObject();
         }
     }
 }
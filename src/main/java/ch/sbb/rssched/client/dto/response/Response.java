@@ -7,17 +7,23 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.Data;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @Data
 public class Response {
+    private static final ObjectMapper READER = new ObjectMapper().registerModule(new JavaTimeModule());
 
     private Info info;
     private ObjectiveValue objectiveValue;
     private Schedule schedule;
 
     public static Response fromJson(String json) throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        return objectMapper.readValue(json, Response.class);
+        return READER.readValue(json, Response.class);
+    }
+
+    public static Response fromJson(InputStream json) throws IOException {
+        return READER.readValue(json, Response.class);
     }
 
     public String toJSON() throws JsonProcessingException {
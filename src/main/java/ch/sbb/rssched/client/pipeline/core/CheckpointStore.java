@@ -0,0 +1,128 @@
+package ch.sbb.rssched.client.pipeline.core;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stores the checkpoints of the data transport after the filters of the pipelines.
+ * <p>
+ * The checkpoints are keyed by a hash of the configuration and the size and modification time of the input files, a
+ * checkpoint with a different key or codec, or one that cannot be decoded, is ignored and overwritten on the next run.
+ * Each checkpoint is one file per instance, pipeline and filter position, replaced atomically, so the instances of a run
+ * can share the directory.
+ *
+ * @author munterfi
+ * @see PipeCodec
+ */
+@Log4j2
+public class CheckpointStore {
+    private static final int MAGIC = 0x5253434b; // RSCK
+    private static final int VERSION = 1;
+    private static final String FILE_EXTENSION = ".checkpoint";
+    private final Path directory;
+    private final String instanceId;
+    private final String key;
+
+    /**
+     * Constructs a CheckpointStore in the directory, keyed by the configuration and the input files.
+     *
+     * @param directory     the directory of the checkpoint files, created if missing.
+     * @param instanceId    the ID of the instance (=request) the checkpoints belong to.
+     * @param configuration the stable description of the configuration the pipeline results depend on.
+     * @param inputFiles    the input files the pipeline results depend on.
+     */
+    public CheckpointStore(String directory, String instanceId, String configuration, List<Path> inputFiles) {
+        this.directory = Path.of(directory);
+        this.instanceId = instanceId;
+        this.key = hash(configuration, inputFiles);
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(String configuration, List<Path> inputFiles) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(configuration.getBytes(StandardCharsets.UTF_8));
+            for (Path inputFile : inputFiles) {
+                String fingerprint = String.format("|%s:%d:%d", inputFile.toAbsolutePath(), Files.size(inputFile),
+                        Files.getLastModifiedTime(inputFile).toMillis());
+                digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Restores the data transport from the checkpoint after the filter at the index, if it exists and matches the key
+     * and the codec.
+     *
+     * @return true if the checkpoint was restored, false if it is missing, outdated or corrupt.
+     */
+    <T extends Pipe> boolean read(String pipeline, int index, PipeCodec<T> codec, T pipe) {
+        Path file = buildPath(pipeline, index);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key)
+                    || !in.readUTF().equals(codec.getClass().getName())) {
+                log.info("Ignoring outdated checkpoint {}", file);
+                return false;
+            }
+            codec.read(in, pipe);
+            log.info("Restored checkpoint {}", file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // the codec leaves the pipe as fetched, the filters run again and overwrite the checkpoint
+            log.warn("Ignoring corrupt checkpoint {}: {}", file, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the checkpoint of the data transport after the filter at the index.
+     */
+    <T extends Pipe> void write(String pipeline, int index, PipeCodec<T> codec, T pipe) {
+        Path file = buildPath(pipeline, index);
+        try {
+            Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                out.writeUTF(codec.getClass().getName());
+                codec.write(out, pipe);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote checkpoint {}", file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path buildPath(String pipeline, int index) {
+        return directory.resolve(String.format("%s.%s.%d%s", instanceId, pipeline, index, FILE_EXTENSION));
+    }
+}
@@ -0,0 +1,35 @@
+package ch.sbb.rssched.client.pipeline.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A codec that writes the state of the data transport after a filter to a compact binary checkpoint and restores it.
+ * <p>
+ * Only the state produced by the filters is written, the data provided by the source is not. On restore, the state is
+ * read into a freshly fetched data transport.
+ *
+ * @param <T> The type of pipe (=data transport) used in the pipeline.
+ * @author munterfi
+ * @see CheckpointStore
+ */
+public interface PipeCodec<T extends Pipe> {
+
+    /**
+     * Writes the state of the data transport.
+     *
+     * @param out  The stream to write to.
+     * @param pipe The data transport after the filter.
+     */
+    void write(DataOutputStream out, T pipe) throws IOException;
+
+    /**
+     * Restores the state of the data transport. The restore is all-or-nothing: if it fails, the data transport is left
+     * as fetched from the source.
+     *
+     * @param in   The stream to read from.
+     * @param pipe The data transport fetched from the source.
+     */
+    void read(DataInputStream in, T pipe) throws IOException;
+}
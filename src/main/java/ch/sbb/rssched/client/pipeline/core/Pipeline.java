@@ -2,10 +2,16 @@ package ch.sbb.rssched.client.pipeline.core;
 
 import lombok.extern.log4j.Log4j2;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Abstract class representing a pipeline in the Pipes and Filters architecture.
@@ -14,6 +20,17 @@ import java.util.List;
  * are added. Subclasses should implement specific pipeline functionality.
  * <p>
  * Note: A pipeline has only one data source but can have multiple filters and sinks.
+ * <p>
+ * Independent sinks run concurrently on a shared thread pool while the other sinks run in order on the calling thread.
+ * The run returns after all sinks completed and rethrows the first failure of any sink. A downstream consumer can
+ * {@link #start()} the pipeline instead, which returns once the other sinks completed and leaves the independent sinks
+ * running.
+ * <p>
+ * Each stage is timed and its allocations and heap usage are measured, the measurements are passed to the registered
+ * listeners.
+ * <p>
+ * Filters can be registered with a codec to checkpoint the data transport after them. If a checkpoint store is set, the
+ * run resumes after the latest valid checkpoint and skips the filters before it; the source is always fetched.
  *
  * @param <T> The type of pipe (=data transport) used in the pipeline.
  * @author munterfi
@@ -24,9 +41,17 @@ import java.util.List;
  */
 @Log4j2
 public abstract class Pipeline<T extends Pipe> implements Runnable {
+    private static final ExecutorService SINK_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pipeline-sink");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final DataSource<T> source;
     private final List<Filter<T>> filters = new ArrayList<>();
+    private final List<PipeCodec<T>> checkpointCodecs = new ArrayList<>();
     private final List<ResultSink<T>> sinks = new ArrayList<>();
+    private final List<PipelineListener> listeners = new ArrayList<>();
+    private CheckpointStore checkpointStore;
 
     /**
      * Constructs a Pipeline with the specified data source.
@@ -38,19 +63,145 @@ public abstract class Pipeline<T extends Pipe> implements Runnable {
         this.source = source;
     }
 
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean allocationBean
+                && allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return allocationBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        return e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+    }
+
     /**
      * Runs the pipeline by executing filters and result sinks on the data transport.
      */
     @Override
     public void run() {
-        log.info("Start {} with {} filter(s) and {} sink(s)", getClass().getSimpleName(), filters.size(), sinks.size());
-        var startTime = Instant.now();
-        T pipe = source.fetch();
-        filters.forEach(filter -> filter.apply(pipe));
-        sinks.forEach(sink -> sink.process(pipe));
-        var endTime = Instant.now();
-        log.info("{} completed successfully in {} seconds", getClass().getSimpleName(),
-                Duration.between(startTime, endTime).getSeconds());
+        try {
+            start().join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Executes the filters and the sinks that are not independent on the calling thread, without waiting for the
+     * independent sinks.
+     *
+     * @return the independent sinks, completed when all of them completed or exceptionally with the first failure.
+     */
+    public CompletableFuture<Void> start() {
+        String name = getClass().getSimpleName();
+        log.info("Start {} with {} filter(s) and {} sink(s)", name, filters.size(), sinks.size());
+        long startTime = System.nanoTime();
+        T pipe = measure(StageMetrics.Stage.SOURCE, source, source::fetch);
+        for (int i = resume(name, pipe); i < filters.size(); i++) {
+            Filter<T> filter = filters.get(i);
+            measure(StageMetrics.Stage.FILTER, filter, () -> {
+                filter.apply(pipe);
+                return pipe;
+            });
+            PipeCodec<T> codec = checkpointCodecs.get(i);
+            if (checkpointStore != null && codec != null) {
+                checkpointStore.write(name, i, codec, pipe);
+            }
+        }
+        return processSinks(pipe).thenRun(() -> {
+            long durationNanos = System.nanoTime() - startTime;
+            log.info("{} completed successfully in {} seconds", name, durationNanos / 1e9);
+            listeners.forEach(listener -> listener.pipelineCompleted(name, durationNanos));
+        });
+    }
+
+    /**
+     * Restores the latest valid checkpoint into the pipe.
+     *
+     * @return the index of the first filter to apply.
+     */
+    private int resume(String name, T pipe) {
+        if (checkpointStore == null) {
+            return 0;
+        }
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            int index = i;
+            PipeCodec<T> codec = checkpointCodecs.get(index);
+            if (codec != null && measure(StageMetrics.Stage.FILTER, codec,
+                    () -> checkpointStore.read(name, index, codec, pipe))) {
+                log.info("Resuming {} after filter {}", name, filters.get(index).getClass().getName());
+                return index + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Runs the other sinks in order while the independent sinks run concurrently. If one of the other sinks fails, the
+     * independent sinks are awaited before its failure is rethrown.
+     *
+     * @return the completion barrier of the independent sinks.
+     */
+    private CompletableFuture<Void> processSinks(T pipe) {
+        List<CompletableFuture<Void>> independentSinks = sinks.stream().filter(ResultSink::isIndependent)
+                .map(sink -> CompletableFuture.runAsync(() -> process(sink, pipe), SINK_EXECUTOR)).toList();
+        try {
+            sinks.stream().filter(sink -> !sink.isIndependent()).forEach(sink -> process(sink, pipe));
+        } catch (RuntimeException e) {
+            rethrowFailures(e, independentSinks);
+        }
+        return CompletableFuture.allOf(independentSinks.toArray(CompletableFuture[]::new)).handle((ignored, e) -> {
+            rethrowFailures(null, independentSinks);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the independent sinks and throws the first failure, the later failures are attached as suppressed.
+     *
+     * @param failure the failure of the other sinks, or null.
+     */
+    private void rethrowFailures(RuntimeException failure, List<CompletableFuture<Void>> independentSinks) {
+        for (CompletableFuture<Void> independentSink : independentSinks) {
+            try {
+                independentSink.join();
+            } catch (CompletionException e) {
+                RuntimeException cause = unwrap(e);
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void process(ResultSink<T> sink, T pipe) {
+        measure(StageMetrics.Stage.SINK, sink, () -> {
+            sink.process(pipe);
+            return pipe;
+        });
+    }
+
+    private <R> R measure(StageMetrics.Stage stage, Object component, Supplier<R> execution) {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        long heapUsedBefore = memoryBean.getHeapMemoryUsage().getUsed();
+        long allocatedBefore = allocatedBytes();
+        long startTime = System.nanoTime();
+        R result = execution.get();
+        long durationNanos = System.nanoTime() - startTime;
+        long allocatedAfter = allocatedBytes();
+        var metrics = new StageMetrics(getClass().getSimpleName(), stage, component.getClass().getSimpleName(),
+                durationNanos, allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore, heapUsedBefore,
+                memoryBean.getHeapMemoryUsage().getUsed());
+        log.debug("{}", metrics);
+        listeners.forEach(listener -> listener.stageCompleted(metrics));
+        return result;
     }
 
     /**
@@ -61,6 +212,18 @@ public abstract class Pipeline<T extends Pipe> implements Runnable {
     public void addFilter(Filter<T> filter) {
         log.info("Add filter: {}", filter.getClass().getName());
         filters.add(filter);
+        checkpointCodecs.add(null);
+    }
+
+    /**
+     * Adds a filter to the pipeline, the data transport is checkpointed after the filter if a checkpoint store is set.
+     *
+     * @param filter The filter to be added.
+     * @param codec  The codec writing and restoring the data transport after the filter.
+     */
+    public void addFilter(Filter<T> filter, PipeCodec<T> codec) {
+        addFilter(filter);
+        checkpointCodecs.set(checkpointCodecs.size() - 1, codec);
     }
 
     /**
@@ -72,4 +235,22 @@ public abstract class Pipeline<T extends Pipe> implements Runnable {
         log.info("Add sink: {}", sink.getClass().getName());
         sinks.add(sink);
     }
+
+    /**
+     * Sets the store to checkpoint the data transport after the filters registered with a codec.
+     *
+     * @param checkpointStore The checkpoint store, null to disable checkpointing.
+     */
+    public void setCheckpointStore(CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * Adds a listener for the metrics of the pipeline runs.
+     *
+     * @param listener The listener to be added.
+     */
+    public void addListener(PipelineListener listener) {
+        listeners.add(listener);
+    }
 }
@@ -0,0 +1,30 @@
+package ch.sbb.rssched.client.pipeline.core;
+
+/**
+ * Listener for the metrics of pipeline runs.
+ * <p>
+ * Listeners are called on the thread running the stage, which is a pool thread for independent sinks. Listeners must
+ * therefore be thread-safe.
+ *
+ * @author munterfi
+ * @see Pipeline#addListener(PipelineListener)
+ */
+@FunctionalInterface
+public interface PipelineListener {
+
+    /**
+     * Called after each source, filter and sink of the pipeline completed.
+     *
+     * @param metrics the measurements of the stage.
+     */
+    void stageCompleted(StageMetrics metrics);
+
+    /**
+     * Called after all stages of the pipeline completed.
+     *
+     * @param pipeline      the simple class name of the pipeline.
+     * @param durationNanos the elapsed time of the run in nanoseconds.
+     */
+    default void pipelineCompleted(String pipeline, long durationNanos) {
+    }
+}
@@ -17,4 +17,14 @@ public interface ResultSink<T extends Pipe> {
      * @param pipe The data transport to be processed.
      */
     void process(T pipe);
+
+    /**
+     * Independent sinks only read the data transport and do not depend on the effects of other sinks. The pipeline
+     * runs them concurrently to the other sinks.
+     *
+     * @return true if the sink can run concurrently to the other sinks.
+     */
+    default boolean isIndependent() {
+        return false;
+    }
 }
@@ -0,0 +1,25 @@
+package ch.sbb.rssched.client.pipeline.core;
+
+/**
+ * Measurements of one stage of a pipeline run.
+ * <p>
+ * The allocated bytes are counted on the thread running the stage, allocations of threads started by the stage are not
+ * included; the value is -1 if the JVM does not support the thread allocation counter. The heap in use is sampled
+ * before and after the stage and includes garbage not yet collected.
+ *
+ * @param pipeline       the simple class name of the pipeline.
+ * @param stage          the kind of the stage.
+ * @param component      the simple class name of the source, filter or sink.
+ * @param durationNanos  the elapsed time of the stage in nanoseconds.
+ * @param allocatedBytes the bytes allocated by the thread running the stage.
+ * @param heapUsedBefore the heap in use before the stage in bytes.
+ * @param heapUsedAfter  the heap in use after the stage in bytes.
+ * @author munterfi
+ */
+public record StageMetrics(String pipeline, Stage stage, String component, long durationNanos, long allocatedBytes,
+                           long heapUsedBefore, long heapUsedAfter) {
+
+    public enum Stage {
+        SOURCE, FILTER, SINK
+    }
+}
@@ -24,10 +24,8 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -36,6 +34,13 @@ import java.util.Set;
  * All transit vehicle that are travelling on a transit line of interest, are attached with a tracker, which processes
  * vehicle and passenger-related events in a simulation run. It maintains a list of entries that capture information
  * about the passenger counts, access counts and egress counts at every departure at a transit stop facility.
+ * <p>
+ * Seated passengers are accumulated per departure in a difference array over the stop positions, which is resolved
+ * into the seat counts of the entries when the departure is completed. Call {@link #finish()} after the event stream
+ * to resolve departures that were not completed.
+ * <p>
+ * The state of vehicles and persons is held in arrays indexed by {@link Id#index()}, which avoids hash lookups and
+ * allocations per event.
  *
  * @author munterfi
  */
@@ -43,9 +48,10 @@ import java.util.Set;
 public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDepartsAtFacilityEventHandler, VehicleArrivesAtFacilityEventHandler, PersonEntersVehicleEventHandler, PersonLeavesVehicleEventHandler {
     @Getter
     private final List<Entry> entries = new ArrayList<>(1000);
-    private final Map<Id<Vehicle>, TransitVehicleTracker> trackers = new HashMap<>();
-    private final Map<Id<Person>, Access> passengerAccessTimes = new HashMap<>();
-    private final Set<Id<Vehicle>> activeTransitVehicles = new HashSet<>();
+    private TransitVehicleTracker[] trackers; // active tracker per vehicle index, null if inactive
+    private double[] accessTimes; // access time per person index
+    private int[] accessStopIndices; // access stop position per person index
+    private int activeTransitVehicles;
     private final Scenario scenario;
     private final Set<Id<TransitLine>> transitLineIds;
     private final int seatDurationThreshold;
@@ -62,6 +68,22 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
         this.transitLineIds = transitLineIds;
         this.seatDurationThreshold = seatDurationThreshold;
         this.sampleSizeFactor = sampleSizeFactor;
+        this.trackers = new TransitVehicleTracker[Id.getNumberOfIds(Vehicle.class)];
+        this.accessTimes = new double[Id.getNumberOfIds(Person.class)];
+        this.accessStopIndices = new int[accessTimes.length];
+    }
+
+    private TransitVehicleTracker getTracker(Id<Vehicle> vehicleId) {
+        int index = vehicleId.index();
+        return index < trackers.length ? trackers[index] : null;
+    }
+
+    private void ensurePersonCapacity(int index) {
+        if (index >= accessTimes.length) {
+            int capacity = Math.max(index + 1, Math.max(16, accessTimes.length * 2));
+            accessTimes = Arrays.copyOf(accessTimes, capacity);
+            accessStopIndices = Arrays.copyOf(accessStopIndices, capacity);
+        }
     }
 
     @Override
@@ -72,63 +94,89 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
         if (vehicle != null && transitLineIds.contains(transitLineId)) {
             var transitLine = scenario.getTransitSchedule().getTransitLines().get(transitLineId);
             var transitRoute = transitLine.getRoutes().get(event.getTransitRouteId());
-            var tracker = this.trackers.computeIfAbsent(vehicleId, k -> new TransitVehicleTracker(vehicle));
+            var tracker = new TransitVehicleTracker(vehicle);
             var departure = transitRoute.getDepartures().get(event.getDepartureId());
             tracker.registerRouteDeparture(event.getDriverId(), transitLine, transitRoute, departure);
-            log.debug("Registered new departure of transit vehicle '{}' at {} (totalActive: {}, trackers: {})",
-                    vehicle.getId(), Time.writeTime(event.getTime(), Time.TIMEFORMAT_HHMMSS),
-                    activeTransitVehicles.size(), trackers.size());
+            log.debug("Registered new departure of transit vehicle '{}' at {} (totalActive: {})", vehicle.getId(),
+                    Time.writeTime(event.getTime(), Time.TIMEFORMAT_HHMMSS), activeTransitVehicles);
         }
     }
 
     @Override
     public void handleEvent(VehicleArrivesAtFacilityEvent event) {
         var vehicleId = event.getVehicleId();
-        if (activeTransitVehicles.contains(vehicleId)) {
+        var tracker = getTracker(vehicleId);
+        if (tracker != null) {
             var transitStopFacility = scenario.getTransitSchedule().getFacilities().get(event.getFacilityId());
-            trackers.get(vehicleId).registerStopArrival(transitStopFacility);
+            tracker.registerStopArrival(transitStopFacility);
         }
     }
 
     @Override
     public void handleEvent(VehicleDepartsAtFacilityEvent event) {
         var vehicleId = event.getVehicleId();
-        if (activeTransitVehicles.contains(vehicleId)) {
-            trackers.get(vehicleId).registerStopDeparture();
+        var tracker = getTracker(vehicleId);
+        if (tracker != null) {
+            tracker.registerStopDeparture();
         }
     }
 
     @Override
     public void handleEvent(PersonEntersVehicleEvent event) {
         var vehicleId = event.getVehicleId();
-        if (activeTransitVehicles.contains(vehicleId)) {
-            trackers.get(vehicleId).registerAccess(event.getPersonId(), event.getTime());
+        var tracker = getTracker(vehicleId);
+        if (tracker != null) {
+            tracker.registerAccess(event.getPersonId(), event.getTime());
         }
     }
 
     @Override
     public void handleEvent(PersonLeavesVehicleEvent event) {
         var vehicleId = event.getVehicleId();
-        if (activeTransitVehicles.contains(vehicleId)) {
-            trackers.get(vehicleId).registerEgress(event.getPersonId(), event.getTime());
+        var tracker = getTracker(vehicleId);
+        if (tracker != null) {
+            tracker.registerEgress(event.getPersonId(), event.getTime());
+        }
+    }
+
+    /**
+     * Resolves the seat counts of all departures which did not reach their terminal stop until the end of the event
+     * stream.
+     */
+    public void finish() {
+        if (activeTransitVehicles > 0) {
+            log.info("Resolving seats of {} departures not completed at the end of the simulation",
+                    activeTransitVehicles);
         }
+        for (int i = 0; i < trackers.length; i++) {
+            if (trackers[i] != null) {
+                trackers[i].resolveSeats();
+                trackers[i] = null;
+            }
+        }
+        activeTransitVehicles = 0;
     }
 
     private void notifyTransitVehicleDeactivation(Id<Vehicle> vehicleId) {
-        activeTransitVehicles.remove(vehicleId);
+        trackers[vehicleId.index()] = null;
+        activeTransitVehicles--;
     }
 
-    private void notifyTransitVehicleActivation(Id<Vehicle> vehicleId) {
-        activeTransitVehicles.add(vehicleId);
+    private void notifyTransitVehicleActivation(Id<Vehicle> vehicleId, TransitVehicleTracker tracker) {
+        int index = vehicleId.index();
+        if (index >= trackers.length) {
+            trackers = Arrays.copyOf(trackers, Math.max(index + 1, Math.max(16, trackers.length * 2)));
+        }
+        if (trackers[index] == null) {
+            activeTransitVehicles++;
+        }
+        trackers[index] = tracker;
     }
 
     private void notifyNewRecordEntry(Entry entry) {
         entries.add(entry);
     }
 
-    record Access(double time, int index) {
-    }
-
     /**
      * An entry in the passenger event analysis.
      * <p>
@@ -141,10 +189,11 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
         private final Departure departure;
         private final TransitRouteStop fromStop;
         private final TransitRouteStop toStop;
+        private final int stopIndex;
         private final int egress;
         private final int access;
         private final int count;
-        private int seats;
+        int seats; // resolved when the departure completes
 
         /**
          * @param transitLine  The transit line associated with the tracker.
@@ -152,16 +201,18 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
          * @param departure    The departure time from the previous stop.
          * @param fromStop     The current transit route stop.
          * @param toStop       The next transit route stop.
+         * @param stopIndex    The position of the current stop on the transit route.
          * @param egress       The number of egresses at the current stop.
          * @param access       The number of accesses at the current stop.
          * @param count        The count of passengers between the current and the next stop.
          */
-        public Entry(TransitLine transitLine, TransitRoute transitRoute, Departure departure, TransitRouteStop fromStop, TransitRouteStop toStop, int egress, int access, int count) {
+        public Entry(TransitLine transitLine, TransitRoute transitRoute, Departure departure, TransitRouteStop fromStop, TransitRouteStop toStop, int stopIndex, int egress, int access, int count) {
             this.transitLine = transitLine;
             this.transitRoute = transitRoute;
             this.departure = departure;
             this.fromStop = fromStop;
             this.toStop = toStop;
+            this.stopIndex = stopIndex;
             this.egress = egress;
             this.access = access;
             this.count = count;
@@ -171,11 +222,12 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
     }
 
     /**
-     * Track transit vehicle through the event stream.
+     * Track transit vehicle through the event stream, the tracker only holds the state of the current departure.
      */
     class TransitVehicleTracker {
         private final Vehicle vehicle;
-        private final List<Entry> entries = new ArrayList<>();
+        private final List<Entry> departureEntries = new ArrayList<>();
+        private int[] seatChanges;
         private Id<Person> currentDriverId;
         private TransitLine currentLine;
         private TransitRoute currentRoute;
@@ -201,7 +253,9 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
             currentDeparture = departure;
             stopIdx = -1; // first arrival is at first stop of route, therefore start at -1
             atTerminalStop = false;
-            notifyTransitVehicleActivation(vehicle.getId());
+            departureEntries.clear();
+            seatChanges = new int[transitRoute.getStops().size() + 1];
+            notifyTransitVehicleActivation(vehicle.getId(), this);
         }
 
         void registerStopArrival(TransitStopFacility transitStopFacility) {
@@ -221,9 +275,9 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
             int currentEgress = (int) Math.round(egress * sampleSizeFactor);
             int currentAccess = (int) Math.round(access * sampleSizeFactor);
             int currentCount = (int) Math.round(passenger * sampleSizeFactor);
-            var entry = new Entry(currentLine, currentRoute, currentDeparture, currentStop, nextStop, currentEgress,
-                    currentAccess, currentCount);
-            entries.add(entry);
+            var entry = new Entry(currentLine, currentRoute, currentDeparture, currentStop, nextStop, stopIdx,
+                    currentEgress, currentAccess, currentCount);
+            departureEntries.add(entry);
             notifyNewRecordEntry(entry);
         }
 
@@ -231,26 +285,45 @@ public class EventAnalysis implements TransitDriverStartsEventHandler, VehicleDe
             if (!currentDriverId.equals(personId)) {
                 access++;
                 passenger++;
-                passengerAccessTimes.put(personId, new Access(time, entries.size()));
+                int index = personId.index();
+                ensurePersonCapacity(index);
+                accessTimes[index] = time;
+                accessStopIndices[index] = Math.max(stopIdx, 0);
             }
         }
 
         void registerEgress(Id<Person> personId, double time) {
             if (currentDriverId.equals(personId)) {
                 assert atTerminalStop : "Cannot complete route without being at terminal stop.";
+                resolveSeats();
                 notifyTransitVehicleDeactivation(vehicle.getId());
             } else {
                 egress++;
                 passenger--;
-                Access access = passengerAccessTimes.remove(personId);
-                if (time - access.time > seatDurationThreshold) {
-                    for (int i = access.index; i < entries.size(); i++) {
-                        entries.get(i).seats += (int) (1 * sampleSizeFactor);
-                    }
+                int index = personId.index();
+                if (time - accessTimes[index] > seatDurationThreshold) {
+                    // seated on the legs from the access stop up to the stop before the egress stop
+                    seatChanges[accessStopIndices[index]] += (int) (1 * sampleSizeFactor);
+                    seatChanges[stopIdx] -= (int) (1 * sampleSizeFactor);
                 }
 
             }
         }
+
+        /**
+         * Accumulates the seat changes along the stops into the entries of the current departure.
+         */
+        void resolveSeats() {
+            int seats = 0;
+            int position = 0;
+            for (Entry entry : departureEntries) {
+                while (position <= entry.stopIndex) {
+                    seats += seatChanges[position++];
+                }
+                entry.seats = seats;
+            }
+            departureEntries.clear();
+        }
     }
 }
 
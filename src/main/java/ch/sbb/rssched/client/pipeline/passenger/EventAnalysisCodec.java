@@ -0,0 +1,63 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import ch.sbb.rssched.client.pipeline.core.PipeCodec;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkpoints the entries of the event analysis.
+ * <p>
+ * The entries reference the transit lines, routes, departures and stops of the scenario by their IDs and stop
+ * positions, which are resolved against the scenario of the pipe on restore.
+ *
+ * @author munterfi
+ */
+class EventAnalysisCodec implements PipeCodec<PassengerPipe> {
+
+    @Override
+    public void write(DataOutputStream out, PassengerPipe pipe) throws IOException {
+        out.writeInt(pipe.entries().size());
+        for (EventAnalysis.Entry entry : pipe.entries()) {
+            out.writeUTF(entry.getTransitLine().getId().toString());
+            out.writeUTF(entry.getTransitRoute().getId().toString());
+            out.writeUTF(entry.getDeparture().getId().toString());
+            out.writeInt(entry.getStopIndex());
+            out.writeBoolean(entry.getToStop() != null);
+            out.writeInt(entry.getEgress());
+            out.writeInt(entry.getAccess());
+            out.writeInt(entry.getCount());
+            out.writeInt(entry.getSeats());
+        }
+    }
+
+    @Override
+    public void read(DataInputStream in, PassengerPipe pipe) throws IOException {
+        Map<Id<TransitLine>, TransitLine> transitLines = pipe.scenario().getTransitSchedule().getTransitLines();
+        int entryCount = in.readInt();
+        List<EventAnalysis.Entry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            TransitLine transitLine = transitLines.get(Id.create(in.readUTF(), TransitLine.class));
+            TransitRoute transitRoute = transitLine.getRoutes().get(Id.create(in.readUTF(), TransitRoute.class));
+            Departure departure = transitRoute.getDepartures().get(Id.create(in.readUTF(), Departure.class));
+            List<TransitRouteStop> stops = transitRoute.getStops();
+            int stopIndex = in.readInt();
+            TransitRouteStop toStop = in.readBoolean() ? stops.get(stopIndex + 1) : null;
+            var entry = new EventAnalysis.Entry(transitLine, transitRoute, departure, stops.get(stopIndex), toStop,
+                    stopIndex, in.readInt(), in.readInt(), in.readInt());
+            entry.seats = in.readInt();
+            entries.add(entry);
+        }
+        // only complete checkpoints reach the pipe
+        pipe.entries().addAll(entries);
+    }
+}
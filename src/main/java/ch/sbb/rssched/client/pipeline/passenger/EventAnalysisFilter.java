@@ -2,10 +2,14 @@ package ch.sbb.rssched.client.pipeline.passenger;
 
 import ch.sbb.rssched.client.pipeline.core.Filter;
 import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+
+import java.util.Set;
 
 /**
  * Applies the EventAnalysis on the PassengerPipe data container.
@@ -17,17 +21,36 @@ class EventAnalysisFilter implements Filter<PassengerPipe> {
 
     private final double sampleSizeFactor;
     private final int seatDurationThreshold;
+    private final boolean pipelined;
+    private final int queueDepth;
+    private final boolean transitOnly;
 
-    public EventAnalysisFilter(double sampleSize, int seatDurationThreshold) {
+    public EventAnalysisFilter(double sampleSize, int seatDurationThreshold, boolean pipelined, int queueDepth, boolean transitOnly) {
         this.sampleSizeFactor = 1 / sampleSize;
         this.seatDurationThreshold = seatDurationThreshold;
+        this.pipelined = pipelined;
+        this.queueDepth = queueDepth;
+        this.transitOnly = transitOnly;
     }
 
-    private static void runEventAnalysis(String eventFile, EventHandler eventAnalysis) {
+    private void runEventAnalysis(String eventFile, Set<Id<TransitLine>> transitLineIds, EventHandler eventAnalysis) {
         EventsManager events = EventsUtils.createEventsManager();
         events.addHandler(eventAnalysis);
         events.initProcessing();
-        new MatsimEventsReader(events).readFile(eventFile);
+        if (pipelined) {
+            log.info("Reading events pipelined with queue depth {}", queueDepth);
+            if (transitOnly) {
+                new PipelinedEventsReader(events, queueDepth,
+                        (stream, parserEvents) -> new TransitEventsReader(parserEvents, transitLineIds).readStream(
+                                stream)).readFile(eventFile);
+            } else {
+                new PipelinedEventsReader(events, queueDepth).readFile(eventFile);
+            }
+        } else if (transitOnly) {
+            new TransitEventsReader(events, transitLineIds).readFile(eventFile);
+        } else {
+            new MatsimEventsReader(events).readFile(eventFile);
+        }
         events.finishProcessing();
     }
 
@@ -37,7 +60,8 @@ class EventAnalysisFilter implements Filter<PassengerPipe> {
                 sampleSizeFactor);
         var passengerEventAnalysis = new EventAnalysis(pipe.scenario(), pipe.transitLineIds(), sampleSizeFactor,
                 seatDurationThreshold);
-        runEventAnalysis(pipe.eventsFile(), passengerEventAnalysis);
+        runEventAnalysis(pipe.eventsFile(), pipe.transitLineIds(), passengerEventAnalysis);
+        passengerEventAnalysis.finish();
         pipe.entries().addAll(passengerEventAnalysis.getEntries());
     }
 }
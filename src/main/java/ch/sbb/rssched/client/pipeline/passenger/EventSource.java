@@ -1,35 +1,32 @@
 package ch.sbb.rssched.client.pipeline.passenger;
 
 import ch.sbb.rssched.client.pipeline.core.DataSource;
-import ch.sbb.rssched.client.pipeline.utils.io.ScenarioLoader;
+import ch.sbb.rssched.client.pipeline.utils.io.SharedScenario;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 
 /**
- * Loads a scenario with events file for further processing in a pipeline.
+ * Provides the shared scenario with the selected transit lines and the events file for further processing in a
+ * pipeline.
  *
  * @author munterfi
  */
 class EventSource implements DataSource<PassengerPipe> {
-    private final String runId;
-    private final String inputFolder;
+    private final SharedScenario scenario;
 
     /**
-     * Constructs a ScenarioLoader object with the specified run ID and input folder.
+     * Constructs an EventSource object with the specified shared scenario.
      *
-     * @param runId       the ID of the simulation run
-     * @param inputFolder the folder containing the output files of the run
+     * @param scenario the scenario shared with other pipelines
      */
-    public EventSource(String runId, String inputFolder) {
-        this.runId = runId;
-        this.inputFolder = inputFolder;
+    public EventSource(SharedScenario scenario) {
+        this.scenario = scenario;
     }
 
     @Override
     public PassengerPipe fetch() {
-        var scenarioLoader = new ScenarioLoader(runId, inputFolder);
-        return new PassengerPipe(runId, scenarioLoader.getEventsFile(), scenarioLoader.load(), new HashSet<>(),
-                new ArrayList<>());
+        return new PassengerPipe(scenario.getRunId(), scenario.getEventsFile(), scenario.getScenario(),
+                new HashSet<>(scenario.getSelection().getLineIds()), new ArrayList<>());
     }
 }
@@ -80,6 +80,11 @@ class PassengerCSVWriter implements ResultSink<PassengerPipe> {
         }
     }
 
+    @Override
+    public boolean isIndependent() {
+        return true;
+    }
+
     @Override
     public void process(PassengerPipe pipe) {
         String passengerFilePath = new OutputDirectoryManager(outputDirectory, pipe.runId(), instanceId).buildFilePath(
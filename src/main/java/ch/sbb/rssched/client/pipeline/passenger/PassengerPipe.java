@@ -13,7 +13,7 @@ import java.util.Set;
  *
  * @param runId          The identifier of the run associated with the events.
  * @param eventsFile     The path of the events file.
- * @param scenario       The scenario representing the simulation run.
+ * @param scenario       The scenario representing the simulation run, shared and read-only.
  * @param transitLineIds The set of transit line IDs to consider in the analysis.
  * @param entries        An empty list for storing the results of the event analysis.
  * @author munterfi
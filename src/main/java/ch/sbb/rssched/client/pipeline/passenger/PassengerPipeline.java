@@ -1,7 +1,7 @@
 package ch.sbb.rssched.client.pipeline.passenger;
 
-import ch.sbb.rssched.client.config.selection.FilterStrategy;
 import ch.sbb.rssched.client.pipeline.core.Pipeline;
+import ch.sbb.rssched.client.pipeline.utils.io.SharedScenario;
 
 /**
  * Extract passenger related information from a scenario.
@@ -14,17 +14,18 @@ public class PassengerPipeline extends Pipeline<PassengerPipe> {
      * Constructs a RepPipeline with the specified parameters.
      *
      * @param instanceId      the ID of the RSSched instance (=request) to solve
-     * @param runId           the ID of the scenario run
-     * @param inputDirectory  the input directory containing the scenario data (output files of the simulation)
+     * @param scenario        the scenario with the selected transit lines, shared with other pipelines
      * @param outputDirectory the output directory to export the processed scenario files
-     * @param filterStrategy  the filter strategy for filtering transit lines
+     * @param pipelined       read the events file in stages on separate threads
+     * @param queueDepth      the number of chunks and batches buffered between the stages of the pipelined reading
+     * @param transitOnly     parse only the events of the selected transit lines
      */
-    public PassengerPipeline(String instanceId, String runId, String inputDirectory, String outputDirectory, FilterStrategy filterStrategy, double sampleSize, int seatDurationThreshold) {
+    public PassengerPipeline(String instanceId, SharedScenario scenario, String outputDirectory, double sampleSize, int seatDurationThreshold, boolean pipelined, int queueDepth, boolean transitOnly) {
         // set source
-        super(new EventSource(runId, inputDirectory));
+        super(new EventSource(scenario));
         // add filters
-        addFilter(new TransitLineFilter(filterStrategy));
-        addFilter(new EventAnalysisFilter(sampleSize, seatDurationThreshold));
+        addFilter(new EventAnalysisFilter(sampleSize, seatDurationThreshold, pipelined, queueDepth, transitOnly),
+                new EventAnalysisCodec());
         // add sink
         addSink(new PassengerCSVWriter(outputDirectory, instanceId));
     }
@@ -0,0 +1,281 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControllerConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipelined events reader
+ * <p>
+ * Reads an events file in three stages running on separate threads: decompression of the file into byte chunks, XML
+ * parsing of the chunks into event batches and dispatching the batches to the handlers of the events manager on the
+ * calling thread. The stages are linked by bounded queues, a full queue blocks the upstream stage. The parsing stage
+ * uses the {@link MatsimEventsReader} unless another parser is set.
+ *
+ * @author munterfi
+ */
+@Log4j2
+class PipelinedEventsReader {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int BATCH_SIZE = 10_000;
+    private static final long PROGRESS_INTERVAL = 10_000_000;
+    private static final byte[] END_OF_CHUNKS = new byte[0];
+    private static final List<Event> END_OF_BATCHES = List.of();
+
+    private final EventsManager events;
+    private final int queueDepth;
+    private final StreamParser parser;
+
+    /**
+     * @param events     the events manager to dispatch the events to.
+     * @param queueDepth the number of chunks and batches buffered between the stages.
+     */
+    PipelinedEventsReader(EventsManager events, int queueDepth) {
+        this(events, queueDepth, (stream, parserEvents) -> new MatsimEventsReader(parserEvents).readStream(stream,
+                ControllerConfigGroup.EventsFileFormat.xml));
+    }
+
+    /**
+     * @param events     the events manager to dispatch the events to.
+     * @param queueDepth the number of chunks and batches buffered between the stages.
+     * @param parser     the parser of the decompressed events stream.
+     */
+    PipelinedEventsReader(EventsManager events, int queueDepth, StreamParser parser) {
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("Queue depth must be positive: " + queueDepth);
+        }
+        this.events = events;
+        this.queueDepth = queueDepth;
+        this.parser = parser;
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T element) {
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading events", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading events", e);
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading events", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to read events", e.getCause());
+        }
+    }
+
+    private static double rate(double amount, long startNanos) {
+        return amount / Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+    }
+
+    /**
+     * Reads the events file and dispatches all events to the events manager.
+     *
+     * @param eventsFile the path to the (compressed) events file.
+     */
+    void readFile(String eventsFile) {
+        BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(queueDepth);
+        BlockingQueue<List<Event>> batches = new ArrayBlockingQueue<>(queueDepth);
+        AtomicReference<RuntimeException> decompressionFailure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> decompression = executor.submit(() -> decompress(eventsFile, chunks, decompressionFailure));
+            Future<?> parsing = executor.submit(() -> parse(chunks, batches));
+            dispatch(batches);
+            // parsing first, a failed parser leaves the decompression blocked on a full queue
+            try {
+                await(parsing);
+            } catch (RuntimeException e) {
+                // a failed decompression ends the stream early and fails the parser, report the decompression failure
+                RuntimeException cause = decompressionFailure.get();
+                if (cause != null) {
+                    cause.addSuppressed(e);
+                    throw cause;
+                }
+                throw e;
+            }
+            await(decompression);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompresses the events file into chunks. A failure is recorded before the end of the chunks is posted, so it is
+     * known once the parser fails on the truncated stream.
+     */
+    private void decompress(String eventsFile, BlockingQueue<byte[]> chunks, AtomicReference<RuntimeException> failure) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        try (InputStream in = IOUtils.getInputStream(IOUtils.resolveFileOrResource(eventsFile))) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int length;
+            while ((length = in.readNBytes(chunk, 0, CHUNK_SIZE)) > 0) {
+                put(chunks, length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length));
+                bytes += length;
+                chunk = new byte[CHUNK_SIZE];
+            }
+        } catch (IOException e) {
+            failure.set(new UncheckedIOException(e));
+            throw failure.get();
+        } catch (RuntimeException e) {
+            failure.set(e);
+            throw e;
+        } finally {
+            put(chunks, END_OF_CHUNKS);
+        }
+        log.info("Decompressed {} MB of events at {} MB/s", String.format("%.0f", bytes / 1e6),
+                String.format("%.1f", rate(bytes / 1e6, start)));
+    }
+
+    private void parse(BlockingQueue<byte[]> chunks, BlockingQueue<List<Event>> batches) {
+        long start = System.nanoTime();
+        EventsManager parserEvents = EventsUtils.createEventsManager();
+        BatchCollector collector = new BatchCollector(batches);
+        parserEvents.addHandler(collector);
+        try {
+            parserEvents.initProcessing();
+            parser.parse(new ChunkInputStream(chunks), parserEvents);
+            parserEvents.finishProcessing();
+            collector.flush();
+        } finally {
+            put(batches, END_OF_BATCHES);
+        }
+        log.info("Parsed {} events at {} events/s", collector.count,
+                String.format("%.0f", rate(collector.count, start)));
+    }
+
+    private void dispatch(BlockingQueue<List<Event>> batches) {
+        long start = System.nanoTime();
+        long count = 0;
+        List<Event> batch;
+        while ((batch = take(batches)) != END_OF_BATCHES) {
+            for (Event event : batch) {
+                events.processEvent(event);
+            }
+            long previous = count;
+            count += batch.size();
+            if (count / PROGRESS_INTERVAL > previous / PROGRESS_INTERVAL) {
+                log.info("Handled {} events at {} events/s (batch queue: {}/{})", count,
+                        String.format("%.0f", rate(count, start)), batches.size(), queueDepth);
+            }
+        }
+        log.info("Handled {} events at {} events/s", count, String.format("%.0f", rate(count, start)));
+    }
+
+    /**
+     * Parser of the decompressed events stream, passing the parsed events to the events manager.
+     */
+    @FunctionalInterface
+    interface StreamParser {
+        void parse(InputStream stream, EventsManager events);
+    }
+
+    /**
+     * Collects the parsed events into batches for the dispatching stage.
+     */
+    private static final class BatchCollector implements BasicEventHandler {
+        private final BlockingQueue<List<Event>> batches;
+        private List<Event> batch = new ArrayList<>(BATCH_SIZE);
+        private long count;
+
+        private BatchCollector(BlockingQueue<List<Event>> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        public void handleEvent(Event event) {
+            batch.add(event);
+            count++;
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!batch.isEmpty()) {
+                put(batches, batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Input stream over the decompressed byte chunks of the queue.
+     */
+    private static final class ChunkInputStream extends InputStream {
+        private final BlockingQueue<byte[]> chunks;
+        private byte[] chunk = new byte[0];
+        private int position;
+
+        private ChunkInputStream(BlockingQueue<byte[]> chunks) {
+            this.chunks = chunks;
+        }
+
+        private boolean nextChunk() {
+            while (position == chunk.length) {
+                if (chunk == END_OF_CHUNKS) {
+                    return false;
+                }
+                chunk = take(chunks);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() {
+            return nextChunk() ? chunk[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int length = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, length);
+            position += length;
+            return length;
+        }
+    }
+}
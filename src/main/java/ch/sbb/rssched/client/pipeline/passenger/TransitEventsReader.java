@@ -0,0 +1,178 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Transit events reader
+ * <p>
+ * Streaming parser for events files, which only creates the events needed by the {@link EventAnalysis}: transit
+ * driver starts on the selected transit lines, and vehicle arrivals, vehicle departures, person entries and person
+ * exits of the vehicles started by these drivers. The type and vehicle attributes of each event element are inspected
+ * first, all other events are skipped before any event object or id is created.
+ *
+ * @author munterfi
+ */
+@Log4j2
+class TransitEventsReader {
+    private static final String EVENT = "event";
+    private static final String TIME = "time";
+    private static final String TYPE = "type";
+    private static final String VEHICLE = "vehicle";
+    private static final String PERSON = "person";
+    private static final String FACILITY = "facility";
+    private static final String DELAY = "delay";
+    private static final String DRIVER_ID = "driverId";
+    private static final String VEHICLE_ID = "vehicleId";
+    private static final String TRANSIT_LINE_ID = "transitLineId";
+    private static final String TRANSIT_ROUTE_ID = "transitRouteId";
+    private static final String DEPARTURE_ID = "departureId";
+
+    private final EventsManager events;
+    private final Set<String> transitLineIds = new HashSet<>();
+    private final Set<String> transitVehicleIds = new HashSet<>();
+    private long elementCount;
+    private long eventCount;
+
+    /**
+     * @param events         the events manager to pass the transit events to.
+     * @param transitLineIds the selected transit lines.
+     */
+    TransitEventsReader(EventsManager events, Set<Id<TransitLine>> transitLineIds) {
+        this.events = events;
+        transitLineIds.forEach(id -> this.transitLineIds.add(id.toString()));
+    }
+
+    private static double parseDouble(XMLStreamReader reader, String attribute) {
+        String value = reader.getAttributeValue(null, attribute);
+        return value == null ? 0 : Double.parseDouble(value);
+    }
+
+    /**
+     * Reads the transit events of a (compressed) events file.
+     *
+     * @param eventsFile the path to the events file.
+     */
+    void readFile(String eventsFile) {
+        try (InputStream in = IOUtils.getInputStream(IOUtils.resolveFileOrResource(eventsFile))) {
+            readStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the transit events of an uncompressed events stream.
+     *
+     * @param in the events stream, not closed by the reader.
+     */
+    void readStream(InputStream in) {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && EVENT.equals(reader.getLocalName())) {
+                        elementCount++;
+                        handleElement(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to parse events stream", e);
+        }
+        log.info("Read {} transit events of {} events", eventCount, elementCount);
+    }
+
+    private void handleElement(XMLStreamReader reader) {
+        String type = reader.getAttributeValue(null, TYPE);
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case TransitDriverStartsEvent.EVENT_TYPE -> {
+                String transitLineId = reader.getAttributeValue(null, TRANSIT_LINE_ID);
+                if (!transitLineIds.contains(transitLineId)) {
+                    return;
+                }
+                String vehicleId = reader.getAttributeValue(null, VEHICLE_ID);
+                transitVehicleIds.add(vehicleId);
+                process(new TransitDriverStartsEvent(parseDouble(reader, TIME),
+                        Id.create(reader.getAttributeValue(null, DRIVER_ID), Person.class),
+                        Id.create(vehicleId, Vehicle.class), Id.create(transitLineId, TransitLine.class),
+                        Id.create(reader.getAttributeValue(null, TRANSIT_ROUTE_ID), TransitRoute.class),
+                        Id.create(reader.getAttributeValue(null, DEPARTURE_ID), Departure.class)));
+            }
+            case VehicleArrivesAtFacilityEvent.EVENT_TYPE -> {
+                String vehicleId = reader.getAttributeValue(null, VEHICLE);
+                if (transitVehicleIds.contains(vehicleId)) {
+                    process(new VehicleArrivesAtFacilityEvent(parseDouble(reader, TIME),
+                            Id.create(vehicleId, Vehicle.class),
+                            Id.create(reader.getAttributeValue(null, FACILITY), TransitStopFacility.class),
+                            parseDouble(reader, DELAY)));
+                }
+            }
+            case VehicleDepartsAtFacilityEvent.EVENT_TYPE -> {
+                String vehicleId = reader.getAttributeValue(null, VEHICLE);
+                if (transitVehicleIds.contains(vehicleId)) {
+                    process(new VehicleDepartsAtFacilityEvent(parseDouble(reader, TIME),
+                            Id.create(vehicleId, Vehicle.class),
+                            Id.create(reader.getAttributeValue(null, FACILITY), TransitStopFacility.class),
+                            parseDouble(reader, DELAY)));
+                }
+            }
+            case PersonEntersVehicleEvent.EVENT_TYPE -> {
+                String vehicleId = reader.getAttributeValue(null, VEHICLE);
+                if (transitVehicleIds.contains(vehicleId)) {
+                    process(new PersonEntersVehicleEvent(parseDouble(reader, TIME),
+                            Id.create(reader.getAttributeValue(null, PERSON), Person.class),
+                            Id.create(vehicleId, Vehicle.class)));
+                }
+            }
+            case PersonLeavesVehicleEvent.EVENT_TYPE -> {
+                String vehicleId = reader.getAttributeValue(null, VEHICLE);
+                if (transitVehicleIds.contains(vehicleId)) {
+                    process(new PersonLeavesVehicleEvent(parseDouble(reader, TIME),
+                            Id.create(reader.getAttributeValue(null, PERSON), Person.class),
+                            Id.create(vehicleId, Vehicle.class)));
+                }
+            }
+            default -> {
+                // not relevant for the event analysis
+            }
+        }
+    }
+
+    private void process(Event event) {
+        eventCount++;
+        events.processEvent(event);
+    }
+}
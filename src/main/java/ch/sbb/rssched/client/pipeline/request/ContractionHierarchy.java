@@ -0,0 +1,298 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Contraction hierarchy
+ * <p>
+ * Preprocesses the train network graph by contracting the nodes one by one in order of their importance. Whenever a
+ * contracted node lies on the only least cost path between two of its neighbours, a shortcut with the summed cost and
+ * length is inserted. The result is stored as two graphs: the upward graph holds all arcs leading to a node of higher
+ * rank, the downward graph holds the reversed arcs which lead to a node of higher rank when searched backwards.
+ * <p>
+ * The hierarchy is immutable after construction and can be shared between threads.
+ *
+ * @see ContractionHierarchyRoutingBackend
+ */
+@Log4j2
+final class ContractionHierarchy {
+    private final int[] ranks;
+    private final ArcGraph upward;
+    private final ArcGraph downward;
+
+    ContractionHierarchy(TrainNetworkGraph graph) {
+        var startTime = Instant.now();
+        Contractor contractor = new Contractor(graph);
+        contractor.contractAll();
+        this.ranks = contractor.ranks;
+        // split the arcs by the rank of their end nodes
+        List<Arc> upwardArcs = new ArrayList<>();
+        List<Arc> downwardArcs = new ArrayList<>();
+        for (List<Arc> arcs : contractor.outArcs) {
+            for (Arc arc : arcs) {
+                if (ranks[arc.from] < ranks[arc.to]) {
+                    upwardArcs.add(arc);
+                } else {
+                    downwardArcs.add(new Arc(arc.to, arc.from, arc.cost, arc.length));
+                }
+            }
+        }
+        this.upward = new ArcGraph(graph.getNodeCount(), upwardArcs);
+        this.downward = new ArcGraph(graph.getNodeCount(), downwardArcs);
+        log.info("Built contraction hierarchy with {} nodes, {} links and {} shortcuts in {} ms",
+                graph.getNodeCount(), graph.getLinkCount(), contractor.shortcutCount,
+                Duration.between(startTime, Instant.now()).toMillis());
+    }
+
+    int getNodeCount() {
+        return ranks.length;
+    }
+
+    ArcGraph getUpward() {
+        return upward;
+    }
+
+    ArcGraph getDownward() {
+        return downward;
+    }
+
+    /**
+     * Immutable adjacency array graph of the arcs of one search direction.
+     */
+    static final class ArcGraph {
+        private final int[] firstArcs;
+        private final int[] toNodes;
+        private final double[] costs;
+        private final double[] lengths;
+
+        private ArcGraph(int nodeCount, List<Arc> arcs) {
+            firstArcs = new int[nodeCount + 1];
+            for (Arc arc : arcs) {
+                firstArcs[arc.from + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                firstArcs[i + 1] += firstArcs[i];
+            }
+            toNodes = new int[arcs.size()];
+            costs = new double[arcs.size()];
+            lengths = new double[arcs.size()];
+            int[] nextArcs = Arrays.copyOf(firstArcs, nodeCount);
+            for (Arc arc : arcs) {
+                int position = nextArcs[arc.from]++;
+                toNodes[position] = arc.to;
+                costs[position] = arc.cost;
+                lengths[position] = arc.length;
+            }
+        }
+
+        int getFirstArc(int node) {
+            return firstArcs[node];
+        }
+
+        int getLastArc(int node) {
+            return firstArcs[node + 1];
+        }
+
+        int getToNode(int arc) {
+            return toNodes[arc];
+        }
+
+        double getCost(int arc) {
+            return costs[arc];
+        }
+
+        double getLength(int arc) {
+            return lengths[arc];
+        }
+    }
+
+    /**
+     * Arc between two nodes, either an original link or a shortcut.
+     */
+    private static final class Arc {
+        private final int from;
+        private final int to;
+        private double cost;
+        private double length;
+
+        private Arc(int from, int to, double cost, double length) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.length = length;
+        }
+    }
+
+    private record Candidate(int node, int priority) {
+    }
+
+    /**
+     * Contracts the nodes in order of their edge difference, using lazy updates of the priorities. Witness searches
+     * are limited in the number of settled nodes; if the limit is hit, a shortcut is inserted, which is never wrong
+     * but might be superfluous.
+     */
+    private static final class Contractor {
+        private static final int WITNESS_SETTLE_LIMIT = 500;
+        private final List<List<Arc>> outArcs;
+        private final List<List<Arc>> inArcs;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final int[] ranks;
+        private final NodeHeap heap;
+        private final double[] witnessCosts;
+        private final int[] witnessReached;
+        private int iteration;
+        private int shortcutCount;
+
+        private Contractor(TrainNetworkGraph graph) {
+            final int nodeCount = graph.getNodeCount();
+            outArcs = new ArrayList<>(nodeCount);
+            inArcs = new ArrayList<>(nodeCount);
+            for (int node = 0; node < nodeCount; node++) {
+                outArcs.add(new ArrayList<>());
+                inArcs.add(new ArrayList<>());
+            }
+            contracted = new boolean[nodeCount];
+            contractedNeighbours = new int[nodeCount];
+            ranks = new int[nodeCount];
+            heap = new NodeHeap(nodeCount);
+            witnessCosts = new double[nodeCount];
+            witnessReached = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                for (int link = graph.getFirstLink(node); link < graph.getLastLink(node); link++) {
+                    int to = graph.getToNode(link);
+                    if (to != node) {
+                        addOrImprove(node, to, graph.getCost(link), graph.getLength(link));
+                    }
+                }
+            }
+        }
+
+        private void contractAll() {
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(
+                    Comparator.comparingInt(Candidate::priority).thenComparingInt(Candidate::node));
+            for (int node = 0; node < ranks.length; node++) {
+                queue.add(new Candidate(node, getPriority(node, findShortcuts(node))));
+            }
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int node = queue.poll().node();
+                List<Arc> shortcuts = findShortcuts(node);
+                int priority = getPriority(node, shortcuts);
+                if (!queue.isEmpty() && priority > queue.peek().priority()) {
+                    queue.add(new Candidate(node, priority));
+                    continue;
+                }
+                for (Arc shortcut : shortcuts) {
+                    if (addOrImprove(shortcut.from, shortcut.to, shortcut.cost, shortcut.length)) {
+                        shortcutCount++;
+                    }
+                }
+                for (Arc arc : outArcs.get(node)) {
+                    contractedNeighbours[arc.to]++;
+                }
+                for (Arc arc : inArcs.get(node)) {
+                    contractedNeighbours[arc.from]++;
+                }
+                contracted[node] = true;
+                ranks[node] = rank++;
+            }
+        }
+
+        private int getPriority(int node, List<Arc> shortcuts) {
+            int degree = 0;
+            for (Arc arc : outArcs.get(node)) {
+                degree += contracted[arc.to] ? 0 : 1;
+            }
+            for (Arc arc : inArcs.get(node)) {
+                degree += contracted[arc.from] ? 0 : 1;
+            }
+            return shortcuts.size() - degree + contractedNeighbours[node];
+        }
+
+        /**
+         * Finds the shortcuts needed to preserve all least cost paths between the uncontracted neighbours if the node
+         * was contracted.
+         */
+        private List<Arc> findShortcuts(int node) {
+            List<Arc> shortcuts = new ArrayList<>();
+            for (Arc in : inArcs.get(node)) {
+                if (contracted[in.from]) {
+                    continue;
+                }
+                double maxCost = 0;
+                for (Arc out : outArcs.get(node)) {
+                    if (!contracted[out.to] && out.to != in.from) {
+                        maxCost = Math.max(maxCost, in.cost + out.cost);
+                    }
+                }
+                searchWitnesses(in.from, node, maxCost);
+                for (Arc out : outArcs.get(node)) {
+                    if (contracted[out.to] || out.to == in.from) {
+                        continue;
+                    }
+                    double cost = in.cost + out.cost;
+                    if (witnessReached[out.to] != iteration || witnessCosts[out.to] > cost) {
+                        shortcuts.add(new Arc(in.from, out.to, cost, in.length + out.length));
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Limited Dijkstra search from the source over the uncontracted nodes, avoiding the node to contract.
+         */
+        private void searchWitnesses(int source, int avoid, double maxCost) {
+            iteration++;
+            heap.clear();
+            witnessReached[source] = iteration;
+            witnessCosts[source] = 0;
+            heap.insertOrDecrease(source, 0);
+            int settledCount = 0;
+            while (!heap.isEmpty() && heap.peekKey() <= maxCost && settledCount++ < WITNESS_SETTLE_LIMIT) {
+                int node = heap.poll();
+                for (Arc arc : outArcs.get(node)) {
+                    if (contracted[arc.to] || arc.to == avoid) {
+                        continue;
+                    }
+                    double cost = witnessCosts[node] + arc.cost;
+                    if (witnessReached[arc.to] != iteration || cost < witnessCosts[arc.to]) {
+                        witnessReached[arc.to] = iteration;
+                        witnessCosts[arc.to] = cost;
+                        heap.insertOrDecrease(arc.to, cost);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an arc or improves an existing arc between the same nodes.
+         *
+         * @return true if a new arc was added.
+         */
+        private boolean addOrImprove(int from, int to, double cost, double length) {
+            for (Arc arc : outArcs.get(from)) {
+                if (arc.to == to) {
+                    if (cost < arc.cost) {
+                        arc.cost = cost;
+                        arc.length = length;
+                    }
+                    return false;
+                }
+            }
+            Arc arc = new Arc(from, to, cost, length);
+            outArcs.get(from).add(arc);
+            inArcs.get(to).add(arc);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+/**
+ * Routing backend which answers queries on a contraction hierarchy.
+ * <p>
+ * For every query, the upward search space of the origin is explored once. Each target is then searched backwards on
+ * the downward graph until no better meeting node can be found. Every thread uses its own search state.
+ *
+ * @see ContractionHierarchy
+ */
+final class ContractionHierarchyRoutingBackend implements RoutingBackend {
+    private final ContractionHierarchy hierarchy;
+    private final ThreadLocal<Query> queries;
+
+    ContractionHierarchyRoutingBackend(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        this.queries = ThreadLocal.withInitial(Query::new);
+    }
+
+    @Override
+    public Label[] calculate(int origin, int[] targets) {
+        Query query = queries.get();
+        query.searchForward(origin);
+        Label[] labels = new Label[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            labels[i] = query.searchBackward(targets[i]);
+        }
+        return labels;
+    }
+
+    /**
+     * Search state of one thread, the arrays are marked with an iteration stamp instead of being cleared.
+     */
+    private final class Query {
+        private final SearchSpace forward = new SearchSpace();
+        private final SearchSpace backward = new SearchSpace();
+
+        private void searchForward(int origin) {
+            ContractionHierarchy.ArcGraph upward = hierarchy.getUpward();
+            forward.start(origin);
+            while (!forward.heap.isEmpty()) {
+                forward.relax(upward, forward.heap.poll());
+            }
+        }
+
+        private Label searchBackward(int target) {
+            ContractionHierarchy.ArcGraph downward = hierarchy.getDownward();
+            backward.start(target);
+            double bestCost = Double.POSITIVE_INFINITY;
+            double bestDistance = Double.NaN;
+            while (!backward.heap.isEmpty() && backward.heap.peekKey() < bestCost) {
+                int node = backward.heap.poll();
+                if (forward.isReached(node)) {
+                    double cost = forward.costs[node] + backward.costs[node];
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestDistance = forward.distances[node] + backward.distances[node];
+                    }
+                }
+                backward.relax(downward, node);
+            }
+            return bestCost < Double.POSITIVE_INFINITY ? new Label(bestCost, bestDistance) : null;
+        }
+    }
+
+    private final class SearchSpace {
+        private final NodeHeap heap = new NodeHeap(hierarchy.getNodeCount());
+        private final double[] costs = new double[hierarchy.getNodeCount()];
+        private final double[] distances = new double[hierarchy.getNodeCount()];
+        private final int[] reached = new int[hierarchy.getNodeCount()];
+        private int iteration;
+
+        private void start(int node) {
+            iteration++;
+            heap.clear();
+            reached[node] = iteration;
+            costs[node] = 0;
+            distances[node] = 0;
+            heap.insertOrDecrease(node, 0);
+        }
+
+        private boolean isReached(int node) {
+            return reached[node] == iteration;
+        }
+
+        private void relax(ContractionHierarchy.ArcGraph graph, int node) {
+            for (int arc = graph.getFirstArc(node); arc < graph.getLastArc(node); arc++) {
+                int next = graph.getToNode(arc);
+                double cost = costs[node] + graph.getCost(arc);
+                if (reached[next] != iteration || cost < costs[next]) {
+                    reached[next] = iteration;
+                    costs[next] = cost;
+                    distances[next] = distances[node] + graph.getLength(arc);
+                    heap.insertOrDecrease(next, cost);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.config.RsschedRequestConfig.Performance.RoutingAlgorithm;
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deadhead trip cache
+ * <p>
+ * Persists the path results of the deadhead trip relations on disk, keyed by the links of the origin and destination
+ * locations. One cache file is kept per fingerprint, which is a hash over the network and the routing parameters. Any
+ * change in the masked network, the speed limit, the beeline distance factor or the routing algorithm therefore leads
+ * to a new cache file,
+ * while changing costs, depots or maintenance slots reuses the existing relations.
+ * <p>
+ * Lookups and insertions are thread-safe.
+ */
+@Log4j2
+final class DeadHeadTripCache {
+    private static final String FILE_PREFIX = "deadhead_trips_";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int VERSION = 1;
+    private final Path file;
+    private final Map<Relation, TrainNetworkRouter.PathResult> results = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private DeadHeadTripCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the cache for the network and routing parameters, reading all relations of an existing cache file.
+     *
+     * @param directory             the cache directory, created if it does not exist.
+     * @param network               the network the deadhead trips are routed on.
+     * @param freeSpeedLimit        the speed limit used in the routing.
+     * @param beelineDistanceFactor the beeline distance factor used if no path is found.
+     * @param routingAlgorithm      the algorithm used to calculate the least cost paths.
+     * @return the opened cache.
+     */
+    static DeadHeadTripCache open(Path directory, Network network, double freeSpeedLimit, double beelineDistanceFactor,
+                                  RoutingAlgorithm routingAlgorithm) {
+        String fingerprint = fingerprint(network, freeSpeedLimit, beelineDistanceFactor, routingAlgorithm);
+        DeadHeadTripCache cache = new DeadHeadTripCache(directory.resolve(FILE_PREFIX + fingerprint + FILE_SUFFIX));
+        if (Files.exists(cache.file)) {
+            cache.read();
+            log.info("Read {} deadhead trip relations from cache {}", cache.results.size(), cache.file);
+        } else {
+            log.info("No deadhead trip cache found for network fingerprint {}", fingerprint);
+        }
+        return cache;
+    }
+
+    /**
+     * Hashes everything the path results depend on: link ids, end nodes and their coordinates, length and freespeed,
+     * as well as the routing parameters and algorithm, since equal-cost alternatives may differ in distance between the
+     * algorithms. The links are sorted by id, so the order of the network does not matter.
+     */
+    static String fingerprint(Network network, double freeSpeedLimit, double beelineDistanceFactor,
+                              RoutingAlgorithm routingAlgorithm) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(VERSION).append(';').append(freeSpeedLimit).append(';').append(beelineDistanceFactor).append(';')
+                .append(routingAlgorithm).append('\n');
+        digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        for (Link link : network.getLinks().values().stream().sorted(Comparator.comparing(l -> l.getId().toString()))
+                .toList()) {
+            sb.setLength(0);
+            sb.append(link.getId()).append(';').append(link.getLength()).append(';').append(link.getFreespeed());
+            appendNode(sb, link.getFromNode());
+            appendNode(sb, link.getToNode());
+            sb.append('\n');
+            digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void appendNode(StringBuilder sb, Node node) {
+        sb.append(';').append(node.getId()).append(';').append(node.getCoord().getX()).append(';')
+                .append(node.getCoord().getY());
+    }
+
+    TrainNetworkRouter.PathResult get(Id<Link> from, Id<Link> to) {
+        return results.get(new Relation(from, to));
+    }
+
+    void put(Id<Link> from, Id<Link> to, TrainNetworkRouter.PathResult result) {
+        results.put(new Relation(from, to), result);
+        modified = true;
+    }
+
+    /**
+     * Writes all relations to the cache file, if new relations were added. The file is replaced atomically, so that
+     * concurrent readers never see a partially written cache.
+     */
+    void write() {
+        if (!modified) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), FILE_PREFIX, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(VERSION);
+                out.writeInt(results.size());
+                for (var entry : results.entrySet()) {
+                    out.writeUTF(entry.getKey().from().toString());
+                    out.writeUTF(entry.getKey().to().toString());
+                    out.writeInt(entry.getValue().duration());
+                    out.writeInt(entry.getValue().distance());
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+            log.info("Wrote {} deadhead trip relations to cache {}", results.size(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                log.warn("Ignoring deadhead trip cache {} with different version", file);
+                return;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Id<Link> from = Id.createLinkId(in.readUTF());
+                Id<Link> to = Id.createLinkId(in.readUTF());
+                results.put(new Relation(from, to), new TrainNetworkRouter.PathResult(in.readInt(), in.readInt()));
+            }
+        } catch (IOException | RuntimeException e) {
+            // treat an unreadable cache as a miss, the next write replaces the file
+            log.warn("Ignoring corrupt deadhead trip cache {}: {}", file, e.toString());
+            results.clear();
+            modified = true;
+        }
+    }
+
+    private record Relation(Id<Link> from, Id<Link> to) {
+    }
+}
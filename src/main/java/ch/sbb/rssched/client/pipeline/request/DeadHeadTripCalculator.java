@@ -0,0 +1,138 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import lombok.extern.log4j.Log4j2;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Deadhead trip calculator
+ * <p>
+ * Calculates the deadhead trips between all pairs of locations. For every origin location, one shortest path tree is
+ * grown and all destinations are read from it. The origins are distributed over all available cores. The row of an
+ * origin is passed to the consumer as soon as it is calculated, one origin at a time, so only the rows in progress are
+ * held in memory and the consumer needs no synchronization.
+ * <p>
+ * If a cache is provided, only the relations missing in the cache are calculated and added to it. The router is then
+ * only created once the first relation is missing, so that a fully cached matrix skips the preprocessing of the
+ * network.
+ *
+ * @see TrainNetworkRouter#calculateFrom
+ */
+@Log4j2
+class DeadHeadTripCalculator {
+    private final Supplier<TrainNetworkRouter> routerFactory;
+    private final DeadHeadTripCache cache;
+    private final AtomicInteger cachedRelations = new AtomicInteger();
+    private final AtomicInteger routedOrigins = new AtomicInteger();
+    private volatile TrainNetworkRouter router;
+
+    DeadHeadTripCalculator(TrainNetworkRouter router) {
+        this(router, null);
+    }
+
+    DeadHeadTripCalculator(TrainNetworkRouter router, DeadHeadTripCache cache) {
+        this(() -> router, cache);
+    }
+
+    /**
+     * @param routerFactory creates the router on the first relation which has to be calculated
+     * @param cache         the cache of already calculated relations, or null
+     */
+    DeadHeadTripCalculator(Supplier<TrainNetworkRouter> routerFactory, DeadHeadTripCache cache) {
+        this.routerFactory = routerFactory;
+        this.cache = cache;
+    }
+
+    private static List<TransitStopFacility> withoutOrigin(List<TransitStopFacility> locations, int originIndex) {
+        List<TransitStopFacility> destinations = new ArrayList<>(locations);
+        destinations.remove(originIndex);
+        return destinations;
+    }
+
+    /**
+     * Calculates the deadhead trips between all pairs of distinct locations.
+     *
+     * @param locations the locations to calculate the relations between.
+     * @param consumer  the consumer receiving the path result of every relation.
+     */
+    void calculate(List<TransitStopFacility> locations, RelationConsumer consumer) {
+        var startTime = Instant.now();
+        cachedRelations.set(0);
+        routedOrigins.set(0);
+        Object consumerLock = new Object();
+        IntStream.range(0, locations.size()).parallel().forEach(i -> {
+            TrainNetworkRouter.PathResult[] row = calculateRow(locations.get(i), withoutOrigin(locations, i));
+            synchronized (consumerLock) {
+                for (int j = 0; j < locations.size(); j++) {
+                    if (i != j) {
+                        consumer.accept(locations.get(i), locations.get(j), row[j < i ? j : j - 1]);
+                    }
+                }
+            }
+        });
+        log.info("Calculated {} shortest path trees in {} ms", routedOrigins.get(),
+                Duration.between(startTime, Instant.now()).toMillis());
+        if (cache != null) {
+            log.info("Reused {} of {} relations from cache", cachedRelations.get(),
+                    locations.size() * (locations.size() - 1));
+            cache.write();
+        }
+    }
+
+    private TrainNetworkRouter.PathResult[] calculateRow(TransitStopFacility origin,
+                                                         List<TransitStopFacility> destinations) {
+        if (cache == null) {
+            routedOrigins.incrementAndGet();
+            return getRouter().calculateFrom(origin, destinations);
+        }
+        TrainNetworkRouter.PathResult[] row = new TrainNetworkRouter.PathResult[destinations.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int j = 0; j < destinations.size(); j++) {
+            row[j] = cache.get(origin.getLinkId(), destinations.get(j).getLinkId());
+            if (row[j] == null) {
+                missing.add(j);
+            }
+        }
+        cachedRelations.addAndGet(destinations.size() - missing.size());
+        if (missing.isEmpty()) {
+            return row;
+        }
+        routedOrigins.incrementAndGet();
+        TrainNetworkRouter.PathResult[] calculated = getRouter().calculateFrom(origin,
+                missing.stream().map(destinations::get).toList());
+        for (int k = 0; k < missing.size(); k++) {
+            TransitStopFacility destination = destinations.get(missing.get(k));
+            row[missing.get(k)] = calculated[k];
+            cache.put(origin.getLinkId(), destination.getLinkId(), calculated[k]);
+        }
+        return row;
+    }
+
+    private TrainNetworkRouter getRouter() {
+        TrainNetworkRouter result = router;
+        if (result == null) {
+            synchronized (this) {
+                result = router;
+                if (result == null) {
+                    router = result = routerFactory.get();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Receives the result of a single origin destination relation, from the thread that calculated its row.
+     */
+    @FunctionalInterface
+    interface RelationConsumer {
+        void accept(TransitStopFacility origin, TransitStopFacility destination, TrainNetworkRouter.PathResult result);
+    }
+}
@@ -0,0 +1,83 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.pipeline.passenger.EventAnalysis;
+
+import java.util.List;
+
+/**
+ * Departure passengers
+ * <p>
+ * Passenger and seat counts of one departure, indexed by the position of the stop on the transit route. The count at
+ * position i is the load between stop i and stop i + 1. A sparse table over both counts answers the maximal load over
+ * any range of consecutive stops in constant time.
+ */
+final class DeparturePassengers {
+    private final RangeMaximum passengers;
+    private final RangeMaximum seats;
+
+    DeparturePassengers(int[] passengers, int[] seats) {
+        this.passengers = new RangeMaximum(passengers);
+        this.seats = new RangeMaximum(seats);
+    }
+
+    /**
+     * Collects the counts from the event analysis entries of one departure.
+     *
+     * @param entries the entries of a single departure.
+     * @return the passengers of the departure.
+     */
+    static DeparturePassengers of(List<EventAnalysis.Entry> entries) {
+        final int stopCount = entries.get(0).getTransitRoute().getStops().size();
+        int[] passengers = new int[stopCount];
+        int[] seats = new int[stopCount];
+        for (EventAnalysis.Entry entry : entries) {
+            passengers[entry.getStopIndex()] = entry.getCount();
+            seats[entry.getStopIndex()] = entry.getSeats();
+        }
+        return new DeparturePassengers(passengers, seats);
+    }
+
+    /**
+     * Maximal passenger and seat counts between two stops.
+     *
+     * @param originIndex      the position of the origin stop on the route.
+     * @param destinationIndex the position of the destination stop on the route.
+     * @return the maximal counts on the legs from the origin to the destination stop.
+     */
+    RequestComposer.PassengerResult getMaximum(int originIndex, int destinationIndex) {
+        return new RequestComposer.PassengerResult(passengers.get(originIndex, destinationIndex),
+                seats.get(originIndex, destinationIndex));
+    }
+
+    /**
+     * Sparse table, level k holds the maximum of the 2^k values starting at each position.
+     */
+    private static final class RangeMaximum {
+        private final int[][] levels;
+
+        private RangeMaximum(int[] values) {
+            final int levelCount = 32 - Integer.numberOfLeadingZeros(Math.max(values.length, 1));
+            levels = new int[levelCount][];
+            levels[0] = values;
+            for (int k = 1; k < levelCount; k++) {
+                int[] previous = levels[k - 1];
+                int[] current = new int[values.length - (1 << k) + 1];
+                for (int i = 0; i < current.length; i++) {
+                    current[i] = Math.max(previous[i], previous[i + (1 << (k - 1))]);
+                }
+                levels[k] = current;
+            }
+        }
+
+        /**
+         * Maximum over the values from inclusive to exclusive, zero for an empty range.
+         */
+        private int get(int from, int to) {
+            if (to <= from) {
+                return 0;
+            }
+            int k = 31 - Integer.numberOfLeadingZeros(to - from);
+            return Math.max(levels[k][from], levels[k][to - (1 << k)]);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+/**
+ * Routing backend which grows one shortest path tree per query, every thread uses its own tree.
+ *
+ * @see ShortestPathTree
+ */
+final class DijkstraRoutingBackend implements RoutingBackend {
+    private final ThreadLocal<ShortestPathTree> trees;
+
+    DijkstraRoutingBackend(TrainNetworkGraph graph) {
+        this.trees = ThreadLocal.withInitial(() -> new ShortestPathTree(graph));
+    }
+
+    @Override
+    public Label[] calculate(int origin, int[] targets) {
+        ShortestPathTree tree = trees.get();
+        tree.calculate(origin, targets);
+        Label[] labels = new Label[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            if (tree.isSettled(targets[i])) {
+                labels[i] = new Label(tree.getCost(targets[i]), tree.getDistance(targets[i]));
+            }
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,103 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over graph node indices with decrease-key support.
+ * <p>
+ * Positions are tracked per node, so a node is contained at most once. Not thread-safe, every search needs its own
+ * heap.
+ */
+final class NodeHeap {
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] keys;
+    private int size;
+
+    NodeHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    double peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Inserts the node or decreases its key if the node is already contained with a higher key.
+     */
+    void insertOrDecrease(int node, double key) {
+        int position = positions[node];
+        if (position < 0) {
+            position = size++;
+            keys[node] = key;
+            siftUp(node, position);
+        } else if (key < keys[node]) {
+            keys[node] = key;
+            siftUp(node, position);
+        }
+    }
+
+    int poll() {
+        int node = heap[0];
+        positions[node] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(heap[size], 0);
+        }
+        return node;
+    }
+
+    private void siftUp(int node, int position) {
+        double key = keys[node];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(parent, position);
+            position = parentPosition;
+        }
+        place(node, position);
+    }
+
+    private void siftDown(int node, int position) {
+        double key = keys[node];
+        while (true) {
+            int childPosition = 2 * position + 1;
+            if (childPosition >= size) {
+                break;
+            }
+            int rightPosition = childPosition + 1;
+            if (rightPosition < size && keys[heap[rightPosition]] < keys[heap[childPosition]]) {
+                childPosition = rightPosition;
+            }
+            int child = heap[childPosition];
+            if (keys[child] >= key) {
+                break;
+            }
+            place(child, position);
+            position = childPosition;
+        }
+        place(node, position);
+    }
+
+    private void place(int node, int position) {
+        heap[position] = node;
+        positions[node] = position;
+    }
+}
@@ -7,8 +7,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.api.core.v01.network.Network;
 import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
@@ -16,6 +14,7 @@ import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.VehicleType;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -25,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 
 /**
@@ -37,10 +37,10 @@ import java.util.Set;
 @Log4j2
 @RequiredArgsConstructor
 public class RequestComposer implements Filter<RequestPipe> {
-    public static final int LOCATION_SIZE_LIMIT = 500;
     private final Map<Id<TransitStopFacility>, Boolean> locations = new HashMap<>();
     private final Set<String> departuresIds = new HashSet<>();
     private final Map<TransitStopFacility, Set<VehicleType>> depots = new HashMap<>();
+    private final Set<Id<TransitStopFacility>> deadHeadTripEndpoints = new HashSet<>();
 
     private final RsschedRequestConfig config;
 
@@ -87,19 +87,24 @@ public class RequestComposer implements Filter<RequestPipe> {
     }
 
     private static List<Segment> collectSegments(TransitRoute transitRoute, Set<String> onRouteLocations) {
-        final TransitRouteStop origin = transitRoute.getStops().get(0);
-        final TransitRouteStop destination = transitRoute.getStops().get(transitRoute.getStops().size() - 1);
+        final List<TransitRouteStop> stops = transitRoute.getStops();
+        if (stops.size() < 2) {
+            return List.of();
+        }
+        final TransitRouteStop origin = stops.get(0);
+        final TransitRouteStop destination = stops.get(stops.size() - 1);
 
         List<Segment> segments = new ArrayList<>();
-        TransitRouteStop currentOrigin = origin;
+        int currentOriginIndex = 0;
 
-        for (TransitRouteStop stop : transitRoute.getStops()) {
+        for (int i = 0; i < stops.size(); i++) {
+            TransitRouteStop stop = stops.get(i);
             if (stop.equals(origin)) {
                 continue;
             }
             if (onRouteLocations.contains(stop.getStopFacility().getId().toString()) || stop.equals(destination)) {
-                segments.add(new Segment(currentOrigin, stop));
-                currentOrigin = stop;
+                segments.add(new Segment(stops.get(currentOriginIndex), stop, currentOriginIndex, i));
+                currentOriginIndex = i;
             }
         }
         return segments;
@@ -110,57 +115,13 @@ public class RequestComposer implements Filter<RequestPipe> {
                 segment.destination.getArrivalOffset().seconds() - segment.origin.getDepartureOffset().seconds());
     }
 
-    private static int extractDistance(Network network, TransitRoute transitRoute, Segment segment) {
-        Id<Link> fromLink = segment.origin.getStopFacility().getLinkId();
-        Id<Link> toLink = segment.destination.getStopFacility().getLinkId();
-        double distance = 0.0;
-
-        // Transit route does not contain first and last link of the route, therefore it is checked if the segment is at
-        // the beginning of the transit route: From link is not in the link ids, therefore start counting
-        boolean countDistance = !transitRoute.getRoute().getLinkIds().contains(fromLink);
-
-        for (Id<Link> linkId : transitRoute.getRoute().getLinkIds()) {
-            // only count between the links
-            if (linkId.equals(toLink)) {
-                break;
-            }
-            if (countDistance) {
-                distance += network.getLinks().get(linkId).getLength();
-            }
-            if (linkId.equals(fromLink)) {
-                countDistance = true;
-            }
-        }
-
-        return (int) Math.round(distance);
-    }
-
-    private static PassengerResult extractPassengers(List<PassengerCount> passengerCounts, Segment segment) {
-        int maxPassengers = 0;
-        int maxSeats = 0;
-        boolean counting = false;
-
-        for (PassengerCount leg : passengerCounts) {
-            if (segment.origin.getStopFacility().getId().equals(leg.fromStop().getStopFacility().getId())) {
-                counting = true;
-            }
-            if (counting) {
-                maxPassengers = Math.max(maxPassengers, leg.count());
-                maxSeats = Math.max(maxSeats, leg.seats());
-            }
-            if (leg.toStop() != null && segment.destination.getStopFacility().getId()
-                    .equals(leg.toStop().getStopFacility().getId())) {
-                break;
-            }
-        }
-        return new PassengerResult(maxPassengers, maxSeats);
-    }
-
     @Override
     public void apply(RequestPipe pipe) {
         setup();
         Scenario scenario = pipe.getScenario();
-        Request.Builder builder = Request.builder();
+        String tripMatrixDirectory = config.getPerformance().getTripMatrixDirectory();
+        Request.Builder builder = tripMatrixDirectory == null ? Request.builder() : Request.builder(
+                Path.of(tripMatrixDirectory, config.getInstanceId()));
         // compose
         addVehicleTypes(builder, scenario);
         addTransitLines(builder, scenario, pipe.getPassengers());
@@ -209,6 +170,7 @@ public class RequestComposer implements Filter<RequestPipe> {
         depots.clear();
         departuresIds.clear();
         locations.clear();
+        deadHeadTripEndpoints.clear();
     }
 
     private void addDepotsToTerminalLocation(Request.Builder builder, Scenario scenario, TransitRoute transitRoute) {
@@ -227,11 +189,21 @@ public class RequestComposer implements Filter<RequestPipe> {
         }
     }
 
-    private void addRouteWithDepartures(Request.Builder builder, Scenario scenario, TransitRoute transitRoute, Map<Id<Departure>, List<PassengerCount>> passengers) {
+    private boolean addRouteWithDepartures(Request.Builder builder, Scenario scenario, TransitRoute transitRoute, Map<Id<Departure>, DeparturePassengers> passengers) {
         final String transitRouteId = transitRoute.getId().toString();
         final List<Segment> segments = collectSegments(transitRoute, config.getShunting().getOnRouteLocations());
+        if (segments.isEmpty()) {
+            log.warn("Skipping route {} with {} stops, no segment to serve", transitRouteId,
+                    transitRoute.getStops().size());
+            return false;
+        }
+
+        final RouteDistanceIndex distanceIndex = new RouteDistanceIndex(scenario.getNetwork(), transitRoute);
 
         builder.addRoute(transitRouteId, getVehicleTypeFrom(scenario, transitRoute).toString());
+        // deadhead trips can only start or end at the terminals of a route
+        deadHeadTripEndpoints.add(segments.get(0).origin.getStopFacility().getId());
+        deadHeadTripEndpoints.add(segments.get(segments.size() - 1).destination.getStopFacility().getId());
         // add intermediate locations and route segments
         for (int i = 0; i < segments.size(); i++) {
             Segment segment = segments.get(i);
@@ -243,7 +215,7 @@ public class RequestComposer implements Filter<RequestPipe> {
             // add route segment
             builder.addSegmentToRoute(segmentId, transitRouteId, segment.origin.getStopFacility().getId().toString(),
                     segment.destination.getStopFacility().getId().toString(),
-                    extractDistance(scenario.getNetwork(), transitRoute, segment), extractTravelTime(segment),
+                    distanceIndex.getDistance(segment.originIndex, segment.destinationIndex), extractTravelTime(segment),
                     config.getShunting().getDefaultMaximalFormationCount());
             // add route departures
             for (Departure departure : transitRoute.getDepartures().values()) {
@@ -260,19 +232,21 @@ public class RequestComposer implements Filter<RequestPipe> {
                     departureTime += segment.origin.getDepartureOffset().seconds();
                 }
                 // get total and seated passengers
-                PassengerResult result = extractPassengers(passengers.get(departure.getId()), segment);
+                PassengerResult result = passengers.get(departure.getId())
+                        .getMaximum(segment.originIndex, segment.destinationIndex);
                 builder.addSegmentToDeparture(departureSegmentId, departureId, segmentId,
                         toLocalDateTime(departureTime), result.passengers, result.seats);
             }
         }
+        return true;
     }
 
-    private void addTransitLines(Request.Builder builder, Scenario scenario, Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, List<PassengerCount>>>> passengers) {
+    private void addTransitLines(Request.Builder builder, Scenario scenario, Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, DeparturePassengers>>> passengers) {
         for (TransitLine transitLine : scenario.getTransitSchedule().getTransitLines().values()) {
             for (TransitRoute transitRoute : transitLine.getRoutes().values()) {
-                addRouteWithDepartures(builder, scenario, transitRoute,
+                boolean added = addRouteWithDepartures(builder, scenario, transitRoute,
                         passengers.get(transitLine.getId()).get(transitRoute.getId()));
-                if (config.getDepot().isCreateAtTerminalLocations()) {
+                if (added && config.getDepot().isCreateAtTerminalLocations()) {
                     addDepotsToTerminalLocation(builder, scenario, transitRoute);
                 }
             }
@@ -307,6 +281,7 @@ public class RequestComposer implements Filter<RequestPipe> {
     private void addDepotsFromConfig(Request.Builder builder) {
         for (RsschedRequestConfig.Depot.Facility capacity : config.getDepot().getCapacities()) {
             builder.addDepot(capacity.id(), capacity.locationId(), capacity.capacity());
+            deadHeadTripEndpoints.add(Id.create(capacity.locationId(), TransitStopFacility.class));
             for (RsschedRequestConfig.Depot.AllowedType allowedType : capacity.allowedTypes()) {
                 builder.addVehicleTypeToDepot(capacity.id(), allowedType.vehicleType(), allowedType.capacity());
             }
@@ -322,29 +297,36 @@ public class RequestComposer implements Filter<RequestPipe> {
                         "Maintenance location " + facilityId + " not found in transit schedule facilities.");
             }
             addLocation(builder, facility);
+            deadHeadTripEndpoints.add(facilityId);
             builder.addMaintenanceSlot(slot.id(), slot.locationId(), slot.start(), slot.end(), slot.trackCount());
         }
     }
 
     private void addDeadHeadTrips(Request.Builder builder, Scenario scenario) {
-        if (locations.keySet().size() > LOCATION_SIZE_LIMIT) {
-            throw new IllegalStateException(
-                    "Instance is to big for creating deadhead trip matrix, there have to be less than " + LOCATION_SIZE_LIMIT + " locations.");
+        Set<Id<TransitStopFacility>> matrixLocations = locations.keySet();
+        if (config.getGlobal().isSparseDeadHeadTrips()) {
+            matrixLocations = new HashSet<>(locations.keySet());
+            matrixLocations.retainAll(deadHeadTripEndpoints);
+            log.info("Restricting dead head trip matrix to {} of {} locations", matrixLocations.size(),
+                    locations.size());
         }
-        log.info("Creating dead head trip matrix ({}x{}={})", locations.keySet().size(), locations.keySet().size(),
-                locations.keySet().size() * locations.keySet().size());
-        TrainNetworkRouter trainNetworkRouter = new TrainNetworkRouter(scenario.getNetwork(),
-                config.getGlobal().getDeadHeadTripSpeedLimit(),
-                config.getGlobal().getDeadHeadTripBeelineDistanceFactor());
-        locations.keySet().forEach(originId -> locations.keySet().forEach(destinationId -> {
-            if (!originId.equals(destinationId)) {
-                TrainNetworkRouter.PathResult pathResult = trainNetworkRouter.calculate(
-                        scenario.getTransitSchedule().getFacilities().get(originId),
-                        scenario.getTransitSchedule().getFacilities().get(destinationId));
-                builder.addDeadHeadTrip(originId.toString(), destinationId.toString(), pathResult.duration(),
-                        pathResult.distance());
-            }
-        }));
+        log.info("Creating dead head trip matrix ({}x{}={})", matrixLocations.size(), matrixLocations.size(),
+                matrixLocations.size() * matrixLocations.size());
+        List<TransitStopFacility> facilities = matrixLocations.stream()
+                .map(facilityId -> scenario.getTransitSchedule().getFacilities().get(facilityId)).toList();
+        RsschedRequestConfig.Global global = config.getGlobal();
+        RsschedRequestConfig.Performance performance = config.getPerformance();
+        String cacheDirectory = performance.getDeadHeadTripCacheDirectory();
+        DeadHeadTripCache cache = cacheDirectory == null ? null : DeadHeadTripCache.open(Path.of(cacheDirectory),
+                scenario.getNetwork(), global.getDeadHeadTripSpeedLimit(), global.getDeadHeadTripBeelineDistanceFactor(),
+                performance.getRoutingAlgorithm());
+        // the router preprocesses the network, only create it if a relation is not cached
+        Supplier<TrainNetworkRouter> routerFactory = () -> new TrainNetworkRouter(scenario.getNetwork(),
+                global.getDeadHeadTripSpeedLimit(), global.getDeadHeadTripBeelineDistanceFactor(),
+                performance.getRoutingAlgorithm());
+        new DeadHeadTripCalculator(routerFactory, cache).calculate(facilities,
+                (origin, destination, pathResult) -> builder.addDeadHeadTrip(origin.getId().toString(),
+                        destination.getId().toString(), pathResult.duration(), pathResult.distance()));
     }
 
     private void setParameters(Request.Builder builder) {
@@ -357,6 +339,7 @@ public class RequestComposer implements Filter<RequestPipe> {
                 costs.getDeadHeadTrip(), costs.getIdle());
         RsschedRequestConfig.Global global = config.getGlobal();
         builder.setGlobalParameters(global.isForbidDeadHeadTrips(), global.getDayLimitThreshold());
+        builder.setSparseDeadHeadTrips(global.isSparseDeadHeadTrips());
     }
 
     public record PassengerResult(int passengers, int seats) {
@@ -365,12 +348,11 @@ public class RequestComposer implements Filter<RequestPipe> {
     /**
      * Helper class to store route segments
      *
-     * @param origin      origin location
-     * @param destination destination location
+     * @param origin           origin location
+     * @param destination      destination location
+     * @param originIndex      position of the origin stop on the transit route
+     * @param destinationIndex position of the destination stop on the transit route
      */
-    record Segment(TransitRouteStop origin, TransitRouteStop destination) {
-    }
-
-    public record PassengerCount(TransitRouteStop fromStop, TransitRouteStop toStop, int count, int seats) {
+    record Segment(TransitRouteStop origin, TransitRouteStop destination, int originIndex, int destinationIndex) {
     }
 }
@@ -25,6 +25,11 @@ public class RequestConfigWriter implements ResultSink<RequestPipe> {
         this.config = config;
     }
 
+    @Override
+    public boolean isIndependent() {
+        return true;
+    }
+
     @Override
     public void process(RequestPipe pipe) {
         String filePath = new OutputDirectoryManager(config.getOutputDirectory(), pipe.getRunId(),
@@ -4,13 +4,17 @@ import ch.sbb.rssched.client.pipeline.core.ResultSink;
 import ch.sbb.rssched.client.pipeline.utils.io.OutputDirectoryManager;
 import lombok.extern.log4j.Log4j2;
 
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Request JSON writer
  * <p>
- * Writes the scheduler request to a JSON file in the specified output directory.
+ * Streams the scheduler request as compact JSON to a file in the specified output directory. The file is the body sent
+ * to the scheduler, so the writer is not independent: the file is complete before the request is handed downstream.
  *
  * @author munterfi
  */
@@ -30,10 +34,12 @@ public class RequestJSONWriter implements ResultSink<RequestPipe> {
         String filePath = new OutputDirectoryManager(outputDirectory, pipe.getRunId(), instanceId).buildFilePath(
                 REQUEST_FILE_NAME);
         log.info("Exporting request JSON to {}", filePath);
-        try (FileWriter fileWriter = new FileWriter(filePath)) {
-            fileWriter.write(pipe.getRequest().toJSON());
+        Path file = Path.of(filePath);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            pipe.getRequest().writeJSON(out);
         } catch (IOException e) {
             throw new RuntimeException("Error writing the JSON file: " + e.getMessage(), e);
         }
+        pipe.setRequestFile(file);
     }
 }
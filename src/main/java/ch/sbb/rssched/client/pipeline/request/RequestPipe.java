@@ -2,6 +2,7 @@ package ch.sbb.rssched.client.pipeline.request;
 
 import ch.sbb.rssched.client.dto.request.Request;
 import ch.sbb.rssched.client.pipeline.core.Pipe;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.matsim.api.core.v01.Id;
@@ -10,11 +11,13 @@ import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 
-import java.util.List;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
- * A container for transporting a scenario, the run id and the final request.
+ * A container for transporting a scenario, the run id, the final request and its file.
  *
  * @author munterfi
  */
@@ -23,14 +26,43 @@ public class RequestPipe implements Pipe {
 
     private final String runId;
     private final Scenario scenario;
-    private final Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, List<RequestComposer.PassengerCount>>>> passengers;
+    private final Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, DeparturePassengers>>> passengers;
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<Void> scenarioExports;
     @Setter
     private Request request;
+    /**
+     * The file holding the compact JSON of the request, set once it is written.
+     */
+    @Setter
+    private Path requestFile;
+
+    RequestPipe(String runId, Scenario scenario, Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, DeparturePassengers>>> passengers) {
+        this(runId, scenario, passengers, CompletableFuture.completedFuture(null));
+    }
 
-    RequestPipe(String runId, Scenario scenario, Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, List<RequestComposer.PassengerCount>>>> passengers) {
+    /**
+     * @param scenarioExports the exports of the scenario pipeline, which may still be running.
+     */
+    RequestPipe(String runId, Scenario scenario, Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, DeparturePassengers>>> passengers, CompletableFuture<Void> scenarioExports) {
         this.runId = runId;
         this.scenario = scenario;
         this.passengers = passengers;
+        this.scenarioExports = scenarioExports;
+    }
+
+    /**
+     * Waits for the exports of the scenario pipeline and rethrows their failure.
+     */
+    void awaitScenarioExports() {
+        try {
+            scenarioExports.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
     }
 
 }
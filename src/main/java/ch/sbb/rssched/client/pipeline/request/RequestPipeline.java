@@ -1,9 +1,12 @@
 package ch.sbb.rssched.client.pipeline.request;
 
 import ch.sbb.rssched.client.config.RsschedRequestConfig;
+import ch.sbb.rssched.client.pipeline.core.CheckpointStore;
 import ch.sbb.rssched.client.pipeline.core.Pipeline;
 import ch.sbb.rssched.client.pipeline.passenger.PassengerPipeline;
 import ch.sbb.rssched.client.pipeline.scenario.ScenarioPipeline;
+import ch.sbb.rssched.client.pipeline.utils.io.SharedScenario;
+import lombok.extern.log4j.Log4j2;
 
 /**
  * Request export pipeline
@@ -12,6 +15,7 @@ import ch.sbb.rssched.client.pipeline.scenario.ScenarioPipeline;
  *
  * @author munterfi
  */
+@Log4j2
 public class RequestPipeline extends Pipeline<RequestPipe> {
     /**
      * Export Pipeline
@@ -22,17 +26,61 @@ public class RequestPipeline extends Pipeline<RequestPipe> {
      * @param config The request configuration containing various parameters for the scheduler request.
      */
     public RequestPipeline(RsschedRequestConfig config) {
+        // load scenario once for both sub-pipelines
+        this(config, new SharedScenario(config));
+    }
+
+    private RequestPipeline(RsschedRequestConfig config, SharedScenario scenario) {
+        this(config, new ScenarioPipeline(config.getInstanceId(), scenario, config.getOutputDirectory(),
+                config.getPerformance().getExportCompressionLevel()),
+                new PassengerPipeline(config.getInstanceId(), scenario, config.getOutputDirectory(),
+                        config.getGlobal().getSampleSize(), config.getGlobal().getSeatDurationThreshold(),
+                        config.getPerformance().isPipelinedEventsReading(),
+                        config.getPerformance().getEventsQueueDepth(),
+                        config.getPerformance().isTransitOnlyEventsParsing()), createCheckpointStore(config, scenario));
+    }
+
+    private RequestPipeline(RsschedRequestConfig config, ScenarioPipeline scenarioPipeline, PassengerPipeline passengerPipeline, CheckpointStore checkpointStore) {
         // set source
-        super(new ScenarioPassengerCollector(config.getRunId(),
-                new ScenarioPipeline(config.getInstanceId(), config.getRunId(), config.getInputDirectory(),
-                        config.getOutputDirectory(), config.getNetworkCrs(), config.getGlobal().getFilterStrategy()),
-                new PassengerPipeline(config.getInstanceId(), config.getRunId(), config.getInputDirectory(),
-                        config.getOutputDirectory(), config.getGlobal().getFilterStrategy(),
-                        config.getGlobal().getSampleSize(), config.getGlobal().getSeatDurationThreshold())));
+        super(new ScenarioPassengerCollector(config.getRunId(), scenarioPipeline, passengerPipeline));
         // add filter
         addFilter(new RequestComposer(config));
         // add sink
         addSink(new RequestConfigWriter(config));
         addSink(new RequestJSONWriter(config.getOutputDirectory(), config.getInstanceId()));
+        addSink(new ScenarioExportsAwaiter());
+        // report stage metrics of all pipelines
+        var report = new RunReportWriter(config.getOutputDirectory(), config.getRunId(), config.getInstanceId(),
+                RequestPipeline.class.getSimpleName());
+        scenarioPipeline.addListener(report);
+        passengerPipeline.addListener(report);
+        addListener(report);
+        // resume the sub-pipelines from their checkpoints
+        scenarioPipeline.setCheckpointStore(checkpointStore);
+        passengerPipeline.setCheckpointStore(checkpointStore);
+    }
+
+    /**
+     * The checkpoints are keyed by the settings that change the masked scenario or the event analysis.
+     */
+    private static CheckpointStore createCheckpointStore(RsschedRequestConfig config, SharedScenario scenario) {
+        RsschedRequestConfig.Global global = config.getGlobal();
+        RsschedRequestConfig.Performance performance = config.getPerformance();
+        String directory = performance.getCheckpointDirectory();
+        if (directory == null) {
+            return null;
+        }
+        String filterStrategy = global.getFilterStrategy().getDescription();
+        if (filterStrategy == null) {
+            log.warn("Checkpoints are disabled, the filter strategy has no stable description");
+            return null;
+        }
+        String configuration = String.format(
+                "runId=%s, networkCrs=%s, filterStrategy=%s, sampleSize=%s, seatDurationThreshold=%d, "
+                        + "selectiveScenarioLoading=%s, selectiveNetworkLoading=%s, transitOnlyEventsParsing=%s",
+                config.getRunId(), config.getNetworkCrs(), filterStrategy, global.getSampleSize(),
+                global.getSeatDurationThreshold(), performance.isSelectiveScenarioLoading(),
+                performance.isSelectiveNetworkLoading(), performance.isTransitOnlyEventsParsing());
+        return new CheckpointStore(directory, config.getInstanceId(), configuration, scenario.getInputFiles());
     }
 }
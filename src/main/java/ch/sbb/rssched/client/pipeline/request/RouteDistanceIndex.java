@@ -0,0 +1,68 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route distance index
+ * <p>
+ * Cumulative network distance along a transit route, indexed by the position of the stops on the route. The index is
+ * built once per route in a single pass over its links, afterwards the distance between any two stops is a constant
+ * time lookup.
+ * <p>
+ * The distance between two stops is the length of the links strictly between the links of the two stops, neither the
+ * link of the origin nor of the destination stop is counted.
+ */
+@Log4j2
+final class RouteDistanceIndex {
+    private final double[] arrivals;
+    private final double[] departures;
+
+    RouteDistanceIndex(Network network, TransitRoute transitRoute) {
+        NetworkRoute route = transitRoute.getRoute();
+        List<Id<Link>> linkIds = new ArrayList<>(route.getLinkIds().size() + 2);
+        linkIds.add(route.getStartLinkId());
+        linkIds.addAll(route.getLinkIds());
+        linkIds.add(route.getEndLinkId());
+        // cumulative distance at the start of each link
+        double[] cumulative = new double[linkIds.size() + 1];
+        for (int i = 0; i < linkIds.size(); i++) {
+            cumulative[i + 1] = cumulative[i] + network.getLinks().get(linkIds.get(i)).getLength();
+        }
+        // match stops to link positions, moving forward only to support routes visiting a link twice
+        final int stopCount = transitRoute.getStops().size();
+        arrivals = new double[stopCount];
+        departures = new double[stopCount];
+        int position = 0;
+        for (int i = 0; i < stopCount; i++) {
+            Id<Link> stopLinkId = transitRoute.getStops().get(i).getStopFacility().getLinkId();
+            int stopPosition = linkIds.subList(position, linkIds.size()).indexOf(stopLinkId);
+            if (stopPosition < 0) {
+                log.warn("Link {} of stop {} not found on route {} after position {}", stopLinkId, i,
+                        transitRoute.getId(), position);
+            } else {
+                position += stopPosition;
+            }
+            arrivals[i] = cumulative[position];
+            departures[i] = cumulative[position + 1];
+        }
+    }
+
+    /**
+     * Distance between two stops on the route.
+     *
+     * @param originIndex      the position of the origin stop on the route.
+     * @param destinationIndex the position of the destination stop on the route.
+     * @return the rounded distance in meters.
+     */
+    int getDistance(int originIndex, int destinationIndex) {
+        return (int) Math.round(Math.max(0, arrivals[destinationIndex] - departures[originIndex]));
+    }
+}
@@ -0,0 +1,34 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.config.RsschedRequestConfig;
+
+/**
+ * Routing backend
+ * <p>
+ * Calculates least cost paths on the train network graph for the {@link TrainNetworkRouter}. Implementations must be
+ * thread-safe.
+ */
+interface RoutingBackend {
+
+    static RoutingBackend create(RsschedRequestConfig.Performance.RoutingAlgorithm algorithm, TrainNetworkGraph graph) {
+        return switch (algorithm) {
+            case DIJKSTRA -> new DijkstraRoutingBackend(graph);
+            case CONTRACTION_HIERARCHY -> new ContractionHierarchyRoutingBackend(new ContractionHierarchy(graph));
+        };
+    }
+
+    /**
+     * Calculates the least cost paths from one origin node to many target nodes.
+     *
+     * @param origin  the index of the origin node in the graph.
+     * @param targets the indices of the target nodes in the graph.
+     * @return the labels in the order of the targets, null if a target is not reachable.
+     */
+    Label[] calculate(int origin, int[] targets);
+
+    /**
+     * Cost and distance of a least cost path.
+     */
+    record Label(double cost, double distance) {
+    }
+}
@@ -0,0 +1,79 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.pipeline.core.PipelineListener;
+import ch.sbb.rssched.client.pipeline.core.StageMetrics;
+import ch.sbb.rssched.client.pipeline.utils.io.OutputDirectoryManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Run report writer
+ * <p>
+ * Collects the stage metrics of the request pipeline and its sub-pipelines and writes them to a JSON file in the
+ * output directory, once the reporting pipeline completed. Registered on pipelines running concurrently, therefore
+ * thread-safe.
+ *
+ * @author munterfi
+ */
+@Log4j2
+class RunReportWriter implements PipelineListener {
+    private static final String REPORT_FILE_NAME = "run_report.json";
+    private final String outputDirectory;
+    private final String runId;
+    private final String instanceId;
+    private final String reportingPipeline;
+    private final List<PipelineRun> pipelines = new ArrayList<>();
+    private final List<StageMetrics> stages = new ArrayList<>();
+
+    /**
+     * @param outputDirectory   the output directory to write the report to.
+     * @param runId             the ID of the simulation run.
+     * @param instanceId        the ID of the RSSched instance (=request).
+     * @param reportingPipeline the simple class name of the pipeline, which writes the report on completion.
+     */
+    RunReportWriter(String outputDirectory, String runId, String instanceId, String reportingPipeline) {
+        this.outputDirectory = outputDirectory;
+        this.runId = runId;
+        this.instanceId = instanceId;
+        this.reportingPipeline = reportingPipeline;
+    }
+
+    @Override
+    public synchronized void stageCompleted(StageMetrics metrics) {
+        stages.add(metrics);
+    }
+
+    @Override
+    public synchronized void pipelineCompleted(String pipeline, long durationNanos) {
+        pipelines.add(new PipelineRun(pipeline, durationNanos));
+        if (pipeline.equals(reportingPipeline)) {
+            write();
+        }
+    }
+
+    private void write() {
+        String filePath = new OutputDirectoryManager(outputDirectory, runId, instanceId).buildFilePath(
+                REPORT_FILE_NAME);
+        log.info("Exporting run report to {}", filePath);
+        var report = new RunReport(runId, instanceId, Instant.now().toString(), Runtime.version().toString(),
+                List.copyOf(pipelines), List.copyOf(stages));
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(filePath), report);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing the run report: " + e.getMessage(), e);
+        }
+    }
+
+    record PipelineRun(String pipeline, long durationNanos) {
+    }
+
+    record RunReport(String runId, String instanceId, String createdAt, String javaVersion,
+                     List<PipelineRun> pipelines, List<StageMetrics> stages) {
+    }
+}
@@ -0,0 +1,24 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.pipeline.core.ResultSink;
+
+/**
+ * Awaits the exports of the scenario pipeline, which keep running while the request is composed.
+ * <p>
+ * The sink is independent, so the exports are part of the exports of the request pipeline and a failed export fails
+ * the request without delaying the request on the critical path.
+ *
+ * @author munterfi
+ */
+class ScenarioExportsAwaiter implements ResultSink<RequestPipe> {
+
+    @Override
+    public boolean isIndependent() {
+        return true;
+    }
+
+    @Override
+    public void process(RequestPipe pipe) {
+        pipe.awaitScenarioExports();
+    }
+}
@@ -10,7 +10,6 @@ import org.matsim.pt.transitSchedule.api.Departure;
 import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -26,7 +25,7 @@ class ScenarioPassengerCollector implements DataSource<RequestPipe> {
     private final ScenarioPipeline scenarioPipeline;
     private final PassengerPipeline passengerPipeline;
     private Scenario scenario;
-    private Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, List<RequestComposer.PassengerCount>>>> passengers;
+    private Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, DeparturePassengers>>> passengers;
 
     public ScenarioPassengerCollector(String runId, ScenarioPipeline scenarioPipeline, PassengerPipeline passengerPipeline) {
         this.runId = runId;
@@ -36,11 +35,16 @@ class ScenarioPassengerCollector implements DataSource<RequestPipe> {
         registerSink(passengerPipeline);
     }
 
+    /**
+     * Runs both pipelines concurrently. The scenario pipeline is only started, its exports keep running while the
+     * request is composed and are handed over with the pipe.
+     */
     @Override
     public RequestPipe fetch() {
-        CompletableFuture.allOf(CompletableFuture.runAsync(scenarioPipeline),
-                CompletableFuture.runAsync(passengerPipeline)).join();
-        return new RequestPipe(runId, scenario, passengers);
+        CompletableFuture<CompletableFuture<Void>> scenarioExports = CompletableFuture.supplyAsync(
+                scenarioPipeline::start);
+        CompletableFuture.allOf(scenarioExports, CompletableFuture.runAsync(passengerPipeline)).join();
+        return new RequestPipe(runId, scenario, passengers, scenarioExports.join());
     }
 
     private void registerSink(PassengerPipeline passengerPipeline) {
@@ -48,9 +52,8 @@ class ScenarioPassengerCollector implements DataSource<RequestPipe> {
             log.info("Collecting and aggregating results from passenger pipeline");
             passengers = pipe.entries().stream().collect(Collectors.groupingBy(entry -> entry.getTransitLine().getId(),
                     Collectors.groupingBy(entry -> entry.getTransitRoute().getId(),
-                            Collectors.groupingBy(entry -> entry.getDeparture().getId(), Collectors.mapping(
-                                    entry -> new RequestComposer.PassengerCount(entry.getFromStop(), entry.getToStop(),
-                                            entry.getCount(), entry.getSeats()), Collectors.toList())))));
+                            Collectors.groupingBy(entry -> entry.getDeparture().getId(),
+                                    Collectors.collectingAndThen(Collectors.toList(), DeparturePassengers::of)))));
         });
     }
 
@@ -0,0 +1,88 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+/**
+ * Shortest path tree
+ * <p>
+ * Grows a least cost path tree (Dijkstra) from one origin node on the train network graph and keeps track of cost and
+ * distance to every settled node. The search stops as soon as all requested target nodes are settled.
+ * <p>
+ * The working arrays are reused between calculations and marked with an iteration stamp instead of being cleared,
+ * therefore a tree is not thread-safe; use one tree per thread.
+ *
+ * @see TrainNetworkGraph
+ */
+final class ShortestPathTree {
+    private final TrainNetworkGraph graph;
+    private final NodeHeap heap;
+    private final double[] costs;
+    private final double[] distances;
+    private final int[] reached;
+    private final int[] settled;
+    private final int[] targets;
+    private int iteration;
+
+    ShortestPathTree(TrainNetworkGraph graph) {
+        final int nodeCount = graph.getNodeCount();
+        this.graph = graph;
+        this.heap = new NodeHeap(nodeCount);
+        this.costs = new double[nodeCount];
+        this.distances = new double[nodeCount];
+        this.reached = new int[nodeCount];
+        this.settled = new int[nodeCount];
+        this.targets = new int[nodeCount];
+    }
+
+    /**
+     * Grows the tree from the origin until all target nodes are settled or the reachable graph is exhausted.
+     *
+     * @param origin      the index of the origin node.
+     * @param targetNodes the indices of the target nodes.
+     */
+    void calculate(int origin, int[] targetNodes) {
+        iteration++;
+        int remaining = 0;
+        for (int target : targetNodes) {
+            if (targets[target] != iteration) {
+                targets[target] = iteration;
+                remaining++;
+            }
+        }
+        heap.clear();
+        reached[origin] = iteration;
+        costs[origin] = 0;
+        distances[origin] = 0;
+        heap.insertOrDecrease(origin, 0);
+        while (!heap.isEmpty() && remaining > 0) {
+            int node = heap.poll();
+            settled[node] = iteration;
+            if (targets[node] == iteration) {
+                remaining--;
+            }
+            for (int link = graph.getFirstLink(node); link < graph.getLastLink(node); link++) {
+                int next = graph.getToNode(link);
+                if (settled[next] == iteration) {
+                    continue;
+                }
+                double cost = costs[node] + graph.getCost(link);
+                if (reached[next] != iteration || cost < costs[next]) {
+                    reached[next] = iteration;
+                    costs[next] = cost;
+                    distances[next] = distances[node] + graph.getLength(link);
+                    heap.insertOrDecrease(next, cost);
+                }
+            }
+        }
+    }
+
+    boolean isSettled(int node) {
+        return settled[node] == iteration;
+    }
+
+    double getCost(int node) {
+        return costs[node];
+    }
+
+    double getDistance(int node) {
+        return distances[node];
+    }
+}
@@ -0,0 +1,105 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Train network graph
+ * <p>
+ * Compact adjacency array representation of the network, with the travel disutility and the length of every link
+ * precomputed. The graph is immutable after construction and can be shared between threads.
+ *
+ * @see ShortestPathTree
+ */
+final class TrainNetworkGraph {
+    private final Map<Id<Node>, Integer> nodeIndices;
+    private final Node[] nodes;
+    private final int[] firstLinks;
+    private final int[] toNodes;
+    private final double[] costs;
+    private final double[] lengths;
+
+    /**
+     * Constructs the graph from the network, using the time independent link disutility as link cost.
+     *
+     * @param network          the network to build the graph from.
+     * @param travelDisutility the disutility to precompute the link costs.
+     */
+    TrainNetworkGraph(Network network, TravelDisutility travelDisutility) {
+        final int nodeCount = network.getNodes().size();
+        final int linkCount = network.getLinks().size();
+        nodeIndices = new HashMap<>(2 * nodeCount);
+        nodes = new Node[nodeCount];
+        int index = 0;
+        for (Node node : network.getNodes().values()) {
+            nodes[index] = node;
+            nodeIndices.put(node.getId(), index++);
+        }
+        // count outgoing links per node and accumulate to offsets
+        firstLinks = new int[nodeCount + 1];
+        for (Link link : network.getLinks().values()) {
+            firstLinks[getIndex(link.getFromNode()) + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            firstLinks[i + 1] += firstLinks[i];
+        }
+        // fill link arrays
+        toNodes = new int[linkCount];
+        costs = new double[linkCount];
+        lengths = new double[linkCount];
+        int[] nextLinks = Arrays.copyOf(firstLinks, nodeCount);
+        for (Link link : network.getLinks().values()) {
+            int position = nextLinks[getIndex(link.getFromNode())]++;
+            toNodes[position] = getIndex(link.getToNode());
+            costs[position] = travelDisutility.getLinkTravelDisutility(link, 0, null, null);
+            lengths[position] = link.getLength();
+        }
+    }
+
+    int getIndex(Node node) {
+        Integer index = nodeIndices.get(node.getId());
+        if (index == null) {
+            throw new IllegalArgumentException("Node " + node.getId() + " is not part of the train network graph.");
+        }
+        return index;
+    }
+
+    Node getNode(int index) {
+        return nodes[index];
+    }
+
+    int getNodeCount() {
+        return nodes.length;
+    }
+
+    int getLinkCount() {
+        return toNodes.length;
+    }
+
+    int getFirstLink(int node) {
+        return firstLinks[node];
+    }
+
+    int getLastLink(int node) {
+        return firstLinks[node + 1];
+    }
+
+    int getToNode(int link) {
+        return toNodes[link];
+    }
+
+    double getCost(int link) {
+        return costs[link];
+    }
+
+    double getLength(int link) {
+        return lengths[link];
+    }
+}
@@ -1,22 +1,24 @@
 package ch.sbb.rssched.client.pipeline.request;
 
+import ch.sbb.rssched.client.config.RsschedRequestConfig;
 import lombok.extern.log4j.Log4j2;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.router.DijkstraFactory;
-import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.TravelDisutility;
-import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.List;
+
 /**
  * Train network router
  * <p>
- * Calculates the shortest path between two links in the network for train routing.
+ * Calculates the shortest path between two links in the network for train routing. Many destinations from the same
+ * origin are calculated in one query, see {@link #calculateFrom(TransitStopFacility, List)}. The routing algorithm is
+ * pluggable, see {@link RsschedRequestConfig.Performance.RoutingAlgorithm}.
  *
  * @author munterfi
  * @see TravelDisutility
@@ -27,14 +29,28 @@ public class TrainNetworkRouter {
     private final Network network;
     private final double freeSpeedLimit;
     private final double beelineDistanceFactor;
-    private final LeastCostPathCalculator lpc;
+    private final TrainNetworkGraph graph;
+    private final RoutingBackend backend;
 
     public TrainNetworkRouter(Network network, double freeSpeedLimit, double beelineDistanceFactor) {
+        this(network, freeSpeedLimit, beelineDistanceFactor, RsschedRequestConfig.Performance.RoutingAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Constructs the router and preprocesses the network for the routing algorithm.
+     *
+     * @param network               the network to route on.
+     * @param freeSpeedLimit        the speed limit in meters per second.
+     * @param beelineDistanceFactor the factor applied to the beeline distance if no path is found.
+     * @param routingAlgorithm      the algorithm used to calculate the least cost paths.
+     */
+    public TrainNetworkRouter(Network network, double freeSpeedLimit, double beelineDistanceFactor,
+                              RsschedRequestConfig.Performance.RoutingAlgorithm routingAlgorithm) {
         this.network = network;
         this.freeSpeedLimit = freeSpeedLimit;
         this.beelineDistanceFactor = beelineDistanceFactor;
-        this.lpc = new DijkstraFactory(false).createPathCalculator(network, new TrainTravelDisutility(),
-                new FreeSpeedTravelTime());
+        this.graph = new TrainNetworkGraph(network, new TrainTravelDisutility());
+        this.backend = RoutingBackend.create(routingAlgorithm, graph);
     }
 
     /**
@@ -45,25 +61,63 @@ public class TrainNetworkRouter {
      * @return A record containing the duration in seconds and the distance in meters of the shortest path.
      */
     public PathResult calculate(TransitStopFacility from, TransitStopFacility to) {
-        Node fromNode = network.getLinks().get(from.getLinkId()).getToNode();
-        Node toNode = network.getLinks().get(to.getLinkId()).getFromNode();
-        LeastCostPathCalculator.Path path = lpc.calcLeastCostPath(fromNode, toNode, 0, null, null);
-        if (path == null) {
-            double beelineDistance = NetworkUtils.getEuclideanDistance(fromNode.getCoord(), toNode.getCoord());
-            double distance = beelineDistance * beelineDistanceFactor;
-            double duration = distance / freeSpeedLimit;
-            log.warn(
-                    "Setting duration and distance to {}s / {}m (beeline distance: {}m times factor: {}) for route from {} to {}",
-                    Math.round(duration), Math.round(distance), Math.round(beelineDistance), beelineDistanceFactor,
-                    fromNode.getId(), toNode.getId());
-            return new PathResult((int) Math.round(duration), (int) Math.round(distance));
+        return calculateFrom(from, List.of(to))[0];
+    }
+
+    /**
+     * Calculate the shortest paths from one origin to many destinations.
+     * <p>
+     * Searches the network once for all destinations instead of once per destination. The results are the same as
+     * calling {@link #calculate} for each destination. This method is thread-safe.
+     *
+     * @param from The origin transit stop facility.
+     * @param to   The destination transit stop facilities.
+     * @return The path results in the order of the destinations.
+     */
+    public PathResult[] calculateFrom(TransitStopFacility from, List<TransitStopFacility> to) {
+        Node fromNode = getFromNode(from);
+        Node[] toNodes = new Node[to.size()];
+        int[] targets = new int[to.size()];
+        for (int i = 0; i < to.size(); i++) {
+            toNodes[i] = getToNode(to.get(i));
+            targets[i] = graph.getIndex(toNodes[i]);
+        }
+        RoutingBackend.Label[] labels = backend.calculate(graph.getIndex(fromNode), targets);
+        PathResult[] results = new PathResult[to.size()];
+        for (int i = 0; i < to.size(); i++) {
+            if (labels[i] != null) {
+                results[i] = createPathResult(labels[i].cost(), labels[i].distance());
+            } else {
+                results[i] = createBeelineResult(fromNode, toNodes[i]);
+            }
         }
-        double travelTime = path.travelCost;
-        double travelDistance = extractPathLength(path);
+        return results;
+    }
+
+    private Node getFromNode(TransitStopFacility facility) {
+        return network.getLinks().get(facility.getLinkId()).getToNode();
+    }
+
+    private Node getToNode(TransitStopFacility facility) {
+        return network.getLinks().get(facility.getLinkId()).getFromNode();
+    }
+
+    private PathResult createPathResult(double travelTime, double travelDistance) {
         validateFreeSpeedLimit(travelTime, travelDistance);
         return new PathResult((int) Math.round(travelTime), (int) Math.round(travelDistance));
     }
 
+    private PathResult createBeelineResult(Node fromNode, Node toNode) {
+        double beelineDistance = NetworkUtils.getEuclideanDistance(fromNode.getCoord(), toNode.getCoord());
+        double distance = beelineDistance * beelineDistanceFactor;
+        double duration = distance / freeSpeedLimit;
+        log.warn(
+                "Setting duration and distance to {}s / {}m (beeline distance: {}m times factor: {}) for route from {} to {}",
+                Math.round(duration), Math.round(distance), Math.round(beelineDistance), beelineDistanceFactor,
+                fromNode.getId(), toNode.getId());
+        return new PathResult((int) Math.round(duration), (int) Math.round(distance));
+    }
+
     private void validateFreeSpeedLimit(double travelTime, double travelDistance) {
         double travelSpeed = (travelDistance / travelTime);
         if (travelSpeed > freeSpeedLimit + TOLERANCE) {
@@ -73,20 +127,6 @@ public class TrainNetworkRouter {
         }
     }
 
-    /**
-     * Extracts the length of the path in meters from the given LeastCostPathCalculator.Path.
-     *
-     * @param path The path for which to extract the length.
-     * @return The length of the path in meters.
-     */
-    private double extractPathLength(LeastCostPathCalculator.Path path) {
-        double length = 0.0;
-        for (Link link : path.links) {
-            length += link.getLength();
-        }
-        return length;
-    }
-
     /**
      * Record representing the result of the shortest path calculation.
      */
@@ -0,0 +1,13 @@
+package ch.sbb.rssched.client.pipeline.response;
+
+/**
+ * Latency of one request dispatched to the scheduler.
+ *
+ * @param instanceId the ID of the RSSched instance (=request).
+ * @param queueNanos the time waiting for a free slot in the in-flight window.
+ * @param solveNanos the time from sending the request until the response was parsed, including the solving time.
+ * @param successful true if a response was received and parsed.
+ * @author munterfi
+ */
+public record DispatchMetrics(String instanceId, long queueNanos, long solveNanos, boolean successful) {
+}
@@ -5,22 +5,30 @@ import ch.sbb.rssched.client.pipeline.core.DataSource;
 import ch.sbb.rssched.client.pipeline.request.RequestPipeline;
 import lombok.extern.log4j.Log4j2;
 
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
 @Log4j2
 public class RequestCollector implements DataSource<ResponsePipe> {
 
     private final RequestPipeline requestPipeline;
     private String runId;
     private Request request;
+    private Path requestFile;
 
     public RequestCollector(RequestPipeline requestPipeline) {
         this.requestPipeline = requestPipeline;
         registerSink(requestPipeline);
     }
 
+    /**
+     * Hands the request downstream as soon as it is composed, the exports of the request pipeline continue while the
+     * request is sent.
+     */
     @Override
     public ResponsePipe fetch() {
-        requestPipeline.run();
-        return new ResponsePipe(runId, request);
+        CompletableFuture<Void> exports = requestPipeline.start();
+        return new ResponsePipe(runId, request, requestFile, exports);
     }
 
     private void registerSink(RequestPipeline requestPipeline) {
@@ -28,6 +36,7 @@ public class RequestCollector implements DataSource<ResponsePipe> {
             log.info("Collecting request from passenger pipeline");
             runId = pipe.getRunId();
             request = pipe.getRequest();
+            requestFile = pipe.getRequestFile();
         });
     }
 
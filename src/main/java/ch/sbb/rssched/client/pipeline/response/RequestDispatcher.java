@@ -0,0 +1,97 @@
+package ch.sbb.rssched.client.pipeline.response;
+
+import ch.sbb.rssched.client.dto.request.Request;
+import ch.sbb.rssched.client.dto.response.Response;
+import lombok.extern.log4j.Log4j2;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches requests to the scheduler asynchronously with a bounded number of requests in flight.
+ * <p>
+ * If the window is full, the dispatching thread waits for the next response. Waiting bounds the number of composed
+ * requests held in memory. The latency of each request is passed to the registered listeners on the thread completing
+ * the request, so the listeners must be thread-safe.
+ *
+ * @author munterfi
+ */
+@Log4j2
+public class RequestDispatcher {
+    private final RequestSender sender;
+    private final int maxInFlightRequests;
+    private final Semaphore window;
+    private final List<Consumer<DispatchMetrics>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param sender              the sender of the requests, sharing its connection
+     * @param maxInFlightRequests the maximal number of requests sent to the scheduler and not yet answered
+     */
+    public RequestDispatcher(RequestSender sender, int maxInFlightRequests) {
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed in flight: " + maxInFlightRequests);
+        }
+        this.sender = sender;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.window = new Semaphore(maxInFlightRequests);
+    }
+
+    /**
+     * Sends the request as soon as the window has a free slot, blocks the calling thread until then.
+     *
+     * @param instanceId the ID of the RSSched instance (=request)
+     * @param request    the request to solve
+     * @return the response, completed when it is received and parsed.
+     */
+    public CompletableFuture<Response> dispatch(String instanceId, Request request) {
+        return dispatch(instanceId, request, null);
+    }
+
+    /**
+     * Sends the request file as soon as the window has a free slot, blocks the calling thread until then.
+     *
+     * @param instanceId  the ID of the RSSched instance (=request)
+     * @param request     the request to solve
+     * @param requestFile the file holding the compact JSON of the request, or null to serialize the request
+     * @return the response, completed when it is received and parsed.
+     */
+    public CompletableFuture<Response> dispatch(String instanceId, Request request, Path requestFile) {
+        long queuedTime = System.nanoTime();
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        long sentTime = System.nanoTime();
+        log.info("Dispatching instance {} ({} of {} requests in flight)", instanceId,
+                maxInFlightRequests - window.availablePermits(), maxInFlightRequests);
+        CompletableFuture<Response> response;
+        try {
+            response = sender.sendAsync(request, requestFile);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((ignored, e) -> {
+            window.release();
+            var metrics = new DispatchMetrics(instanceId, sentTime - queuedTime, System.nanoTime() - sentTime,
+                    e == null);
+            log.info("Instance {} {} after {} seconds", instanceId, e == null ? "solved" : "failed",
+                    metrics.solveNanos() / 1e9);
+            listeners.forEach(listener -> listener.accept(metrics));
+        });
+    }
+
+    /**
+     * Adds a listener for the latency of the dispatched requests.
+     *
+     * @param listener The listener to be added.
+     */
+    public void addListener(Consumer<DispatchMetrics> listener) {
+        listeners.add(listener);
+    }
+}
@@ -1,52 +1,201 @@
 package ch.sbb.rssched.client.pipeline.response;
 
+import ch.sbb.rssched.client.dto.request.Request;
 import ch.sbb.rssched.client.dto.response.Response;
 import ch.sbb.rssched.client.pipeline.core.Filter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Sends the request to the scheduler.
+ * <p>
+ * The sender holds one HTTP client for its lifetime, so consecutive requests reuse the connection. The body is streamed
+ * from the request file written by the request pipeline; requests without a file are first streamed to a temporary
+ * file. Request bodies are optionally gzip-compressed into a temporary file, gzip-encoded responses are accepted and
+ * parsed straight from the response stream.
  *
  * @author munterfi
  */
-@RequiredArgsConstructor
 @Log4j2
 public class RequestSender implements Filter<ResponsePipe> {
     public static final String SOLVER_URL_FORMAT = "%s:%d/solve";
-    private final String baseUrl;
-    private final int port;
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofHours(2);
+    private static final String GZIP = "gzip";
+    private final String url;
+    private final Duration requestTimeout;
+    private final boolean compressRequests;
+    private final HttpClient client;
+
+    /**
+     * Constructs a RequestSender with the default timeouts and uncompressed request bodies.
+     *
+     * @param baseUrl the base URL of the scheduler
+     * @param port    the port of the scheduler
+     */
+    public RequestSender(String baseUrl, int port) {
+        this(baseUrl, port, DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, false);
+    }
+
+    /**
+     * Constructs a RequestSender.
+     *
+     * @param baseUrl          the base URL of the scheduler
+     * @param port             the port of the scheduler
+     * @param connectTimeout   the timeout to establish a connection to the scheduler
+     * @param requestTimeout   the timeout until the response of the scheduler, including the solving time
+     * @param compressRequests gzip the request bodies, the scheduler must accept the gzip content encoding
+     */
+    public RequestSender(String baseUrl, int port, Duration connectTimeout, Duration requestTimeout, boolean compressRequests) {
+        this.url = String.format(SOLVER_URL_FORMAT, baseUrl, port);
+        this.requestTimeout = requestTimeout;
+        this.compressRequests = compressRequests;
+        this.client = HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary request body {}: {}", file, e.toString());
+        }
+    }
+
+    private static Response parse(HttpResponse<InputStream> httpResponse) throws IOException {
+        log.info("Received HTTP response with status code: {}", httpResponse.statusCode());
+        try (InputStream body = httpResponse.body()) {
+            if (httpResponse.statusCode() != 200) {
+                throw new IOException("Received response: Status Code = " + httpResponse.statusCode());
+            }
+            boolean compressed = httpResponse.headers().firstValue("Content-Encoding").filter(GZIP::equalsIgnoreCase)
+                    .isPresent();
+            Response response = Response.fromJson(compressed ? new GZIPInputStream(body, 1 << 16) : body);
+            log.info("Successfully parsed the response: {}", response.getInfo());
+            return response;
+        }
+    }
 
     @Override
     public void apply(ResponsePipe pipe) {
+        Body body = null;
+        try {
+            body = prepareBody(pipe.getRequest(), pipe.getRequestFile());
+            HttpResponse<InputStream> httpResponse = client.send(buildRequest(body),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            pipe.setResponse(parse(httpResponse));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            if (body != null) {
+                body.deleteIfTemporary();
+            }
+        }
+    }
+
+    /**
+     * Sends the request without blocking the calling thread.
+     *
+     * @param request the request to solve
+     * @return the response, completed when it is received and parsed.
+     */
+    public CompletableFuture<Response> sendAsync(Request request) {
+        return sendAsync(request, null);
+    }
+
+    /**
+     * Sends the request without blocking the calling thread.
+     *
+     * @param request     the request to solve
+     * @param requestFile the file holding the compact JSON of the request, or null to serialize the request
+     * @return the response, completed when it is received and parsed.
+     */
+    public CompletableFuture<Response> sendAsync(Request request, Path requestFile) {
+        Body body;
+        try {
+            body = prepareBody(request, requestFile);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
         try {
-            String url = String.format(SOLVER_URL_FORMAT, baseUrl, port);
-            log.info("Sending request to {}...", url);
-            String json = pipe.getRequest().toJSON();
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url))
-                    .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json)).build();
-            HttpResponse<String> httpResponse = client.send(request, HttpResponse.BodyHandlers.ofString());
-            log.info("Received HTTP response with status code: {}", httpResponse.statusCode());
-            if (httpResponse.statusCode() == 200) {
-                ObjectMapper objectMapper = new ObjectMapper();
-                objectMapper.registerModule(new JavaTimeModule());
-                Response response = objectMapper.readValue(httpResponse.body(), Response.class);
-                pipe.setResponse(response);
-                log.info("Successfully parsed the response: {}", response.getInfo());
+            return client.sendAsync(buildRequest(body), HttpResponse.BodyHandlers.ofInputStream())
+                    .thenApply(httpResponse -> {
+                        try {
+                            return parse(httpResponse);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }).whenComplete((ignored, e) -> body.deleteIfTemporary());
+        } catch (IOException e) {
+            body.deleteIfTemporary();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Provides the request body as a file: the request file as is, or a temporary file holding the streamed or
+     * compressed request.
+     */
+    private Body prepareBody(Request request, Path requestFile) throws IOException {
+        if (requestFile != null && !compressRequests) {
+            return new Body(requestFile, false);
+        }
+        Body body = new Body(Files.createTempFile("rssched_request", compressRequests ? ".json.gz" : ".json"), true);
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(body.file()), 1 << 16);
+             OutputStream out = compressRequests ? new GZIPOutputStream(file, 1 << 16) : file) {
+            if (requestFile != null) {
+                Files.copy(requestFile, out);
             } else {
-                throw new IOException("Received response: Status Code = " + httpResponse.statusCode());
+                request.writeJSON(out);
+            }
+        } catch (IOException | RuntimeException e) {
+            body.deleteIfTemporary();
+            throw e;
+        }
+        if (compressRequests) {
+            log.info("Compressed request body to {} bytes", Files.size(body.file()));
+        }
+        return body;
+    }
+
+    private HttpRequest buildRequest(Body body) throws IOException {
+        log.info("Sending request to {}...", url);
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(URI.create(url)).timeout(requestTimeout)
+                .header("Content-Type", "application/json").header("Accept-Encoding", GZIP)
+                .POST(HttpRequest.BodyPublishers.ofFile(body.file()));
+        if (compressRequests) {
+            builder.header("Content-Encoding", GZIP);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The file posted to the scheduler.
+     *
+     * @param temporary true if the file was created by the sender and is deleted after the request.
+     */
+    private record Body(Path file, boolean temporary) {
+        void deleteIfTemporary() {
+            if (temporary) {
+                delete(file);
             }
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
         }
     }
 }
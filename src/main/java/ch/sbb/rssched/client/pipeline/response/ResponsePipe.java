@@ -3,17 +3,55 @@ package ch.sbb.rssched.client.pipeline.response;
 import ch.sbb.rssched.client.dto.request.Request;
 import ch.sbb.rssched.client.dto.response.Response;
 import ch.sbb.rssched.client.pipeline.core.Pipe;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
-@RequiredArgsConstructor
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Getter
 public class ResponsePipe implements Pipe {
 
     private final String runId;
     private final Request request;
+    /**
+     * The file holding the compact JSON of the request, null if the request was not written to a file.
+     */
+    private final Path requestFile;
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<Void> requestExports;
     @Setter
     private Response response;
 
+    public ResponsePipe(String runId, Request request) {
+        this(runId, request, null, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * @param requestFile    the file holding the compact JSON of the request, or null.
+     * @param requestExports the exports of the request pipeline, which may still be running.
+     */
+    public ResponsePipe(String runId, Request request, Path requestFile, CompletableFuture<Void> requestExports) {
+        this.runId = runId;
+        this.request = request;
+        this.requestFile = requestFile;
+        this.requestExports = requestExports;
+    }
+
+    /**
+     * Waits for the exports of the request pipeline and rethrows their failure.
+     */
+    public void awaitRequestExports() {
+        try {
+            requestExports.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
 }
@@ -7,11 +7,21 @@ import ch.sbb.rssched.client.pipeline.request.RequestPipeline;
 public class ResponsePipeline extends Pipeline<ResponsePipe> {
 
     public ResponsePipeline(RsschedRequestConfig config, String baseUrl, int port) {
+        this(config, new RequestSender(baseUrl, port));
+    }
+
+    /**
+     * @param config the request configuration
+     * @param sender the sender of the request, which can be shared between pipelines to reuse its connection
+     */
+    public ResponsePipeline(RsschedRequestConfig config, RequestSender sender) {
         super(new RequestCollector(new RequestPipeline(config)));
         // add filter
-        addFilter(new RequestSender(baseUrl, port));
+        addFilter(sender);
         // add sink
         addSink(new ResponseJSONWriter(config.getOutputDirectory(), config.getInstanceId()));
+        // the request exports run while the request is solved
+        addSink(ResponsePipe::awaitRequestExports);
     }
 
 }
@@ -48,6 +48,11 @@ class LineSelectionCSVWriter implements ResultSink<ScenarioPipe> {
         }
     }
 
+    @Override
+    public boolean isIndependent() {
+        return true;
+    }
+
     @Override
     public void process(ScenarioPipe pipe) {
         String filePath = new OutputDirectoryManager(outputDirectory, pipe.runId, instanceId).buildFilePath(
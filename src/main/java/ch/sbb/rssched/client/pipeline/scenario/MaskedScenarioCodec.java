@@ -0,0 +1,29 @@
+package ch.sbb.rssched.client.pipeline.scenario;
+
+import ch.sbb.rssched.client.pipeline.core.PipeCodec;
+import ch.sbb.rssched.client.pipeline.utils.io.ScenarioSnapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Checkpoints the masked scenario of the pipe in the binary format of the scenario snapshot.
+ * <p>
+ * The masked scenario holds no attributes except the CRS, which the snapshot format stores, so a restored scenario is
+ * exported the same as the masked one.
+ *
+ * @author munterfi
+ */
+class MaskedScenarioCodec implements PipeCodec<ScenarioPipe> {
+
+    @Override
+    public void write(DataOutputStream out, ScenarioPipe pipe) throws IOException {
+        ScenarioSnapshot.writeScenario(out, pipe.scenario);
+    }
+
+    @Override
+    public void read(DataInputStream in, ScenarioPipe pipe) throws IOException {
+        ScenarioSnapshot.readScenario(in, pipe.scenario);
+    }
+}
@@ -8,43 +8,146 @@ import org.matsim.api.core.v01.network.NetworkWriter;
 import org.matsim.pt.transitSchedule.api.TransitScheduleWriter;
 import org.matsim.vehicles.MatsimVehicleWriter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * Exports the processed scenario of the pipeline to the specified output directory.
  * <p>
  * Creates the following files: network.xml.gz, transitSchedule.xml.gz, transitVehicle.xml.gz
+ * <p>
+ * The three files are written concurrently on background threads. The sink is independent, so the export overlaps
+ * with the other sinks of the pipeline, and joins its writers so that a failed export fails the pipeline. The files
+ * are gzipped with the configured compression level, level 0 writes uncompressed .xml files.
  *
  * @author munterfi
  */
 @Log4j2
 class ScenarioExporter implements ResultSink<ScenarioPipe> {
-    private static final String NETWORK_FILE = "network.xml.gz";
-    private static final String TRANSIT_SCHEDULE_FILE = "transitSchedule.xml.gz";
-    private static final String TRANSIT_VEHICLES_FILE = "transitVehicles.xml.gz";
+    static final int NO_COMPRESSION = 0;
+    static final int DEFAULT_COMPRESSION = 6;
+    private static final String NETWORK_FILE = "network.xml";
+    private static final String TRANSIT_SCHEDULE_FILE = "transitSchedule.xml";
+    private static final String TRANSIT_VEHICLES_FILE = "transitVehicles.xml";
+    private static final String GZIP_EXTENSION = ".gz";
     private final String outputDirectory;
     private final String instanceId;
+    private final int compressionLevel;
 
     /**
-     * Constructs a ScenarioExporter with the specified output directory.
+     * Constructs a ScenarioExporter with the specified output directory and the default compression level.
      *
      * @param outputDirectory the directory to export the scenario files to
      */
     public ScenarioExporter(String outputDirectory, String instanceId) {
+        this(outputDirectory, instanceId, DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructs a ScenarioExporter with the specified output directory and compression level.
+     *
+     * @param outputDirectory  the directory to export the scenario files to
+     * @param compressionLevel the gzip compression level from 1 to 9, or 0 for uncompressed files
+     */
+    public ScenarioExporter(String outputDirectory, String instanceId, int compressionLevel) {
+        if (compressionLevel < NO_COMPRESSION || compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + compressionLevel);
+        }
         this.outputDirectory = outputDirectory;
         this.instanceId = instanceId;
+        this.compressionLevel = compressionLevel;
+    }
+
+    private static void compress(Path source, Path target, int level) {
+        try (InputStream in = Files.newInputStream(source); OutputStream out = new GZIPOutputStream(
+                Files.newOutputStream(target), 1 << 16) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.delete(source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isIndependent() {
+        return true;
     }
 
     @Override
     public void process(ScenarioPipe pipe) {
-        export(pipe.scenario, pipe.runId);
+        try {
+            export(pipe.scenario, pipe.runId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
     }
 
-    private void export(Scenario scenario, String runId) {
+    /**
+     * Starts the export of the scenario files.
+     *
+     * @return the export, completed when all files are written.
+     */
+    CompletableFuture<Void> export(Scenario scenario, String runId) {
         var directoryUtil = new OutputDirectoryManager(outputDirectory, runId, instanceId);
-        new NetworkWriter(scenario.getNetwork()).write(directoryUtil.buildFilePath(NETWORK_FILE));
-        new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(
-                directoryUtil.buildFilePath(TRANSIT_SCHEDULE_FILE));
-        new MatsimVehicleWriter(scenario.getTransitVehicles()).writeFile(
-                directoryUtil.buildFilePath(TRANSIT_VEHICLES_FILE));
-        log.info("Processed scenario successfully exported to: {}", directoryUtil.getPath());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<Void> network = write(directoryUtil, NETWORK_FILE,
+                    file -> new NetworkWriter(scenario.getNetwork()).write(file), executor);
+            CompletableFuture<Void> transitSchedule = write(directoryUtil, TRANSIT_SCHEDULE_FILE,
+                    file -> new TransitScheduleWriter(scenario.getTransitSchedule()).writeFile(file), executor);
+            CompletableFuture<Void> transitVehicles = write(directoryUtil, TRANSIT_VEHICLES_FILE,
+                    file -> new MatsimVehicleWriter(scenario.getTransitVehicles()).writeFile(file), executor);
+            return CompletableFuture.allOf(network, transitSchedule, transitVehicles).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    log.error("Failed to export processed scenario to: {}", directoryUtil.getPath(), e);
+                } else {
+                    log.info("Processed scenario successfully exported to: {}", directoryUtil.getPath());
+                }
+            });
+        } finally {
+            // the submitted writers still complete, the threads terminate afterward
+            executor.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> write(OutputDirectoryManager directoryUtil, String fileName, Consumer<String> writer, ExecutorService executor) {
+        String file = directoryUtil.buildFilePath(fileName);
+        return CompletableFuture.runAsync(() -> {
+            var startTime = Instant.now();
+            if (compressionLevel == NO_COMPRESSION) {
+                writer.accept(file);
+            } else if (compressionLevel == DEFAULT_COMPRESSION) {
+                // MATSim writers gzip with the default level based on the extension
+                writer.accept(file + GZIP_EXTENSION);
+            } else {
+                writer.accept(file);
+                compress(Path.of(file), Path.of(file + GZIP_EXTENSION), compressionLevel);
+            }
+            log.info("Exported {} in {} seconds", fileName,
+                    Duration.between(startTime, Instant.now()).toMillis() / 1000.0);
+        }, executor);
     }
 }
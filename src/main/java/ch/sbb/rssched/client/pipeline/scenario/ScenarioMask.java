@@ -0,0 +1,224 @@
+package ch.sbb.rssched.client.pipeline.scenario;
+
+import ch.sbb.rssched.client.pipeline.core.Filter;
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.attributable.Attributable;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.matsim.vehicles.Vehicles;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Masks the scenario based on transit line IDs of interest.
+ * <p>
+ * Copies the transit lines of interest from the source scenario into the scenario of the pipe in one pass, marking the
+ * reachable stop facilities, vehicles, vehicle types, links and nodes in bit sets indexed by {@link Id#index()}. The
+ * cost is linear in the size of the selection, independent of the size of the source scenario.
+ * <p>
+ * Lines, routes, facilities, vehicles and vehicle types are copied without attributes, stops, network routes and
+ * departures are shared with the source. The links used by the routes and stop facilities are copied with their nodes,
+ * without attributes. Of the schedule and network attributes only the CRS is kept, minimal transfer times are not
+ * copied. The masked scenario is therefore the same whether the source was loaded from the XML files, selectively or
+ * from the scenario snapshot.
+ *
+ * @author munterfi
+ */
+@Log4j2
+class ScenarioMask implements Filter<ScenarioPipe> {
+
+    private static boolean mark(BitSet marks, Id<?> id) {
+        if (marks.get(id.index())) {
+            return false;
+        }
+        marks.set(id.index());
+        return true;
+    }
+
+    private static void copyCrs(Attributable source, Attributable target) {
+        String crs = ProjectionUtils.getCRS(source);
+        if (crs != null) {
+            ProjectionUtils.putCRS(target, crs);
+        }
+    }
+
+    private static VehicleType copyVehicleType(VehicleType vehicleType) {
+        VehicleType copy = VehicleUtils.createVehicleType(vehicleType.getId());
+        copy.setDescription(vehicleType.getDescription());
+        copy.setNetworkMode(vehicleType.getNetworkMode());
+        copy.setLength(vehicleType.getLength());
+        copy.setWidth(vehicleType.getWidth());
+        copy.setMaximumVelocity(vehicleType.getMaximumVelocity());
+        copy.setPcuEquivalents(vehicleType.getPcuEquivalents());
+        copy.setFlowEfficiencyFactor(vehicleType.getFlowEfficiencyFactor());
+        VehicleCapacity capacity = vehicleType.getCapacity();
+        copy.getCapacity().setSeats(capacity.getSeats());
+        copy.getCapacity().setStandingRoom(capacity.getStandingRoom());
+        copy.getCapacity().setVolumeInCubicMeters(capacity.getVolumeInCubicMeters());
+        copy.getCapacity().setWeightInTons(capacity.getWeightInTons());
+        copy.getCapacity().setOther(capacity.getOther());
+        return copy;
+    }
+
+    private static TransitStopFacility copyStopFacility(TransitStopFacility stopFacility, TransitScheduleFactory factory) {
+        TransitStopFacility copy = factory.createTransitStopFacility(stopFacility.getId(), stopFacility.getCoord(),
+                stopFacility.getIsBlockingLane());
+        copy.setLinkId(stopFacility.getLinkId());
+        copy.setName(stopFacility.getName());
+        copy.setStopAreaId(stopFacility.getStopAreaId());
+        return copy;
+    }
+
+    @Override
+    public void apply(ScenarioPipe pipe) {
+        maskScenario(pipe.source, pipe.scenario, pipe.selection.getLineIds());
+    }
+
+    private void maskScenario(Scenario source, Scenario target, Iterable<Id<TransitLine>> transitLineIds) {
+        TransitSchedule sourceSchedule = source.getTransitSchedule();
+        log.info("Masking scenario (lines: {}, stops: {}, vehicles: {}, links: {})",
+                sourceSchedule.getTransitLines().size(), sourceSchedule.getFacilities().size(),
+                source.getTransitVehicles().getVehicles().size(), source.getNetwork().getLinks().size());
+        Reachable reachable = new Reachable(source, target);
+        copyCrs(sourceSchedule, target.getTransitSchedule());
+        for (Id<TransitLine> transitLineId : transitLineIds) {
+            reachable.copyTransitLine(sourceSchedule.getTransitLines().get(transitLineId));
+        }
+        reachable.copyNetwork();
+        log.info("Done (remaining lines: {}, stops: {}, vehicles: {}, types: {}, nodes: {}, links: {})",
+                target.getTransitSchedule().getTransitLines().size(),
+                target.getTransitSchedule().getFacilities().size(), target.getTransitVehicles().getVehicles().size(),
+                target.getTransitVehicles().getVehicleTypes().size(), target.getNetwork().getNodes().size(),
+                target.getNetwork().getLinks().size());
+    }
+
+    /**
+     * Marks and copies the elements reachable from the transit lines of interest.
+     */
+    private static class Reachable {
+        private final Scenario source;
+        private final Scenario target;
+        private final BitSet stopFacilities = new BitSet();
+        private final BitSet vehicles = new BitSet();
+        private final BitSet vehicleTypes = new BitSet();
+        private final BitSet links = new BitSet();
+        private final BitSet nodes = new BitSet();
+        private final List<Id<Link>> linkIds = new ArrayList<>();
+
+        private Reachable(Scenario source, Scenario target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        private void copyTransitLine(TransitLine transitLine) {
+            TransitScheduleFactory factory = target.getTransitSchedule().getFactory();
+            TransitLine copy = factory.createTransitLine(transitLine.getId());
+            copy.setName(transitLine.getName());
+            for (TransitRoute transitRoute : transitLine.getRoutes().values()) {
+                TransitRoute routeCopy = factory.createTransitRoute(transitRoute.getId(), transitRoute.getRoute(),
+                        transitRoute.getStops(), transitRoute.getTransportMode());
+                routeCopy.setDescription(transitRoute.getDescription());
+                for (Departure departure : transitRoute.getDepartures().values()) {
+                    routeCopy.addDeparture(departure);
+                    copyVehicle(departure.getVehicleId());
+                }
+                for (TransitRouteStop stop : transitRoute.getStops()) {
+                    copyStopFacility(stop.getStopFacility());
+                }
+                markLinks(transitRoute);
+                copy.addRoute(routeCopy);
+            }
+            target.getTransitSchedule().addTransitLine(copy);
+        }
+
+        private void copyStopFacility(TransitStopFacility stopFacility) {
+            if (mark(stopFacilities, stopFacility.getId())) {
+                TransitSchedule schedule = target.getTransitSchedule();
+                schedule.addStopFacility(ScenarioMask.copyStopFacility(stopFacility, schedule.getFactory()));
+                if (stopFacility.getLinkId() != null) {
+                    markLink(stopFacility.getLinkId());
+                }
+            }
+        }
+
+        private void copyVehicle(Id<Vehicle> vehicleId) {
+            if (vehicleId == null || !mark(vehicles, vehicleId)) {
+                return;
+            }
+            Vehicle vehicle = source.getTransitVehicles().getVehicles().get(vehicleId);
+            Vehicles targetVehicles = target.getTransitVehicles();
+            if (mark(vehicleTypes, vehicle.getType().getId())) {
+                targetVehicles.addVehicleType(copyVehicleType(vehicle.getType()));
+            }
+            targetVehicles.addVehicle(VehicleUtils.createVehicle(vehicleId,
+                    targetVehicles.getVehicleTypes().get(vehicle.getType().getId())));
+        }
+
+        private void markLinks(TransitRoute transitRoute) {
+            NetworkRoute networkRoute = transitRoute.getRoute();
+            if (networkRoute == null) {
+                return;
+            }
+            markLink(networkRoute.getStartLinkId());
+            networkRoute.getLinkIds().forEach(this::markLink);
+            markLink(networkRoute.getEndLinkId());
+        }
+
+        private void markLink(Id<Link> linkId) {
+            if (mark(links, linkId)) {
+                linkIds.add(linkId);
+            }
+        }
+
+        /**
+         * Copies the marked links and their nodes. Nothing is copied if the network was not loaded, a link missing in a
+         * loaded network is an error.
+         */
+        private void copyNetwork() {
+            Network sourceNetwork = source.getNetwork();
+            Network targetNetwork = target.getNetwork();
+            targetNetwork.setCapacityPeriod(sourceNetwork.getCapacityPeriod());
+            copyCrs(sourceNetwork, targetNetwork);
+            if (sourceNetwork.getLinks().isEmpty()) {
+                return;
+            }
+            for (Id<Link> linkId : linkIds) {
+                Link link = sourceNetwork.getLinks().get(linkId);
+                if (link == null) {
+                    throw new IllegalStateException(
+                            "Link " + linkId + " of the masked transit lines is missing in the network");
+                }
+                Link copy = NetworkUtils.createAndAddLink(targetNetwork, linkId, copyNode(link.getFromNode()),
+                        copyNode(link.getToNode()), link.getLength(), link.getFreespeed(), link.getCapacity(),
+                        link.getNumberOfLanes());
+                copy.setAllowedModes(link.getAllowedModes());
+            }
+        }
+
+        private Node copyNode(Node node) {
+            if (mark(nodes, node.getId())) {
+                return NetworkUtils.createAndAddNode(target.getNetwork(), node.getId(), node.getCoord());
+            }
+            return target.getNetwork().getNodes().get(node.getId());
+        }
+    }
+}
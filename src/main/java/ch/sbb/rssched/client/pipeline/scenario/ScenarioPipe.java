@@ -8,17 +8,22 @@ import org.matsim.api.core.v01.Scenario;
 /**
  * A container for transporting a scenario, the run id and the transit lines of interest between filters and result
  * sinks.
+ * <p>
+ * The source scenario is shared with other pipelines and must not be modified, the mask derives the scenario of the
+ * pipe from it.
  *
  * @author munterfi
  */
 public class ScenarioPipe implements Pipe {
     final String runId;
+    final Scenario source;
     @Getter
     final Scenario scenario;
     TransitLineSelection selection;
 
-    ScenarioPipe(String runId, Scenario scenario) {
+    ScenarioPipe(String runId, Scenario source, Scenario scenario) {
         this.runId = runId;
+        this.source = source;
         this.scenario = scenario;
     }
 
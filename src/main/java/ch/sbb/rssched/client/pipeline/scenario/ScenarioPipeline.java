@@ -1,14 +1,14 @@
 package ch.sbb.rssched.client.pipeline.scenario;
 
-import ch.sbb.rssched.client.config.selection.FilterStrategy;
 import ch.sbb.rssched.client.pipeline.core.Pipeline;
+import ch.sbb.rssched.client.pipeline.utils.io.SharedScenario;
 
 /**
  * The ScenarioPipeline processes a MATSim SIMBA MOBi scenario for the Innosuisse project REP of SBB and ETH Zurich.
  * <p>
  * It extends the Pipeline class and configures the pipeline with the necessary source, filters and sinks. The pipeline
- * loads the scenario, filters the transit lines, masks the scenario to the remaining transit lines, clears attributes
- * on the scenario and exports the processed scenario files. The main method configures and executes the REP pipeline.
+ * takes the shared scenario with the selected transit lines, derives a scenario masked to the selected transit lines
+ * without attributes and exports the processed scenario files. The shared scenario is not modified.
  *
  * @author munterfi
  */
@@ -18,25 +18,17 @@ public class ScenarioPipeline extends Pipeline<ScenarioPipe> {
      * Constructs a RepPipeline with the specified parameters.
      *
      * @param instanceId      the ID of the RSSched instance (=request) to solve
-     * @param runId           the ID of the scenario run
-     * @param inputDirectory  the input directory containing the scenario data (output files of the simulation)
+     * @param scenario        the scenario with the selected transit lines, shared with other pipelines
      * @param outputDirectory the output directory to export the processed scenario files
-     * @param networkCrs      the coordinate reference system of the network
-     * @param filterStrategy  the strategy for filtering transit lines
+     * @param compressionLevel the gzip compression level of the exported files, 0 for uncompressed files
      */
-    public ScenarioPipeline(String instanceId, String runId, String inputDirectory, String outputDirectory, String networkCrs, FilterStrategy filterStrategy) {
+    public ScenarioPipeline(String instanceId, SharedScenario scenario, String outputDirectory, int compressionLevel) {
         // set source
-        super(new ScenarioSource(runId, inputDirectory, networkCrs));
-        // filter transit lines
-        addFilter(new TransitLineFilter(filterStrategy));
-        // mask scenario
-        addFilter(new TransitScheduleMask());
-        addFilter(new TransitVehicleMask());
-        addFilter(new NetworkMask());
-        // clear attributes
-        addFilter(new AttributeRemover());
+        super(new ScenarioSource(scenario));
+        // derive masked scenario
+        addFilter(new ScenarioMask(), new MaskedScenarioCodec());
         // add sink
         addSink(new LineSelectionCSVWriter(outputDirectory, instanceId));
-        addSink(new ScenarioExporter(outputDirectory, instanceId));
+        addSink(new ScenarioExporter(outputDirectory, instanceId, compressionLevel));
     }
 }
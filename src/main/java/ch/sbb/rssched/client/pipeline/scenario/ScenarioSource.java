@@ -1,32 +1,33 @@
 package ch.sbb.rssched.client.pipeline.scenario;
 
 import ch.sbb.rssched.client.pipeline.core.DataSource;
-import ch.sbb.rssched.client.pipeline.utils.io.ScenarioLoader;
+import ch.sbb.rssched.client.pipeline.utils.io.SharedScenario;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.scenario.ScenarioUtils;
 
 /**
- * Loads a scenario for further processing in a pipeline,
+ * Provides the shared scenario and an empty scenario for the derived view of the pipeline.
  *
  * @author munterfi
  */
 class ScenarioSource implements DataSource<ScenarioPipe> {
-    private final String runId;
-    private final String inputFolder;
-    private final String networkCrs;
+    private final SharedScenario scenario;
 
     /**
-     * Constructs a ScenarioLoader object with the specified run ID and input folder.
+     * Constructs a ScenarioSource object with the specified shared scenario.
      *
-     * @param runId       the ID of the simulation run
-     * @param inputFolder the folder containing the output files of the run
+     * @param scenario the scenario shared with other pipelines
      */
-    public ScenarioSource(String runId, String inputFolder, String networkCrs) {
-        this.runId = runId;
-        this.inputFolder = inputFolder;
-        this.networkCrs = networkCrs;
+    public ScenarioSource(SharedScenario scenario) {
+        this.scenario = scenario;
     }
 
     @Override
     public ScenarioPipe fetch() {
-        return new ScenarioPipe(runId, new ScenarioLoader(runId, inputFolder, networkCrs).load());
+        Scenario source = scenario.getScenario();
+        ScenarioPipe pipe = new ScenarioPipe(scenario.getRunId(), source,
+                ScenarioUtils.createScenario(source.getConfig()));
+        pipe.selection = scenario.getSelection();
+        return pipe;
     }
 }
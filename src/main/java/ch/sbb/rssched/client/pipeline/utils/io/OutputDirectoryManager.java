@@ -29,7 +29,8 @@ public class OutputDirectoryManager {
         File directory = new File(path);
         if (!directory.exists()) {
             boolean created = directory.mkdirs();
-            if (!created) {
+            // the directory may have been created concurrently by another sink
+            if (!created && !directory.isDirectory()) {
                 log.error("Failed to create directory: {}", path);
             }
         }
@@ -1,10 +1,34 @@
 package ch.sbb.rssched.client.pipeline.utils.io;
 
+import ch.sbb.rssched.client.config.RsschedRequestConfig;
+import ch.sbb.rssched.client.config.selection.FilterStrategy;
+import ch.sbb.rssched.client.config.selection.TransitLineSelection;
 import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.vehicles.MatsimVehicleReader;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Log4j2
 public class ScenarioLoader {
@@ -12,9 +36,16 @@ public class ScenarioLoader {
     private static final String TRANSIT_SCHEDULE_FILE = "output_transitSchedule.xml.gz";
     private static final String TRANSIT_VEHICLES_FILE = "output_transitVehicles.xml.gz";
     private static final String EVENTS_FILE = "output_events.xml.gz";
+    private static final String SNAPSHOT_FILE = "scenario_snapshot.bin";
     private final String runId;
     private final String inputFolder;
     private final String networkCrs;
+    private final boolean snapshot;
+    private final boolean parallel;
+    private final FilterStrategy filterStrategy;
+    private final boolean selectiveTransit;
+    private final boolean selectiveNetwork;
+    private TransitLineSelection selection;
 
     /**
      * Constructs a ScenarioLoader object with the specified run ID, input folder and the CRS.
@@ -26,9 +57,36 @@ public class ScenarioLoader {
      * @param networkCrs  the coordinate reference system of the network
      */
     public ScenarioLoader(String runId, String inputFolder, String networkCrs) {
+        this(runId, inputFolder, networkCrs, null, false, false, false, false);
+    }
+
+    /**
+     * Constructs a ScenarioLoader object with the loading options of the performance configuration: reading the
+     * scenario from a binary snapshot next to the input files, parsing the input files concurrently and only loading
+     * the transit routes and network links selected by the filter strategy. The snapshot is written after loading the
+     * input files if it is missing or outdated.
+     *
+     * @param runId          the ID of the simulation run
+     * @param inputFolder    the folder containing the output files of the run
+     * @param networkCrs     the coordinate reference system of the network
+     * @param filterStrategy the strategy selecting the transit routes
+     * @param performance    the loading options
+     */
+    public ScenarioLoader(String runId, String inputFolder, String networkCrs, FilterStrategy filterStrategy, RsschedRequestConfig.Performance performance) {
+        this(runId, inputFolder, networkCrs, filterStrategy, performance.isScenarioSnapshot(),
+                performance.isParallelScenarioLoading(), performance.isSelectiveScenarioLoading(),
+                performance.isSelectiveNetworkLoading());
+    }
+
+    private ScenarioLoader(String runId, String inputFolder, String networkCrs, FilterStrategy filterStrategy, boolean snapshot, boolean parallel, boolean selectiveTransit, boolean selectiveNetwork) {
         this.runId = runId;
         this.inputFolder = inputFolder;
         this.networkCrs = networkCrs;
+        this.filterStrategy = filterStrategy;
+        this.snapshot = snapshot;
+        this.parallel = parallel;
+        this.selectiveTransit = selectiveTransit;
+        this.selectiveNetwork = selectiveNetwork && networkCrs != null;
     }
 
     /**
@@ -53,7 +111,146 @@ public class ScenarioLoader {
         config.transit().setUseTransit(true);
         config.transit().setTransitScheduleFile(scheduleFile);
         config.transit().setVehiclesFile(vehiclesFile);
-        return ScenarioUtils.loadScenario(config);
+        return snapshot ? loadWithSnapshot(config) : loadInputFiles(config);
+    }
+
+    /**
+     * Reads the input files into the containers of one scenario, the CRS handling matches the one of
+     * {@link ScenarioUtils#loadScenario(Config)}. The network is independent of the transit files and is read
+     * concurrently in parallel mode; the selective transit reader needs the vehicles before the schedule, so both are
+     * read by one task. The selective network reader needs the selected routes, so it runs after the transit files.
+     */
+    private Scenario loadInputFiles(Config config) {
+        if (!parallel && !selectiveTransit && !selectiveNetwork) {
+            return ScenarioUtils.loadScenario(config);
+        }
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        List<Runnable> readers = new ArrayList<>();
+        if (networkCrs != null && !selectiveNetwork) {
+            readers.add(timed(NETWORK_FILE,
+                    () -> new MatsimNetworkReader(null, networkCrs, scenario.getNetwork()).readFile(
+                            buildPath(NETWORK_FILE))));
+        }
+        if (selectiveTransit) {
+            SelectiveTransitReader reader = new SelectiveTransitReader(filterStrategy, networkCrs, scenario);
+            Runnable vehiclesReader = timed(TRANSIT_VEHICLES_FILE,
+                    () -> reader.readVehiclesFile(buildPath(TRANSIT_VEHICLES_FILE)));
+            Runnable scheduleReader = timed(TRANSIT_SCHEDULE_FILE,
+                    () -> reader.readTransitScheduleFile(buildPath(TRANSIT_SCHEDULE_FILE)));
+            readers.add(() -> {
+                vehiclesReader.run();
+                scheduleReader.run();
+            });
+        } else {
+            readers.add(timed(TRANSIT_SCHEDULE_FILE,
+                    () -> new TransitScheduleReader(null, networkCrs, scenario).readFile(
+                            buildPath(TRANSIT_SCHEDULE_FILE))));
+            readers.add(timed(TRANSIT_VEHICLES_FILE,
+                    () -> new MatsimVehicleReader(scenario.getTransitVehicles()).readFile(
+                            buildPath(TRANSIT_VEHICLES_FILE))));
+        }
+        if (parallel) {
+            runConcurrently(readers);
+        } else {
+            readers.forEach(Runnable::run);
+        }
+        if (selectiveNetwork) {
+            timed(NETWORK_FILE, () -> new SelectiveNetworkReader(collectLinkIds(scenario), networkCrs,
+                    scenario.getNetwork()).readFile(buildPath(NETWORK_FILE))).run();
+        }
+        return scenario;
+    }
+
+    /**
+     * Collects the links of all transit routes of the selected transit lines and their stop facilities, as the scenario
+     * mask copies the selected lines with all their routes. The selection is kept for {@link #getSelection()}.
+     */
+    private Set<Id<Link>> collectLinkIds(Scenario scenario) {
+        Set<Id<Link>> linkIds = new HashSet<>();
+        selection = filterStrategy.filter(scenario);
+        for (TransitLineSelection.Entry entry : selection) {
+            TransitLine transitLine = scenario.getTransitSchedule().getTransitLines().get(entry.lineId());
+            for (TransitRoute transitRoute : transitLine.getRoutes().values()) {
+                NetworkRoute networkRoute = transitRoute.getRoute();
+                if (networkRoute != null) {
+                    linkIds.add(networkRoute.getStartLinkId());
+                    linkIds.addAll(networkRoute.getLinkIds());
+                    linkIds.add(networkRoute.getEndLinkId());
+                }
+                for (TransitRouteStop stop : transitRoute.getStops()) {
+                    if (stop.getStopFacility().getLinkId() != null) {
+                        linkIds.add(stop.getStopFacility().getLinkId());
+                    }
+                }
+            }
+        }
+        return linkIds;
+    }
+
+    private void runConcurrently(List<Runnable> readers) {
+        ExecutorService executor = Executors.newFixedThreadPool(readers.size());
+        try {
+            CompletableFuture.allOf(readers.stream().map(reader -> CompletableFuture.runAsync(reader, executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Runnable timed(String fileType, Runnable reader) {
+        return () -> {
+            var startTime = Instant.now();
+            reader.run();
+            log.info("Read {} in {} seconds", buildRelativeFileName(fileType),
+                    Duration.between(startTime, Instant.now()).toMillis() / 1000.0);
+        };
+    }
+
+    private Scenario loadWithSnapshot(Config config) {
+        Path snapshotFile = Path.of(buildPath(SNAPSHOT_FILE));
+        List<Path> inputFiles = getScenarioFiles();
+        String selection = null;
+        if (selectiveTransit || selectiveNetwork) {
+            String description = filterStrategy.getDescription();
+            if (description == null) {
+                log.info("Skipping scenario snapshot, the filter strategy has no stable description");
+                return loadInputFiles(config);
+            }
+            selection = String.format("transit=%s, network=%s, %s", selectiveTransit, selectiveNetwork, description);
+        }
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        if (ScenarioSnapshot.read(snapshotFile, inputFiles, networkCrs, selection, scenario)) {
+            return scenario;
+        }
+        scenario = loadInputFiles(config);
+        ScenarioSnapshot.write(snapshotFile, inputFiles, networkCrs, selection, scenario);
+        return scenario;
+    }
+
+    /**
+     * @return the network, transit schedule and transit vehicles files the scenario is loaded from.
+     */
+    public List<Path> getScenarioFiles() {
+        List<Path> inputFiles = new ArrayList<>();
+        if (networkCrs != null) {
+            inputFiles.add(Path.of(buildPath(NETWORK_FILE)));
+        }
+        inputFiles.add(Path.of(buildPath(TRANSIT_SCHEDULE_FILE)));
+        inputFiles.add(Path.of(buildPath(TRANSIT_VEHICLES_FILE)));
+        return inputFiles;
+    }
+
+    /**
+     * @return the selection of transit lines computed while loading the network selectively, null if the scenario was
+     * loaded without it.
+     */
+    public TransitLineSelection getSelection() {
+        return selection;
     }
 
     public String getEventsFile() {
@@ -0,0 +1,455 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleCapacity;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.matsim.vehicles.Vehicles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scenario snapshot
+ * <p>
+ * Compact binary copy of the network, transit schedule and transit vehicles of a loaded scenario, which is read back
+ * much faster than the gzipped XML files. The snapshot is guarded by the size and modification time of the input files,
+ * the network CRS and the selection applied while loading, any change of them invalidates the snapshot.
+ * <p>
+ * The snapshot holds everything the pipelines use: the network and schedule CRS, nodes, links, stop facilities,
+ * transit lines with their routes, stops and departures, as well as vehicle types and vehicles. Attributes other than
+ * the CRS and minimal transfer times are not stored, the scenario mask drops them on every loading path.
+ * <p>
+ * The snapshot is an optional cache: if it cannot be written, for example next to read-only input files, a warning is
+ * logged and the run continues with the loaded scenario. A corrupt snapshot is deleted and the scenario is loaded from
+ * the input files.
+ * <p>
+ * The binary format of the scenario is also used by the pipeline checkpoints of derived scenarios.
+ *
+ * @author munterfi
+ */
+@Log4j2
+public final class ScenarioSnapshot {
+    private static final int MAGIC = 0x52535353; // RSSS
+    private static final int VERSION = 3;
+
+    private ScenarioSnapshot() {
+    }
+
+    /**
+     * Reads the snapshot into an empty scenario, if the snapshot exists and matches the input files.
+     *
+     * @param file       the snapshot file.
+     * @param inputFiles the input files the scenario is loaded from.
+     * @param networkCrs the CRS of the network, null if the network is not loaded.
+     * @param selection  the description of the selection applied while loading, null if everything is loaded.
+     * @param scenario   the empty scenario to read into, emptied again if the snapshot is corrupt.
+     * @return true if the snapshot was read, false if it is missing, outdated or corrupt.
+     */
+    static boolean read(Path file, List<Path> inputFiles, String networkCrs, String selection, Scenario scenario) {
+        if (!Files.exists(file)) {
+            log.info("No scenario snapshot found at {}", file);
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(String.valueOf(networkCrs))
+                    || !in.readUTF().equals(String.valueOf(selection)) || !matchesInputFiles(in, inputFiles)) {
+                log.info("Ignoring outdated scenario snapshot {}", file);
+                return false;
+            }
+            readScenario(in, scenario);
+            log.info("Read scenario snapshot {}", file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring corrupt scenario snapshot {}: {}", file, e.toString());
+            deleteQuietly(file);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot of the scenario, the file is replaced atomically. Failures are logged and ignored.
+     *
+     * @param file       the snapshot file.
+     * @param inputFiles the input files the scenario was loaded from.
+     * @param networkCrs the CRS of the network, null if the network was not loaded.
+     * @param selection  the description of the selection applied while loading, null if everything was loaded.
+     * @param scenario   the loaded scenario.
+     */
+    static void write(Path file, List<Path> inputFiles, String networkCrs, String selection, Scenario scenario) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(String.valueOf(networkCrs));
+                out.writeUTF(String.valueOf(selection));
+                out.writeInt(inputFiles.size());
+                for (Path inputFile : inputFiles) {
+                    out.writeUTF(inputFile.getFileName().toString());
+                    out.writeLong(Files.size(inputFile));
+                    out.writeLong(Files.getLastModifiedTime(inputFile).toMillis());
+                }
+                writeScenario(out, scenario);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote scenario snapshot {}", file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write scenario snapshot {}, continuing without: {}", file, e.toString());
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private static void clear(Scenario scenario) {
+        Network network = scenario.getNetwork();
+        new ArrayList<>(network.getNodes().keySet()).forEach(network::removeNode);
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        new ArrayList<>(schedule.getTransitLines().values()).forEach(schedule::removeTransitLine);
+        new ArrayList<>(schedule.getFacilities().values()).forEach(schedule::removeStopFacility);
+        Vehicles vehicles = scenario.getTransitVehicles();
+        new ArrayList<>(vehicles.getVehicles().keySet()).forEach(vehicles::removeVehicle);
+        new ArrayList<>(vehicles.getVehicleTypes().keySet()).forEach(vehicles::removeVehicleType);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.toString());
+        }
+    }
+
+    /**
+     * Writes the network, transit schedule and transit vehicles of the scenario in the binary format of the snapshot.
+     *
+     * @param out      the stream to write to.
+     * @param scenario the scenario to write.
+     */
+    public static void writeScenario(DataOutputStream out, Scenario scenario) throws IOException {
+        writeNetwork(out, scenario.getNetwork());
+        writeTransitSchedule(out, scenario.getTransitSchedule());
+        writeVehicles(out, scenario.getTransitVehicles());
+    }
+
+    /**
+     * Reads the network, transit schedule and transit vehicles written by {@link #writeScenario} into an empty
+     * scenario. If the read fails, the scenario is emptied again before the failure is rethrown.
+     *
+     * @param in       the stream to read from.
+     * @param scenario the empty scenario to read into.
+     */
+    public static void readScenario(DataInputStream in, Scenario scenario) throws IOException {
+        try {
+            readNetwork(in, scenario.getNetwork());
+            readTransitSchedule(in, scenario.getTransitSchedule());
+            readVehicles(in, scenario.getTransitVehicles());
+        } catch (IOException | RuntimeException e) {
+            clear(scenario);
+            throw e;
+        }
+    }
+
+    private static boolean matchesInputFiles(DataInputStream in, List<Path> inputFiles) throws IOException {
+        if (in.readInt() != inputFiles.size()) {
+            return false;
+        }
+        for (Path inputFile : inputFiles) {
+            if (!in.readUTF().equals(inputFile.getFileName().toString()) || in.readLong() != Files.size(
+                    inputFile) || in.readLong() != Files.getLastModifiedTime(inputFile).toMillis()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeNetwork(DataOutputStream out, Network network) throws IOException {
+        writeNullableString(out, ProjectionUtils.getCRS(network));
+        out.writeDouble(network.getCapacityPeriod());
+        out.writeInt(network.getNodes().size());
+        for (Node node : network.getNodes().values()) {
+            out.writeUTF(node.getId().toString());
+            out.writeDouble(node.getCoord().getX());
+            out.writeDouble(node.getCoord().getY());
+        }
+        out.writeInt(network.getLinks().size());
+        for (Link link : network.getLinks().values()) {
+            out.writeUTF(link.getId().toString());
+            out.writeUTF(link.getFromNode().getId().toString());
+            out.writeUTF(link.getToNode().getId().toString());
+            out.writeDouble(link.getLength());
+            out.writeDouble(link.getFreespeed());
+            out.writeDouble(link.getCapacity());
+            out.writeDouble(link.getNumberOfLanes());
+            out.writeUTF(CollectionUtils.setToString(link.getAllowedModes()));
+        }
+    }
+
+    private static void readNetwork(DataInputStream in, Network network) throws IOException {
+        String crs = readNullableString(in);
+        if (crs != null) {
+            ProjectionUtils.putCRS(network, crs);
+        }
+        network.setCapacityPeriod(in.readDouble());
+        int nodeCount = in.readInt();
+        for (int i = 0; i < nodeCount; i++) {
+            NetworkUtils.createAndAddNode(network, Id.createNodeId(in.readUTF()),
+                    new Coord(in.readDouble(), in.readDouble()));
+        }
+        int linkCount = in.readInt();
+        for (int i = 0; i < linkCount; i++) {
+            Id<Link> linkId = Id.createLinkId(in.readUTF());
+            Node fromNode = network.getNodes().get(Id.createNodeId(in.readUTF()));
+            Node toNode = network.getNodes().get(Id.createNodeId(in.readUTF()));
+            Link link = NetworkUtils.createAndAddLink(network, linkId, fromNode, toNode, in.readDouble(),
+                    in.readDouble(), in.readDouble(), in.readDouble());
+            link.setAllowedModes(CollectionUtils.stringToSet(in.readUTF()));
+        }
+    }
+
+    private static void writeTransitSchedule(DataOutputStream out, TransitSchedule schedule) throws IOException {
+        writeNullableString(out, ProjectionUtils.getCRS(schedule));
+        out.writeInt(schedule.getFacilities().size());
+        for (TransitStopFacility facility : schedule.getFacilities().values()) {
+            out.writeUTF(facility.getId().toString());
+            out.writeDouble(facility.getCoord().getX());
+            out.writeDouble(facility.getCoord().getY());
+            out.writeBoolean(facility.getIsBlockingLane());
+            writeNullableString(out, facility.getLinkId() == null ? null : facility.getLinkId().toString());
+            writeNullableString(out, facility.getName());
+            writeNullableString(out, facility.getStopAreaId() == null ? null : facility.getStopAreaId().toString());
+        }
+        out.writeInt(schedule.getTransitLines().size());
+        for (TransitLine line : schedule.getTransitLines().values()) {
+            out.writeUTF(line.getId().toString());
+            writeNullableString(out, line.getName());
+            out.writeInt(line.getRoutes().size());
+            for (TransitRoute route : line.getRoutes().values()) {
+                writeTransitRoute(out, route);
+            }
+        }
+    }
+
+    private static void writeTransitRoute(DataOutputStream out, TransitRoute route) throws IOException {
+        out.writeUTF(route.getId().toString());
+        out.writeUTF(route.getTransportMode());
+        writeNullableString(out, route.getDescription());
+        NetworkRoute networkRoute = route.getRoute();
+        out.writeBoolean(networkRoute != null);
+        if (networkRoute != null) {
+            out.writeUTF(networkRoute.getStartLinkId().toString());
+            out.writeUTF(networkRoute.getEndLinkId().toString());
+            out.writeInt(networkRoute.getLinkIds().size());
+            for (Id<Link> linkId : networkRoute.getLinkIds()) {
+                out.writeUTF(linkId.toString());
+            }
+        }
+        out.writeInt(route.getStops().size());
+        for (TransitRouteStop stop : route.getStops()) {
+            out.writeUTF(stop.getStopFacility().getId().toString());
+            writeOptionalTime(out, stop.getArrivalOffset());
+            writeOptionalTime(out, stop.getDepartureOffset());
+            out.writeBoolean(stop.isAwaitDepartureTime());
+        }
+        out.writeInt(route.getDepartures().size());
+        for (Departure departure : route.getDepartures().values()) {
+            out.writeUTF(departure.getId().toString());
+            out.writeDouble(departure.getDepartureTime());
+            writeNullableString(out, departure.getVehicleId() == null ? null : departure.getVehicleId().toString());
+        }
+    }
+
+    private static void readTransitSchedule(DataInputStream in, TransitSchedule schedule) throws IOException {
+        TransitScheduleFactory factory = schedule.getFactory();
+        String crs = readNullableString(in);
+        if (crs != null) {
+            ProjectionUtils.putCRS(schedule, crs);
+        }
+        int facilityCount = in.readInt();
+        for (int i = 0; i < facilityCount; i++) {
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create(in.readUTF(), TransitStopFacility.class), new Coord(in.readDouble(), in.readDouble()),
+                    in.readBoolean());
+            String linkId = readNullableString(in);
+            if (linkId != null) {
+                facility.setLinkId(Id.createLinkId(linkId));
+            }
+            facility.setName(readNullableString(in));
+            String stopAreaId = readNullableString(in);
+            if (stopAreaId != null) {
+                facility.setStopAreaId(Id.create(stopAreaId, TransitStopArea.class));
+            }
+            schedule.addStopFacility(facility);
+        }
+        int lineCount = in.readInt();
+        for (int i = 0; i < lineCount; i++) {
+            TransitLine line = factory.createTransitLine(Id.create(in.readUTF(), TransitLine.class));
+            line.setName(readNullableString(in));
+            int routeCount = in.readInt();
+            for (int j = 0; j < routeCount; j++) {
+                line.addRoute(readTransitRoute(in, schedule));
+            }
+            schedule.addTransitLine(line);
+        }
+    }
+
+    private static TransitRoute readTransitRoute(DataInputStream in, TransitSchedule schedule) throws IOException {
+        TransitScheduleFactory factory = schedule.getFactory();
+        Id<TransitRoute> routeId = Id.create(in.readUTF(), TransitRoute.class);
+        String transportMode = in.readUTF();
+        String description = readNullableString(in);
+        NetworkRoute networkRoute = null;
+        if (in.readBoolean()) {
+            Id<Link> startLinkId = Id.createLinkId(in.readUTF());
+            Id<Link> endLinkId = Id.createLinkId(in.readUTF());
+            int linkCount = in.readInt();
+            List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+            for (int i = 0; i < linkCount; i++) {
+                linkIds.add(Id.createLinkId(in.readUTF()));
+            }
+            networkRoute = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+        }
+        int stopCount = in.readInt();
+        List<TransitRouteStop> stops = new ArrayList<>(stopCount);
+        for (int i = 0; i < stopCount; i++) {
+            TransitStopFacility facility = schedule.getFacilities().get(
+                    Id.create(in.readUTF(), TransitStopFacility.class));
+            TransitRouteStop stop = factory.createTransitRouteStop(facility, readOptionalTime(in),
+                    readOptionalTime(in));
+            stop.setAwaitDepartureTime(in.readBoolean());
+            stops.add(stop);
+        }
+        TransitRoute route = factory.createTransitRoute(routeId, networkRoute, stops, transportMode);
+        route.setDescription(description);
+        int departureCount = in.readInt();
+        for (int i = 0; i < departureCount; i++) {
+            Departure departure = factory.createDeparture(Id.create(in.readUTF(), Departure.class), in.readDouble());
+            String vehicleId = readNullableString(in);
+            if (vehicleId != null) {
+                departure.setVehicleId(Id.createVehicleId(vehicleId));
+            }
+            route.addDeparture(departure);
+        }
+        return route;
+    }
+
+    private static void writeVehicles(DataOutputStream out, Vehicles vehicles) throws IOException {
+        out.writeInt(vehicles.getVehicleTypes().size());
+        for (VehicleType type : vehicles.getVehicleTypes().values()) {
+            out.writeUTF(type.getId().toString());
+            writeNullableString(out, type.getDescription());
+            writeNullableString(out, type.getNetworkMode());
+            out.writeDouble(type.getLength());
+            out.writeDouble(type.getWidth());
+            out.writeDouble(type.getMaximumVelocity());
+            out.writeDouble(type.getPcuEquivalents());
+            out.writeDouble(type.getFlowEfficiencyFactor());
+            VehicleCapacity capacity = type.getCapacity();
+            writeNullableInteger(out, capacity.getSeats());
+            writeNullableInteger(out, capacity.getStandingRoom());
+            out.writeDouble(capacity.getVolumeInCubicMeters());
+            out.writeDouble(capacity.getWeightInTons());
+            out.writeDouble(capacity.getOther());
+        }
+        out.writeInt(vehicles.getVehicles().size());
+        for (Vehicle vehicle : vehicles.getVehicles().values()) {
+            out.writeUTF(vehicle.getId().toString());
+            out.writeUTF(vehicle.getType().getId().toString());
+        }
+    }
+
+    private static void readVehicles(DataInputStream in, Vehicles vehicles) throws IOException {
+        int typeCount = in.readInt();
+        for (int i = 0; i < typeCount; i++) {
+            VehicleType type = VehicleUtils.createVehicleType(Id.create(in.readUTF(), VehicleType.class));
+            type.setDescription(readNullableString(in));
+            String networkMode = readNullableString(in);
+            if (networkMode != null) {
+                type.setNetworkMode(networkMode);
+            }
+            type.setLength(in.readDouble());
+            type.setWidth(in.readDouble());
+            type.setMaximumVelocity(in.readDouble());
+            type.setPcuEquivalents(in.readDouble());
+            type.setFlowEfficiencyFactor(in.readDouble());
+            type.getCapacity().setSeats(readNullableInteger(in));
+            type.getCapacity().setStandingRoom(readNullableInteger(in));
+            type.getCapacity().setVolumeInCubicMeters(in.readDouble());
+            type.getCapacity().setWeightInTons(in.readDouble());
+            type.getCapacity().setOther(in.readDouble());
+            vehicles.addVehicleType(type);
+        }
+        int vehicleCount = in.readInt();
+        for (int i = 0; i < vehicleCount; i++) {
+            Id<Vehicle> vehicleId = Id.createVehicleId(in.readUTF());
+            VehicleType type = vehicles.getVehicleTypes().get(Id.create(in.readUTF(), VehicleType.class));
+            vehicles.addVehicle(VehicleUtils.createVehicle(vehicleId, type));
+        }
+    }
+
+    private static void writeOptionalTime(DataOutputStream out, OptionalTime time) throws IOException {
+        out.writeBoolean(time.isDefined());
+        if (time.isDefined()) {
+            out.writeDouble(time.seconds());
+        }
+    }
+
+    private static OptionalTime readOptionalTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? OptionalTime.defined(in.readDouble()) : OptionalTime.undefined();
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readNullableInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
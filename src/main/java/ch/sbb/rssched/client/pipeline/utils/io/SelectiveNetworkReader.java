@@ -0,0 +1,235 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.Time;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selective network reader
+ * <p>
+ * Streaming parser for network (v2) files, which only adds the links of interest and their nodes to the network. The
+ * file is read in a single pass: the coordinates of all nodes, which precede the links, are buffered, then the links of
+ * interest are collected, and finally only their nodes and the links are built. No other graph element is created.
+ * <p>
+ * Attributes are dropped while parsing, except for the CRS of the network; nodes are transformed to the target CRS if
+ * the network CRS differs.
+ *
+ * @author munterfi
+ */
+@Log4j2
+class SelectiveNetworkReader {
+    private static final String ATTRIBUTES = "attributes";
+    private static final String ATTRIBUTE = "attribute";
+    private static final String NODE = "node";
+    private static final String LINKS = "links";
+    private static final String LINK = "link";
+    private static final String ID = "id";
+
+    private final Set<String> linkIds = new HashSet<>();
+    private final String targetCrs;
+    private final Network network;
+    private final List<LinkEntry> links = new ArrayList<>();
+    private final Map<String, Coord> nodes = new HashMap<>();
+    private CoordinateTransformation transformation;
+
+    /**
+     * @param linkIds   the links of interest.
+     * @param targetCrs the CRS of the network, null to keep the CRS of the file.
+     * @param network   the network to read into.
+     */
+    SelectiveNetworkReader(Set<Id<Link>> linkIds, String targetCrs, Network network) {
+        linkIds.forEach(id -> this.linkIds.add(id.toString()));
+        this.targetCrs = targetCrs;
+        this.network = network;
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static double parseDouble(XMLStreamReader reader, String attribute) {
+        return Double.parseDouble(reader.getAttributeValue(null, attribute));
+    }
+
+    private static InputStream open(String file) throws IOException {
+        return IOUtils.getInputStream(IOUtils.resolveFileOrResource(file));
+    }
+
+    /**
+     * Reads the links of interest and their nodes of a (compressed) network file.
+     *
+     * @param networkFile the path to the network file.
+     */
+    void readFile(String networkFile) {
+        try (InputStream in = open(networkFile)) {
+            read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the links of interest and their nodes of an uncompressed network stream.
+     *
+     * @param in the network stream, not closed by the reader.
+     */
+    void read(InputStream in) {
+        int linkCount = 0;
+        try {
+            XMLStreamReader reader = createReader(in);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        continue;
+                    } else if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    depth++;
+                    switch (reader.getLocalName()) {
+                        case ATTRIBUTES -> {
+                            if (depth == 2) {
+                                readNetworkAttributes(reader);
+                            } else {
+                                skipElement(reader);
+                            }
+                            depth--;
+                        }
+                        case NODE -> readNode(reader);
+                        case LINKS -> {
+                            String capacityPeriod = reader.getAttributeValue(null, "capperiod");
+                            if (capacityPeriod != null) {
+                                network.setCapacityPeriod(Time.parseTime(capacityPeriod));
+                            }
+                        }
+                        case LINK -> {
+                            linkCount++;
+                            String id = reader.getAttributeValue(null, ID);
+                            if (linkIds.contains(id)) {
+                                links.add(new LinkEntry(id, reader.getAttributeValue(null, "from"),
+                                        reader.getAttributeValue(null, "to"), parseDouble(reader, "length"),
+                                        parseDouble(reader, "freespeed"), parseDouble(reader, "capacity"),
+                                        parseDouble(reader, "permlanes"), reader.getAttributeValue(null, "modes")));
+                            }
+                        }
+                        default -> {
+                            // network, nodes
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to parse network stream", e);
+        }
+        if (links.size() < linkIds.size()) {
+            log.warn("Network is missing {} of {} links of interest", linkIds.size() - links.size(), linkIds.size());
+        }
+        log.info("Selected {} of {} links", links.size(), linkCount);
+        buildNetwork();
+    }
+
+    private void readNode(XMLStreamReader reader) {
+        String z = reader.getAttributeValue(null, "z");
+        Coord coord = z == null ? new Coord(parseDouble(reader, "x"), parseDouble(reader, "y")) : new Coord(
+                parseDouble(reader, "x"), parseDouble(reader, "y"), Double.parseDouble(z));
+        nodes.put(reader.getAttributeValue(null, ID), coord);
+    }
+
+    private void buildNetwork() {
+        for (LinkEntry entry : links) {
+            Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(entry.id()),
+                    getOrCreateNode(entry.id(), entry.fromNodeId()), getOrCreateNode(entry.id(), entry.toNodeId()),
+                    entry.length(), entry.freespeed(), entry.capacity(), entry.lanes());
+            if (entry.modes() != null) {
+                link.setAllowedModes(CollectionUtils.stringToSet(entry.modes()));
+            }
+        }
+        log.info("Read network (nodes: {}, links: {})", network.getNodes().size(), network.getLinks().size());
+        links.clear();
+        nodes.clear();
+    }
+
+    private Node getOrCreateNode(String linkId, String nodeId) {
+        Id<Node> id = Id.createNodeId(nodeId);
+        Node node = network.getNodes().get(id);
+        if (node != null) {
+            return node;
+        }
+        Coord coord = nodes.get(nodeId);
+        if (coord == null) {
+            throw new IllegalStateException(
+                    String.format("Node %s of link %s is missing in the network file", nodeId, linkId));
+        }
+        if (transformation != null) {
+            coord = transformation.transform(coord);
+        }
+        return NetworkUtils.createAndAddNode(network, id, coord);
+    }
+
+    private void readNetworkAttributes(XMLStreamReader reader) throws XMLStreamException {
+        String inputCrs = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (ATTRIBUTE.equals(reader.getLocalName()) && ProjectionUtils.INPUT_CRS_ATT.equals(
+                    reader.getAttributeValue(null, "name"))) {
+                inputCrs = reader.getElementText();
+            } else {
+                skipElement(reader);
+            }
+        }
+        if (inputCrs != null && targetCrs != null && !inputCrs.equals(targetCrs)) {
+            log.info("Transforming network from {} to {}", inputCrs, targetCrs);
+            transformation = TransformationFactory.getCoordinateTransformation(inputCrs, targetCrs);
+        }
+        String crs = targetCrs != null ? targetCrs : inputCrs;
+        if (crs != null) {
+            ProjectionUtils.putCRS(network, crs);
+        }
+    }
+
+    private record LinkEntry(String id, String fromNodeId, String toNodeId, double length, double freespeed,
+                             double capacity, double lanes, String modes) {
+    }
+}
@@ -0,0 +1,481 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import ch.sbb.rssched.client.config.selection.FilterStrategy;
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopArea;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+import org.matsim.vehicles.Vehicles;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selective transit reader
+ * <p>
+ * Streaming parser for transit vehicles (v2) and transit schedule (v2) files, which only adds the transit routes
+ * selected by a {@link FilterStrategy} to the scenario. The vehicles file is read first, to know the vehicle type of
+ * each departure while the schedule is parsed. A transit route is kept if the vehicle type of its first departure is
+ * selected, routes without departures are kept so the filter strategy can report them. Only the stop facilities,
+ * vehicles and vehicle types used by the kept routes are added.
+ * <p>
+ * Attributes are dropped while parsing, except for the CRS of the schedule; stop facilities are transformed to the
+ * target CRS if the schedule CRS differs. Minimal transfer times are not read.
+ *
+ * @author munterfi
+ */
+@Log4j2
+class SelectiveTransitReader {
+    private static final String ATTRIBUTES = "attributes";
+    private static final String ATTRIBUTE = "attribute";
+    private static final String NAME = "name";
+    private static final String ID = "id";
+    private static final String VEHICLE_TYPE = "vehicleType";
+    private static final String VEHICLE = "vehicle";
+    private static final String TYPE = "type";
+    private static final String DESCRIPTION = "description";
+    private static final String CAPACITY = "capacity";
+    private static final String LENGTH = "length";
+    private static final String WIDTH = "width";
+    private static final String MAXIMUM_VELOCITY = "maximumVelocity";
+    private static final String PASSENGER_CAR_EQUIVALENTS = "passengerCarEquivalents";
+    private static final String NETWORK_MODE = "networkMode";
+    private static final String FLOW_EFFICIENCY_FACTOR = "flowEfficiencyFactor";
+    private static final String STOP_FACILITY = "stopFacility";
+    private static final String MINIMAL_TRANSFER_TIMES = "minimalTransferTimes";
+    private static final String TRANSIT_LINE = "transitLine";
+    private static final String TRANSIT_ROUTE = "transitRoute";
+    private static final String TRANSPORT_MODE = "transportMode";
+    private static final String STOP = "stop";
+    private static final String LINK = "link";
+    private static final String DEPARTURE = "departure";
+    private static final String REF_ID = "refId";
+
+    private final FilterStrategy filterStrategy;
+    private final String targetCrs;
+    private final TransitSchedule schedule;
+    private final Vehicles vehicles;
+    private final Map<String, VehicleType> vehicleTypes = new HashMap<>();
+    private final Map<String, VehicleType> vehicleTypeOfVehicle = new HashMap<>();
+    private final Map<String, TransitStopFacility> facilities = new HashMap<>();
+    private final Set<String> usedVehicleIds = new HashSet<>();
+    private CoordinateTransformation transformation;
+    private String lineId;
+    private String lineName;
+    private TransitLine line;
+    private RouteBuffer route;
+    private int lineCount;
+    private int routeCount;
+    private int selectedRouteCount;
+
+    /**
+     * @param filterStrategy the strategy selecting the transit routes by vehicle type.
+     * @param targetCrs      the CRS of the stop facilities, null to keep the CRS of the schedule.
+     * @param scenario       the scenario to read into.
+     */
+    SelectiveTransitReader(FilterStrategy filterStrategy, String targetCrs, Scenario scenario) {
+        this.filterStrategy = filterStrategy;
+        this.targetCrs = targetCrs;
+        this.schedule = scenario.getTransitSchedule();
+        this.vehicles = scenario.getTransitVehicles();
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static double parseDouble(XMLStreamReader reader, String attribute, double defaultValue) {
+        String value = reader.getAttributeValue(null, attribute);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static OptionalTime parseOptionalTime(String value) {
+        return value == null ? OptionalTime.undefined() : Time.parseOptionalTime(value);
+    }
+
+    private static InputStream open(String file) throws IOException {
+        return IOUtils.getInputStream(IOUtils.resolveFileOrResource(file));
+    }
+
+    /**
+     * Reads the vehicle types and vehicles of a (compressed) transit vehicles file, must be read before the schedule.
+     */
+    void readVehiclesFile(String vehiclesFile) {
+        try (InputStream in = open(vehiclesFile)) {
+            readVehicles(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the selected transit routes of a (compressed) transit schedule file.
+     */
+    void readTransitScheduleFile(String scheduleFile) {
+        try (InputStream in = open(scheduleFile)) {
+            readTransitSchedule(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the vehicle types and vehicles of an uncompressed transit vehicles stream.
+     *
+     * @param in the vehicles stream, not closed by the reader.
+     */
+    void readVehicles(InputStream in) {
+        try {
+            XMLStreamReader reader = createReader(in);
+            try {
+                VehicleType vehicleType = null;
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case VEHICLE_TYPE -> {
+                            vehicleType = VehicleUtils.createVehicleType(
+                                    Id.create(reader.getAttributeValue(null, ID), VehicleType.class));
+                            vehicleTypes.put(vehicleType.getId().toString(), vehicleType);
+                        }
+                        case DESCRIPTION -> vehicleType.setDescription(reader.getElementText());
+                        case CAPACITY -> readCapacity(reader, vehicleType);
+                        case LENGTH -> vehicleType.setLength(parseDouble(reader, "meter", vehicleType.getLength()));
+                        case WIDTH -> vehicleType.setWidth(parseDouble(reader, "meter", vehicleType.getWidth()));
+                        case MAXIMUM_VELOCITY -> vehicleType.setMaximumVelocity(
+                                parseDouble(reader, "meterPerSecond", vehicleType.getMaximumVelocity()));
+                        case PASSENGER_CAR_EQUIVALENTS ->
+                                vehicleType.setPcuEquivalents(parseDouble(reader, "pce", vehicleType.getPcuEquivalents()));
+                        case NETWORK_MODE -> vehicleType.setNetworkMode(reader.getAttributeValue(null, NETWORK_MODE));
+                        case FLOW_EFFICIENCY_FACTOR -> vehicleType.setFlowEfficiencyFactor(
+                                parseDouble(reader, "factor", vehicleType.getFlowEfficiencyFactor()));
+                        case VEHICLE -> vehicleTypeOfVehicle.put(reader.getAttributeValue(null, ID),
+                                vehicleTypes.get(reader.getAttributeValue(null, TYPE)));
+                        case ATTRIBUTES, "engineInformation", "costInformation" -> skipElement(reader);
+                        default -> {
+                            // vehicleDefinitions
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to parse transit vehicles stream", e);
+        }
+        log.info("Read {} vehicle types and {} vehicles", vehicleTypes.size(), vehicleTypeOfVehicle.size());
+    }
+
+    private void readCapacity(XMLStreamReader reader, VehicleType vehicleType) {
+        String seats = reader.getAttributeValue(null, "seats");
+        if (seats != null) {
+            vehicleType.getCapacity().setSeats(Integer.parseInt(seats));
+        }
+        String standingRoom = reader.getAttributeValue(null, "standingRoomInPersons");
+        if (standingRoom != null) {
+            vehicleType.getCapacity().setStandingRoom(Integer.parseInt(standingRoom));
+        }
+        vehicleType.getCapacity().setVolumeInCubicMeters(
+                parseDouble(reader, "volumeInCubicMeters", vehicleType.getCapacity().getVolumeInCubicMeters()));
+        vehicleType.getCapacity()
+                .setWeightInTons(parseDouble(reader, "weightInTons", vehicleType.getCapacity().getWeightInTons()));
+        vehicleType.getCapacity().setOther(parseDouble(reader, "other", vehicleType.getCapacity().getOther()));
+    }
+
+    /**
+     * Reads the selected transit routes of an uncompressed transit schedule stream and adds the used stop facilities,
+     * vehicle types and vehicles to the scenario.
+     *
+     * @param in the schedule stream, not closed by the reader.
+     */
+    void readTransitSchedule(InputStream in) {
+        try {
+            XMLStreamReader reader = createReader(in);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                        handleScheduleEnd(reader.getLocalName());
+                    } else if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (handleScheduleStart(reader, depth)) {
+                            // the element including its end tag was consumed
+                            depth--;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to parse transit schedule stream", e);
+        }
+        addUsedFacilities();
+        addUsedVehicles();
+        log.info("Read {} of {} transit routes on {} of {} transit lines (stop facilities: {}, vehicles: {})",
+                selectedRouteCount, routeCount, schedule.getTransitLines().size(), lineCount,
+                schedule.getFacilities().size(), vehicles.getVehicles().size());
+    }
+
+    /**
+     * @return true if the element was consumed including its end tag.
+     */
+    private boolean handleScheduleStart(XMLStreamReader reader, int depth) throws XMLStreamException {
+        switch (reader.getLocalName()) {
+            case ATTRIBUTES -> {
+                if (depth == 2) {
+                    readScheduleAttributes(reader);
+                } else {
+                    skipElement(reader);
+                }
+                return true;
+            }
+            case MINIMAL_TRANSFER_TIMES -> {
+                skipElement(reader);
+                return true;
+            }
+            case STOP_FACILITY -> readStopFacility(reader);
+            case TRANSIT_LINE -> {
+                lineCount++;
+                lineId = reader.getAttributeValue(null, ID);
+                lineName = reader.getAttributeValue(null, NAME);
+            }
+            case TRANSIT_ROUTE -> {
+                routeCount++;
+                route = new RouteBuffer(reader.getAttributeValue(null, ID));
+            }
+            case DESCRIPTION -> {
+                route.description = reader.getElementText();
+                return true;
+            }
+            case TRANSPORT_MODE -> {
+                route.transportMode = reader.getElementText();
+                return true;
+            }
+            case STOP -> route.stops.add(new StopEntry(reader.getAttributeValue(null, REF_ID),
+                    parseOptionalTime(reader.getAttributeValue(null, "arrivalOffset")),
+                    parseOptionalTime(reader.getAttributeValue(null, "departureOffset")),
+                    Boolean.parseBoolean(reader.getAttributeValue(null, "awaitDeparture"))));
+            case LINK -> route.linkIds.add(reader.getAttributeValue(null, REF_ID));
+            case DEPARTURE -> route.departures.add(new DepartureEntry(reader.getAttributeValue(null, ID),
+                    Time.parseTime(reader.getAttributeValue(null, "departureTime")),
+                    reader.getAttributeValue(null, "vehicleRefId")));
+            default -> {
+                // transitSchedule, transitStops, routeProfile, route, departures
+            }
+        }
+        return false;
+    }
+
+    private void handleScheduleEnd(String name) {
+        switch (name) {
+            case TRANSIT_ROUTE -> {
+                if (isSelected(route)) {
+                    addRoute(route);
+                }
+                route = null;
+            }
+            case TRANSIT_LINE -> {
+                if (line != null) {
+                    schedule.addTransitLine(line);
+                }
+                line = null;
+            }
+            default -> {
+                // nothing to complete
+            }
+        }
+    }
+
+    private void readScheduleAttributes(XMLStreamReader reader) throws XMLStreamException {
+        String inputCrs = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (ATTRIBUTE.equals(reader.getLocalName()) && ProjectionUtils.INPUT_CRS_ATT.equals(
+                    reader.getAttributeValue(null, NAME))) {
+                inputCrs = reader.getElementText();
+            } else {
+                skipElement(reader);
+            }
+        }
+        if (inputCrs != null && targetCrs != null && !inputCrs.equals(targetCrs)) {
+            log.info("Transforming stop facilities from {} to {}", inputCrs, targetCrs);
+            transformation = TransformationFactory.getCoordinateTransformation(inputCrs, targetCrs);
+        }
+        String crs = targetCrs != null ? targetCrs : inputCrs;
+        if (crs != null) {
+            ProjectionUtils.putCRS(schedule, crs);
+        }
+    }
+
+    private void readStopFacility(XMLStreamReader reader) {
+        String z = reader.getAttributeValue(null, "z");
+        Coord coord = z == null ? new Coord(parseDouble(reader, "x", 0), parseDouble(reader, "y", 0)) : new Coord(
+                parseDouble(reader, "x", 0), parseDouble(reader, "y", 0), Double.parseDouble(z));
+        if (transformation != null) {
+            coord = transformation.transform(coord);
+        }
+        String id = reader.getAttributeValue(null, ID);
+        TransitStopFacility facility = schedule.getFactory()
+                .createTransitStopFacility(Id.create(id, TransitStopFacility.class), coord,
+                        Boolean.parseBoolean(reader.getAttributeValue(null, "isBlocking")));
+        String linkId = reader.getAttributeValue(null, "linkRefId");
+        if (linkId != null) {
+            facility.setLinkId(Id.createLinkId(linkId));
+        }
+        facility.setName(reader.getAttributeValue(null, NAME));
+        String stopAreaId = reader.getAttributeValue(null, "stopAreaId");
+        if (stopAreaId != null) {
+            facility.setStopAreaId(Id.create(stopAreaId, TransitStopArea.class));
+        }
+        facilities.put(id, facility);
+    }
+
+    /**
+     * A route is kept if any of its departures may be selected, so the filter strategy still sees routes with
+     * inconsistent vehicle types and rejects them as it does on fully loaded scenarios.
+     */
+    private boolean isSelected(RouteBuffer buffer) {
+        if (buffer.departures.isEmpty()) {
+            return true;
+        }
+        for (DepartureEntry departure : buffer.departures) {
+            String vehicleId = departure.vehicleId();
+            VehicleType vehicleType = vehicleId == null ? null : vehicleTypeOfVehicle.get(vehicleId);
+            if (vehicleType == null || filterStrategy.selects(vehicleType.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addRoute(RouteBuffer buffer) {
+        TransitScheduleFactory factory = schedule.getFactory();
+        List<TransitRouteStop> stops = new ArrayList<>(buffer.stops.size());
+        for (StopEntry stop : buffer.stops) {
+            TransitStopFacility facility = facilities.get(stop.facilityId());
+            if (facility == null) {
+                throw new IllegalStateException(
+                        "Unknown stop facility " + stop.facilityId() + " on transit route " + buffer.id);
+            }
+            TransitRouteStop routeStop = factory.createTransitRouteStop(facility, stop.arrivalOffset(),
+                    stop.departureOffset());
+            routeStop.setAwaitDepartureTime(stop.awaitDeparture());
+            stops.add(routeStop);
+        }
+        NetworkRoute networkRoute = null;
+        if (!buffer.linkIds.isEmpty()) {
+            List<Id<Link>> linkIds = buffer.linkIds.stream().map(Id::createLinkId).toList();
+            networkRoute = RouteUtils.createLinkNetworkRouteImpl(linkIds.get(0),
+                    linkIds.subList(1, Math.max(1, linkIds.size() - 1)), linkIds.get(linkIds.size() - 1));
+        }
+        TransitRoute transitRoute = factory.createTransitRoute(Id.create(buffer.id, TransitRoute.class), networkRoute,
+                stops, buffer.transportMode);
+        transitRoute.setDescription(buffer.description);
+        for (DepartureEntry entry : buffer.departures) {
+            Departure departure = factory.createDeparture(Id.create(entry.id(), Departure.class), entry.time());
+            if (entry.vehicleId() != null) {
+                departure.setVehicleId(Id.createVehicleId(entry.vehicleId()));
+                usedVehicleIds.add(entry.vehicleId());
+            }
+            transitRoute.addDeparture(departure);
+        }
+        if (line == null) {
+            line = factory.createTransitLine(Id.create(lineId, TransitLine.class));
+            line.setName(lineName);
+        }
+        line.addRoute(transitRoute);
+        selectedRouteCount++;
+    }
+
+    private void addUsedFacilities() {
+        schedule.getTransitLines().values().stream().flatMap(transitLine -> transitLine.getRoutes().values().stream())
+                .flatMap(transitRoute -> transitRoute.getStops().stream()).map(TransitRouteStop::getStopFacility)
+                .distinct().forEach(schedule::addStopFacility);
+        facilities.clear();
+    }
+
+    private void addUsedVehicles() {
+        for (String vehicleId : usedVehicleIds) {
+            VehicleType vehicleType = vehicleTypeOfVehicle.get(vehicleId);
+            if (vehicleType == null) {
+                continue;
+            }
+            if (!vehicles.getVehicleTypes().containsKey(vehicleType.getId())) {
+                vehicles.addVehicleType(vehicleType);
+            }
+            vehicles.addVehicle(VehicleUtils.createVehicle(Id.createVehicleId(vehicleId), vehicleType));
+        }
+        vehicleTypeOfVehicle.clear();
+    }
+
+    private record StopEntry(String facilityId, OptionalTime arrivalOffset, OptionalTime departureOffset,
+                             boolean awaitDeparture) {
+    }
+
+    private record DepartureEntry(String id, double time, String vehicleId) {
+    }
+
+    /**
+     * Transit route as parsed, until its departures are known and it is selected or skipped.
+     */
+    private static class RouteBuffer {
+        private final String id;
+        private final List<StopEntry> stops = new ArrayList<>();
+        private final List<String> linkIds = new ArrayList<>();
+        private final List<DepartureEntry> departures = new ArrayList<>();
+        private String description;
+        private String transportMode;
+
+        private RouteBuffer(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import ch.sbb.rssched.client.config.RsschedRequestConfig;
+import ch.sbb.rssched.client.config.selection.FilterStrategy;
+import ch.sbb.rssched.client.config.selection.TransitLineSelection;
+import ch.sbb.rssched.client.config.selection.TransitLineSelector;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.matsim.api.core.v01.Scenario;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scenario shared between pipelines running concurrently.
+ * <p>
+ * The scenario is loaded and the transit lines are selected once, on the first request of any pipeline. Pipelines must
+ * treat the shared scenario as read-only and derive their own scenario if they need to modify it.
+ *
+ * @author munterfi
+ */
+@Log4j2
+public class SharedScenario {
+    @Getter
+    private final String runId;
+    private final ScenarioLoader loader;
+    private final FilterStrategy filterStrategy;
+    private Scenario scenario;
+    private TransitLineSelection selection;
+
+    /**
+     * Constructs a SharedScenario for the run, the filter strategy and the loading options of the request
+     * configuration.
+     *
+     * @param config the request configuration
+     */
+    public SharedScenario(RsschedRequestConfig config) {
+        this.runId = config.getRunId();
+        this.filterStrategy = config.getGlobal().getFilterStrategy();
+        this.loader = new ScenarioLoader(config.getRunId(), config.getInputDirectory(), config.getNetworkCrs(),
+                filterStrategy, config.getPerformance());
+    }
+
+    /**
+     * @return the loaded scenario, loaded on the first call.
+     */
+    public synchronized Scenario getScenario() {
+        if (scenario == null) {
+            scenario = loader.load();
+        }
+        return scenario;
+    }
+
+    /**
+     * @return the selection of transit lines, selected on the first call or reused from the selective loading.
+     */
+    public synchronized TransitLineSelection getSelection() {
+        if (selection == null) {
+            Scenario loaded = getScenario();
+            selection = loader.getSelection();
+            if (selection == null) {
+                log.info("Selecting transit lines of scenario {}", runId);
+                selection = new TransitLineSelector(filterStrategy, loaded).get();
+            }
+        }
+        return selection;
+    }
+
+    public String getEventsFile() {
+        return loader.getEventsFile();
+    }
+
+    /**
+     * @return the scenario and events files of the run.
+     */
+    public List<Path> getInputFiles() {
+        List<Path> inputFiles = new ArrayList<>(loader.getScenarioFiles());
+        inputFiles.add(Path.of(loader.getEventsFile()));
+        return inputFiles;
+    }
+}
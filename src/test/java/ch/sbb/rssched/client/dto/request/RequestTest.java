@@ -1,11 +1,17 @@
 package ch.sbb.rssched.client.dto.request;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 class RequestTest {
 
@@ -92,6 +98,68 @@ class RequestTest {
         Assertions.assertTrue(jsonOutput.contains("departureSegment1"), "JSON should contain 'departureSegment1'.");
     }
 
+    private Request.Builder createRequestWithOnRouteLocation() {
+        // loc2 is an intermediate location on route1, deadhead trips only cover the terminals loc1 and loc3
+        return requestBuilder
+                .addLocation("loc1")
+                .addLocation("loc2")
+                .addLocation("loc3")
+                .addVehicleType("vt1", 100, 60, 2)
+                .addDepot("depot1", "loc1", 30)
+                .addVehicleTypeToDepot("depot1", "vt1", 7)
+                .addRoute("route1", "vt1")
+                .addSegmentToRoute("routeSegment1", "route1", "loc1", "loc2", 400, 1200, 2)
+                .addSegmentToRoute("routeSegment2", "route1", "loc2", "loc3", 600, 2400, 3)
+                .addDeparture("departure1", "route1")
+                .addSegmentToDeparture("departureSegment1", "departure1", "routeSegment1", DAY_START, 100, 80)
+                .addSegmentToDeparture("departureSegment2", "departure1", "routeSegment2",
+                        DAY_START.plusSeconds(1200), 110, 80)
+                .addDeadHeadTrip("loc1", "loc3", 300, 500)
+                .addDeadHeadTrip("loc3", "loc1", 3000, 5000)
+                .setShuntingParameters(10 * 60, 5 * 60, 5 * 60)
+                .setMaintenanceParameters(6000)
+                .setCostParameters(5, 7, -10, 10, 2)
+                .setGlobalParameters(false, 5 * 60);
+    }
+
+    @Test
+    void testBuildWithSparseDeadHeadTrips() throws JsonProcessingException {
+        Request request = createRequestWithOnRouteLocation().setSparseDeadHeadTrips(true).build();
+
+        JsonNode json = new ObjectMapper().readTree(request.toJSON());
+        List<String> locations = json.path("locations").findValuesAsText("id");
+        List<String> indices = new ArrayList<>();
+        json.path("deadHeadTrips").path("indices").forEach(index -> indices.add(index.asText()));
+        Assertions.assertEquals(List.of("loc1", "loc2", "loc3"), locations, "JSON should contain all locations.");
+        Assertions.assertEquals(List.of("loc1", "loc3"), indices, "Dead head trips should only cover the terminals.");
+    }
+
+    @Test
+    void testWriteCompactJSON() throws Exception {
+        Request request = createRequestWithOnRouteLocation().setSparseDeadHeadTrips(true).build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.writeJSON(out);
+        byte[] json = out.toByteArray();
+        Assertions.assertFalse(new String(json, StandardCharsets.UTF_8).contains("\n"),
+                "Compact JSON should not be indented.");
+        ObjectMapper mapper = new ObjectMapper();
+        Assertions.assertEquals(mapper.readTree(request.toJSON()), mapper.readTree(json),
+                "Compact and indented JSON should hold the same request.");
+    }
+
+    @Test
+    void testBuildWithIncompleteDenseDeadHeadTrips() {
+        Assertions.assertThrows(IllegalStateException.class, () -> createRequestWithOnRouteLocation().build());
+    }
+
+    @Test
+    void testBuildWithIncompleteSparseDeadHeadTrips() {
+        Request.Builder builder = createRequestWithOnRouteLocation().setSparseDeadHeadTrips(true)
+                .addDeadHeadTrip("loc1", "loc2", 600, 1000);
+        Assertions.assertThrows(IllegalStateException.class, builder::build);
+    }
+
     @Test
     void testBuildWithMissingData() {
         Assertions.assertThrows(IllegalStateException.class, () -> requestBuilder.build());
@@ -1,12 +1,22 @@
 package ch.sbb.rssched.client.dto.request;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * @author munterfi
  */
 class TripMatrixTest {
+
+    @TempDir
+    private Path directory;
+
     @Test
     void testBuildWithValidInput() {
         // Create a DeadHeadTripMatrixBuilder
@@ -22,10 +32,76 @@ class TripMatrixTest {
 
         // Verify the matrix dimensions
         Assertions.assertEquals(3, deadHeadTrip.indices().size(), "Matrix size should be 3.");
-        Assertions.assertEquals(3, deadHeadTrip.distances().size(), "Matrix size should be 3.");
-        Assertions.assertEquals(3, deadHeadTrip.durations().size(), "Matrix size should be 3.");
-        Assertions.assertEquals(3, deadHeadTrip.distances().get(0).size(), "Matrix size should be 3.");
-        Assertions.assertEquals(3, deadHeadTrip.durations().get(0).size(), "Matrix size should be 3.");
+        Assertions.assertEquals(9, deadHeadTrip.distances().capacity(), "Matrix should have 3 x 3 cells.");
+        Assertions.assertEquals(9, deadHeadTrip.durations().capacity(), "Matrix should have 3 x 3 cells.");
+
+        // Verify the cells by sorted location position
+        Assertions.assertEquals(0, deadHeadTrip.duration(1, 1), "Diagonal should be zero.");
+        Assertions.assertEquals(600, deadHeadTrip.duration(0, 1), "Duration loc1 -> loc2 should be 600.");
+        Assertions.assertEquals(7000, deadHeadTrip.distance(2, 1), "Distance loc3 -> loc2 should be 7000.");
+    }
+
+    @Test
+    void testBuildWithManyLocations() {
+        // Create a DeadHeadTripMatrixBuilder, growing beyond its initial capacity
+        TripMatrix.Builder builder = new TripMatrix.Builder();
+        int n = 40;
+        for (int orig = n - 1; orig >= 0; orig--) {
+            for (int dest = 0; dest < n; dest++) {
+                if (orig != dest) {
+                    builder.addRelation(String.format("loc%02d", orig), String.format("loc%02d", dest), orig * 100 + dest,
+                            dest * 100 + orig);
+                }
+            }
+        }
+
+        TripMatrix deadHeadTrip = builder.build();
+
+        Assertions.assertTrue(builder.containsRelation("loc07", "loc31"), "Relation should be contained.");
+        for (int orig = 0; orig < n; orig++) {
+            for (int dest = 0; dest < n; dest++) {
+                int expected = orig == dest ? 0 : orig * 100 + dest;
+                Assertions.assertEquals(expected, deadHeadTrip.duration(orig, dest), "Duration should match.");
+            }
+        }
+    }
+
+    @Test
+    void testBuildMappedMatchesHeap() throws JsonProcessingException {
+        // Create a heap and a memory-mapped DeadHeadTripMatrixBuilder, growing beyond their initial capacity
+        TripMatrix.Builder heapBuilder = new TripMatrix.Builder();
+        TripMatrix.Builder mappedBuilder = new TripMatrix.Builder(MatrixStorage.mapped(directory));
+        int n = 20;
+        for (int orig = 0; orig < n; orig++) {
+            for (int dest = 0; dest < n; dest++) {
+                if (orig != dest) {
+                    heapBuilder.addRelation("loc" + orig, "loc" + dest, orig * 100 + dest, dest * 100 + orig);
+                    mappedBuilder.addRelation("loc" + orig, "loc" + dest, orig * 100 + dest, dest * 100 + orig);
+                }
+            }
+        }
+
+        TripMatrix mapped = mappedBuilder.build();
+
+        Assertions.assertTrue(Files.exists(directory.resolve("durations.bin")), "Matrix should be stored in a file.");
+        Assertions.assertFalse(mapped.durations().hasArray(), "Matrix should not be stored on the heap.");
+        ObjectMapper mapper = new ObjectMapper();
+        Assertions.assertEquals(mapper.writeValueAsString(heapBuilder.build()), mapper.writeValueAsString(mapped),
+                "Mapped matrix should serialize like the heap matrix.");
+    }
+
+    @Test
+    void testSerializeAsNestedArrays() throws JsonProcessingException {
+        // Create a DeadHeadTripMatrixBuilder
+        TripMatrix.Builder builder = new TripMatrix.Builder();
+        builder.addRelation("loc2", "loc1", 6000, 10000).addRelation("loc1", "loc2", 600, 1000);
+
+        // Serialize the DeadHeadTripMatrix
+        String json = new ObjectMapper().writeValueAsString(builder.build());
+
+        Assertions.assertEquals(
+                "{\"indices\":[\"loc1\",\"loc2\"],\"durations\":[[0,600],[6000,0]],\"distances\":[[0,1000],[10000,0]]}",
+                json, "JSON shape should be unchanged.");
     }
 
     @Test
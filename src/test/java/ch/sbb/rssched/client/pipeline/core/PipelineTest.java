@@ -0,0 +1,240 @@
+package ch.sbb.rssched.client.pipeline.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineTest {
+
+    @TempDir
+    private Path directory;
+
+    private static TestPipeline checkpointedPipeline(CheckpointStore store, List<String> applied) {
+        var pipeline = new TestPipeline();
+        pipeline.addFilter(pipe -> {
+            applied.add("first");
+            pipe.values.add(new long[3]);
+        }, new TestCodec());
+        pipeline.addFilter(pipe -> {
+            applied.add("second");
+            pipe.values.add(new long[5]);
+        });
+        pipeline.setCheckpointStore(store);
+        return pipeline;
+    }
+
+    @Test
+    void listenerShouldReceiveMetricsOfEachStage() {
+        List<StageMetrics> stages = new ArrayList<>();
+        List<String> completed = new ArrayList<>();
+        var pipeline = new TestPipeline();
+        pipeline.addFilter(pipe -> pipe.values.add(new long[1024]));
+        pipeline.addSink(pipe -> pipe.values.add(new long[1024]));
+        pipeline.addListener(new PipelineListener() {
+            @Override
+            public void stageCompleted(StageMetrics metrics) {
+                stages.add(metrics);
+            }
+
+            @Override
+            public void pipelineCompleted(String name, long durationNanos) {
+                completed.add(name);
+                assertTrue(durationNanos >= stages.stream().mapToLong(StageMetrics::durationNanos).sum());
+            }
+        });
+
+        pipeline.run();
+
+        assertEquals(List.of(StageMetrics.Stage.SOURCE, StageMetrics.Stage.FILTER, StageMetrics.Stage.SINK),
+                stages.stream().map(StageMetrics::stage).toList());
+        assertEquals(List.of("TestPipeline"), completed);
+        StageMetrics filter = stages.get(1);
+        assertEquals("TestPipeline", filter.pipeline());
+        assertTrue(filter.durationNanos() > 0);
+        assertTrue(filter.allocatedBytes() == -1 || filter.allocatedBytes() >= 1024 * Long.BYTES);
+        assertTrue(filter.heapUsedBefore() > 0 && filter.heapUsedAfter() > 0);
+    }
+
+    @Test
+    void independentSinksShouldRunConcurrently() {
+        var latch = new CountDownLatch(2);
+        var pipeline = new TestPipeline();
+        // both sinks only complete if the other one runs at the same time
+        pipeline.addSink(new AwaitingSink(latch));
+        pipeline.addSink(new AwaitingSink(latch));
+        List<Boolean> awaited = new ArrayList<>();
+        pipeline.addSink(pipe -> awaited.add(true));
+
+        pipeline.run();
+
+        assertEquals(0, latch.getCount());
+        assertEquals(List.of(true), awaited);
+    }
+
+    @Test
+    void startShouldNotWaitForIndependentSinks() {
+        var latch = new CountDownLatch(2);
+        var pipeline = new TestPipeline();
+        pipeline.addSink(new AwaitingSink(latch));
+        List<Boolean> collected = new ArrayList<>();
+        pipeline.addSink(pipe -> collected.add(true));
+
+        CompletableFuture<Void> independentSinks = pipeline.start();
+
+        assertEquals(List.of(true), collected);
+        assertFalse(independentSinks.isDone());
+        latch.countDown();
+        independentSinks.join();
+    }
+
+    @Test
+    void failureOfIndependentSinkShouldBePropagated() {
+        var pipeline = new TestPipeline();
+        pipeline.addSink(new ResultSink<>() {
+            @Override
+            public void process(TestPipe pipe) {
+                throw new IllegalStateException("sink failed");
+            }
+
+            @Override
+            public boolean isIndependent() {
+                return true;
+            }
+        });
+
+        var exception = assertThrows(IllegalStateException.class, pipeline::run);
+        assertEquals("sink failed", exception.getMessage());
+    }
+
+    private CheckpointStore store(String instanceId, String configuration) {
+        return new CheckpointStore(directory.toString(), instanceId, configuration, List.of());
+    }
+
+    @Test
+    void rerunShouldResumeFromCheckpoint() {
+        List<String> applied = new ArrayList<>();
+        checkpointedPipeline(store("instance", "config"), applied).run();
+        assertEquals(List.of("first", "second"), applied);
+
+        applied.clear();
+        var pipeline = checkpointedPipeline(store("instance", "config"), applied);
+        List<Integer> lengths = new ArrayList<>();
+        pipeline.addSink(pipe -> pipe.values.forEach(value -> lengths.add(value.length)));
+        pipeline.run();
+
+        assertEquals(List.of("second"), applied);
+        assertEquals(List.of(3, 5), lengths);
+    }
+
+    @Test
+    void changedConfigurationShouldInvalidateCheckpoint() {
+        List<String> applied = new ArrayList<>();
+        checkpointedPipeline(store("instance", "config"), applied).run();
+
+        applied.clear();
+        checkpointedPipeline(store("instance", "changed"), applied).run();
+
+        assertEquals(List.of("first", "second"), applied);
+    }
+
+    @Test
+    void instancesShouldNotShareCheckpoints() {
+        List<String> applied = new ArrayList<>();
+        checkpointedPipeline(store("instance", "config"), applied).run();
+
+        applied.clear();
+        checkpointedPipeline(store("other", "config"), applied).run();
+        assertEquals(List.of("first", "second"), applied);
+
+        applied.clear();
+        checkpointedPipeline(store("instance", "config"), applied).run();
+        assertEquals(List.of("second"), applied);
+    }
+
+    @Test
+    void corruptCheckpointShouldBeIgnored() throws IOException {
+        List<String> applied = new ArrayList<>();
+        checkpointedPipeline(store("instance", "config"), applied).run();
+        Path checkpoint = directory.resolve("instance.TestPipeline.0.checkpoint");
+        byte[] content = Files.readAllBytes(checkpoint);
+        Files.write(checkpoint, Arrays.copyOf(content, content.length - 2));
+
+        applied.clear();
+        var pipeline = checkpointedPipeline(store("instance", "config"), applied);
+        List<Integer> lengths = new ArrayList<>();
+        pipeline.addSink(pipe -> pipe.values.forEach(value -> lengths.add(value.length)));
+        pipeline.run();
+
+        assertEquals(List.of("first", "second"), applied);
+        assertEquals(List.of(3, 5), lengths);
+        assertEquals(content.length, Files.size(checkpoint));
+    }
+
+    private static class TestCodec implements PipeCodec<TestPipe> {
+
+        @Override
+        public void write(DataOutputStream out, TestPipe pipe) throws IOException {
+            out.writeInt(pipe.values.size());
+            for (long[] value : pipe.values) {
+                out.writeInt(value.length);
+            }
+        }
+
+        @Override
+        public void read(DataInputStream in, TestPipe pipe) throws IOException {
+            int size = in.readInt();
+            List<long[]> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(new long[in.readInt()]);
+            }
+            pipe.values.addAll(values);
+        }
+    }
+
+    private record AwaitingSink(CountDownLatch latch) implements ResultSink<TestPipe> {
+
+        @Override
+        public void process(TestPipe pipe) {
+            latch.countDown();
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Sinks did not run concurrently");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean isIndependent() {
+            return true;
+        }
+    }
+
+    private static class TestPipe implements Pipe {
+        private final List<long[]> values = new ArrayList<>();
+    }
+
+    private static class TestPipeline extends Pipeline<TestPipe> {
+        TestPipeline() {
+            super(TestPipe::new);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-event cost of the event analysis on a synthetic event stream of a single transit line, compared to the state
+ * bookkeeping in hash maps keyed by ids, as used before the state was indexed by {@link Id#index()}.
+ * <p>
+ * The score is the average time per invocation. Every departure produces 423 events, divide the score by 423 times the
+ * departure count to obtain the cost per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventAnalysisBenchmark {
+
+    private static final int STOP_COUNT = 20;
+    private static final int PASSENGERS_PER_STOP = 10;
+
+    @Param({"1000"})
+    public int departureCount;
+
+    private final List<Event> events = new ArrayList<>();
+    private Scenario scenario;
+    private Set<Id<TransitLine>> transitLineIds;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EventAnalysisBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        scenario = ScenarioUtils.createScenario(config);
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitScheduleFactory factory = schedule.getFactory();
+        List<TransitRouteStop> stops = new ArrayList<>(STOP_COUNT);
+        for (int i = 0; i < STOP_COUNT; i++) {
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create(i, TransitStopFacility.class), new Coord(i * 1000, 0), false);
+            facility.setLinkId(Id.createLinkId(i));
+            schedule.addStopFacility(facility);
+            stops.add(factory.createTransitRouteStop(facility, i * 120, i * 120 + 30));
+        }
+        TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(0), Id.createLinkId(STOP_COUNT - 1)), stops,
+                "rail");
+        TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+        line.addRoute(route);
+        schedule.addTransitLine(line);
+        transitLineIds = Set.of(line.getId());
+
+        Vehicles vehicles = scenario.getTransitVehicles();
+        VehicleType vehicleType = vehicles.getFactory().createVehicleType(Id.create("train", VehicleType.class));
+        vehicles.addVehicleType(vehicleType);
+        int personCount = 0;
+        for (int d = 0; d < departureCount; d++) {
+            Vehicle vehicle = vehicles.getFactory().createVehicle(Id.createVehicleId(d), vehicleType);
+            vehicles.addVehicle(vehicle);
+            Departure departure = factory.createDeparture(Id.create(d, Departure.class), d * 60);
+            route.addDeparture(departure);
+            Id<Person> driverId = Id.createPersonId("driver_" + d);
+            double time = departure.getDepartureTime();
+            events.add(new TransitDriverStartsEvent(time, driverId, vehicle.getId(), line.getId(), route.getId(),
+                    departure.getId()));
+            events.add(new PersonEntersVehicleEvent(time, driverId, vehicle.getId()));
+            // every passenger rides five stops, the last passengers alight at the terminal stop
+            List<List<Id<Person>>> alighting = new ArrayList<>();
+            for (int i = 0; i < STOP_COUNT; i++) {
+                alighting.add(new ArrayList<>());
+            }
+            for (int i = 0; i < STOP_COUNT; i++) {
+                Id<TransitStopFacility> facilityId = stops.get(i).getStopFacility().getId();
+                events.add(new VehicleArrivesAtFacilityEvent(time, vehicle.getId(), facilityId, 0));
+                for (Id<Person> personId : alighting.get(i)) {
+                    events.add(new PersonLeavesVehicleEvent(time, personId, vehicle.getId()));
+                }
+                if (i < STOP_COUNT - 1) {
+                    for (int p = 0; p < PASSENGERS_PER_STOP; p++) {
+                        Id<Person> personId = Id.createPersonId(personCount++);
+                        events.add(new PersonEntersVehicleEvent(time, personId, vehicle.getId()));
+                        alighting.get(Math.min(i + 5, STOP_COUNT - 1)).add(personId);
+                    }
+                }
+                events.add(new VehicleDepartsAtFacilityEvent(time + 30, vehicle.getId(), facilityId, 0));
+                time += 120;
+            }
+            events.add(new PersonLeavesVehicleEvent(time, driverId, vehicle.getId()));
+        }
+    }
+
+    @Benchmark
+    public int eventAnalysis() {
+        EventAnalysis analysis = new EventAnalysis(scenario, transitLineIds, 1, 180);
+        for (Event event : events) {
+            if (event instanceof TransitDriverStartsEvent e) {
+                analysis.handleEvent(e);
+            } else if (event instanceof VehicleArrivesAtFacilityEvent e) {
+                analysis.handleEvent(e);
+            } else if (event instanceof VehicleDepartsAtFacilityEvent e) {
+                analysis.handleEvent(e);
+            } else if (event instanceof PersonEntersVehicleEvent e) {
+                analysis.handleEvent(e);
+            } else if (event instanceof PersonLeavesVehicleEvent e) {
+                analysis.handleEvent(e);
+            }
+        }
+        analysis.finish();
+        return analysis.getEntries().size();
+    }
+
+    /**
+     * Replays the vehicle and person state lookups of the event stream on hash maps keyed by ids, allocating an access
+     * record per boarding.
+     */
+    @Benchmark
+    public int hashMapBookkeeping() {
+        Map<Id<Vehicle>, Object> trackers = new HashMap<>();
+        Set<Id<Vehicle>> activeTransitVehicles = new HashSet<>();
+        Map<Id<Person>, MapAccess> accessTimes = new HashMap<>();
+        int seated = 0;
+        for (Event event : events) {
+            if (event instanceof TransitDriverStartsEvent e) {
+                if (transitLineIds.contains(e.getTransitLineId())) {
+                    trackers.computeIfAbsent(e.getVehicleId(), k -> new Object());
+                    activeTransitVehicles.add(e.getVehicleId());
+                }
+            } else if (event instanceof VehicleArrivesAtFacilityEvent e) {
+                if (activeTransitVehicles.contains(e.getVehicleId())) {
+                    trackers.get(e.getVehicleId());
+                }
+            } else if (event instanceof VehicleDepartsAtFacilityEvent e) {
+                if (activeTransitVehicles.contains(e.getVehicleId())) {
+                    trackers.get(e.getVehicleId());
+                }
+            } else if (event instanceof PersonEntersVehicleEvent e) {
+                if (activeTransitVehicles.contains(e.getVehicleId())) {
+                    trackers.get(e.getVehicleId());
+                    accessTimes.put(e.getPersonId(), new MapAccess(e.getTime(), 0));
+                }
+            } else if (event instanceof PersonLeavesVehicleEvent e) {
+                if (activeTransitVehicles.contains(e.getVehicleId())) {
+                    trackers.get(e.getVehicleId());
+                    MapAccess access = accessTimes.remove(e.getPersonId());
+                    if (access == null) {
+                        activeTransitVehicles.remove(e.getVehicleId());
+                    } else if (e.getTime() - access.time() > 180) {
+                        seated++;
+                    }
+                }
+            }
+        }
+        return seated;
+    }
+
+    private record MapAccess(double time, int stopIndex) {
+    }
+}
@@ -0,0 +1,228 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventAnalysisTest {
+
+    private static final int STOP_COUNT = 6;
+    private static final double STOP_INTERVAL = 120;
+    private static final int SEAT_DURATION_THRESHOLD = 180;
+
+    private Scenario scenario;
+    private TransitLine line;
+    private TransitRoute route;
+    private Vehicle vehicle;
+
+    /**
+     * Seats as accumulated by the previous tracker: every seated passenger increments the seats of all entries recorded
+     * between its access and its egress.
+     */
+    private static List<Expected> previousTrackerSemantics(List<Trip> trips, double sampleSizeFactor) {
+        List<Expected> entries = new ArrayList<>();
+        int[] accessEntryIndices = new int[trips.size()];
+        int passengers = 0;
+        for (int stop = 0; stop < STOP_COUNT; stop++) {
+            int egress = 0;
+            int access = 0;
+            for (int t = 0; t < trips.size(); t++) {
+                Trip trip = trips.get(t);
+                if (trip.egressStop() == stop) {
+                    egress++;
+                    passengers--;
+                    if ((trip.egressStop() - trip.accessStop()) * STOP_INTERVAL > SEAT_DURATION_THRESHOLD) {
+                        for (int i = accessEntryIndices[t]; i < entries.size(); i++) {
+                            entries.get(i).seats += (int) (1 * sampleSizeFactor);
+                        }
+                    }
+                }
+            }
+            for (int t = 0; t < trips.size(); t++) {
+                if (trips.get(t).accessStop() == stop) {
+                    access++;
+                    passengers++;
+                    accessEntryIndices[t] = entries.size();
+                }
+            }
+            entries.add(new Expected(stop, (int) Math.round(egress * sampleSizeFactor),
+                    (int) Math.round(access * sampleSizeFactor), (int) Math.round(passengers * sampleSizeFactor)));
+        }
+        return entries;
+    }
+
+    @BeforeEach
+    void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        scenario = ScenarioUtils.createScenario(config);
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitScheduleFactory factory = schedule.getFactory();
+        List<TransitRouteStop> stops = new ArrayList<>();
+        for (int i = 0; i < STOP_COUNT; i++) {
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create("stop_" + i, TransitStopFacility.class), new Coord(i * 1000, 0), false);
+            facility.setLinkId(Id.createLinkId(i));
+            schedule.addStopFacility(facility);
+            stops.add(factory.createTransitRouteStop(facility, i * STOP_INTERVAL, i * STOP_INTERVAL + 30));
+        }
+        route = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(0), Id.createLinkId(STOP_COUNT - 1)), stops,
+                "rail");
+        route.addDeparture(factory.createDeparture(Id.create("early", Departure.class), 6 * 3600));
+        route.addDeparture(factory.createDeparture(Id.create("late", Departure.class), 7 * 3600));
+        line = factory.createTransitLine(Id.create("line", TransitLine.class));
+        line.addRoute(route);
+        schedule.addTransitLine(line);
+        Vehicles vehicles = scenario.getTransitVehicles();
+        VehicleType type = vehicles.getFactory().createVehicleType(Id.create("train", VehicleType.class));
+        vehicles.addVehicleType(type);
+        vehicle = vehicles.getFactory().createVehicle(Id.createVehicleId("train_1"), type);
+        vehicles.addVehicle(vehicle);
+    }
+
+    /**
+     * Replays the events of one departure of the vehicle, passengers enter and leave when the vehicle arrives at a stop.
+     *
+     * @param complete false to stop the stream before the driver leaves the vehicle at the terminal stop.
+     */
+    private void replay(EventAnalysis analysis, String departureId, List<Trip> trips, boolean complete) {
+        Departure departure = route.getDepartures().get(Id.create(departureId, Departure.class));
+        Id<Person> driverId = Id.createPersonId("driver_" + departureId);
+        double time = departure.getDepartureTime();
+        analysis.handleEvent(new TransitDriverStartsEvent(time, driverId, vehicle.getId(), line.getId(), route.getId(),
+                departure.getId()));
+        analysis.handleEvent(new PersonEntersVehicleEvent(time, driverId, vehicle.getId()));
+        for (int stop = 0; stop < STOP_COUNT; stop++) {
+            Id<TransitStopFacility> facilityId = route.getStops().get(stop).getStopFacility().getId();
+            analysis.handleEvent(new VehicleArrivesAtFacilityEvent(time, vehicle.getId(), facilityId, 0));
+            for (Trip trip : trips) {
+                if (trip.egressStop() == stop) {
+                    analysis.handleEvent(new PersonLeavesVehicleEvent(time, trip.personId(departureId), vehicle.getId()));
+                }
+            }
+            for (Trip trip : trips) {
+                if (trip.accessStop() == stop) {
+                    analysis.handleEvent(new PersonEntersVehicleEvent(time, trip.personId(departureId), vehicle.getId()));
+                }
+            }
+            analysis.handleEvent(new VehicleDepartsAtFacilityEvent(time + 30, vehicle.getId(), facilityId, 0));
+            time += STOP_INTERVAL;
+        }
+        if (complete) {
+            analysis.handleEvent(new PersonLeavesVehicleEvent(time, driverId, vehicle.getId()));
+        }
+    }
+
+    private void assertEntries(List<Expected> expected, List<EventAnalysis.Entry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Expected entry = expected.get(i);
+            String message = "Entry at stop " + entry.stopIndex;
+            assertEquals(entry.stopIndex, actual.get(i).getStopIndex(), message);
+            assertEquals(entry.egress, actual.get(i).getEgress(), message);
+            assertEquals(entry.access, actual.get(i).getAccess(), message);
+            assertEquals(entry.count, actual.get(i).getCount(), message);
+            assertEquals(entry.seats, actual.get(i).getSeats(), message);
+        }
+    }
+
+    @Test
+    void seatsShouldCoverLegsOfLongRides() {
+        // p0 rides 0 to 3 (seated), p1 rides 1 to 2 (too short), p2 rides 2 to the terminal (seated)
+        List<Trip> trips = List.of(new Trip("p0", 0, 3), new Trip("p1", 1, 2), new Trip("p2", 2, 5));
+        EventAnalysis analysis = new EventAnalysis(scenario, Set.of(line.getId()), 1, SEAT_DURATION_THRESHOLD);
+
+        replay(analysis, "early", trips, true);
+
+        List<EventAnalysis.Entry> entries = analysis.getEntries();
+        assertEquals(List.of(1, 2, 2, 1, 1, 0), entries.stream().map(EventAnalysis.Entry::getCount).toList());
+        assertEquals(List.of(1, 1, 2, 1, 1, 0), entries.stream().map(EventAnalysis.Entry::getSeats).toList());
+        assertEntries(previousTrackerSemantics(trips, 1), entries);
+    }
+
+    @Test
+    void randomEventStreamShouldMatchPreviousTracker() {
+        Random random = new Random(42);
+        List<Trip> earlyTrips = new ArrayList<>();
+        List<Trip> lateTrips = new ArrayList<>();
+        for (int p = 0; p < 200; p++) {
+            int accessStop = random.nextInt(STOP_COUNT - 1);
+            int egressStop = accessStop + 1 + random.nextInt(STOP_COUNT - 1 - accessStop);
+            (p % 2 == 0 ? earlyTrips : lateTrips).add(new Trip("p" + p, accessStop, egressStop));
+        }
+        double sampleSizeFactor = 2.5;
+        EventAnalysis analysis = new EventAnalysis(scenario, Set.of(line.getId()), sampleSizeFactor,
+                SEAT_DURATION_THRESHOLD);
+
+        // the same vehicle serves both departures, one after the other
+        replay(analysis, "early", earlyTrips, true);
+        replay(analysis, "late", lateTrips, true);
+
+        List<Expected> expected = new ArrayList<>(previousTrackerSemantics(earlyTrips, sampleSizeFactor));
+        expected.addAll(previousTrackerSemantics(lateTrips, sampleSizeFactor));
+        assertEntries(expected, analysis.getEntries());
+    }
+
+    @Test
+    void finishShouldResolveIncompleteDepartures() {
+        List<Trip> trips = List.of(new Trip("p0", 0, 4), new Trip("p1", 1, 5));
+        EventAnalysis analysis = new EventAnalysis(scenario, Set.of(line.getId()), 1, SEAT_DURATION_THRESHOLD);
+
+        replay(analysis, "early", trips, false);
+        assertEquals(0, analysis.getEntries().stream().mapToInt(EventAnalysis.Entry::getSeats).sum());
+        analysis.finish();
+
+        assertEntries(previousTrackerSemantics(trips, 1), analysis.getEntries());
+    }
+
+    private record Trip(String person, int accessStop, int egressStop) {
+        Id<Person> personId(String departureId) {
+            return Id.createPersonId(person + "_" + departureId);
+        }
+    }
+
+    private static final class Expected {
+        private final int stopIndex;
+        private final int egress;
+        private final int access;
+        private final int count;
+        private int seats;
+
+        private Expected(int stopIndex, int egress, int access, int count) {
+            this.stopIndex = stopIndex;
+            this.egress = egress;
+            this.access = access;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PipelinedEventsReaderTest {
+
+    private static final int EVENT_COUNT = 25_000;
+
+    @TempDir
+    private Path directory;
+
+    private static List<String> read(String eventsFile, boolean pipelined) {
+        List<String> events = new ArrayList<>();
+        EventsManager eventsManager = EventsUtils.createEventsManager();
+        eventsManager.addHandler((BasicEventHandler) (Event event) -> events.add(event.getAttributes().toString()));
+        eventsManager.initProcessing();
+        if (pipelined) {
+            new PipelinedEventsReader(eventsManager, 1).readFile(eventsFile);
+        } else {
+            new MatsimEventsReader(eventsManager).readFile(eventsFile);
+        }
+        eventsManager.finishProcessing();
+        return events;
+    }
+
+    private String writeEvents() {
+        String eventsFile = directory.resolve("output_events.xml.gz").toString();
+        EventWriterXML writer = new EventWriterXML(eventsFile);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            Id<Person> personId = Id.createPersonId(i % 100);
+            if (i % 2 == 0) {
+                writer.handleEvent(new PersonEntersVehicleEvent(i, personId, Id.createVehicleId(i % 7)));
+            } else {
+                writer.handleEvent(new PersonLeavesVehicleEvent(i, personId, Id.createVehicleId(i % 7)));
+            }
+        }
+        writer.closeFile();
+        return eventsFile;
+    }
+
+    @Test
+    void pipelinedReadingShouldMatchSequentialReading() {
+        String eventsFile = writeEvents();
+        List<String> expected = read(eventsFile, false);
+        assertEquals(EVENT_COUNT, expected.size());
+        assertEquals(expected, read(eventsFile, true));
+    }
+
+    @Test
+    void truncatedFileShouldReportDecompressionFailure() throws IOException {
+        Path eventsFile = Path.of(writeEvents());
+        byte[] compressed = Files.readAllBytes(eventsFile);
+        Files.write(eventsFile, Arrays.copyOf(compressed, compressed.length / 2));
+
+        UncheckedIOException exception = assertThrows(UncheckedIOException.class,
+                () -> read(eventsFile.toString(), true));
+        assertEquals(1, exception.getSuppressed().length, "Parser failure should be suppressed");
+    }
+
+    @Test
+    void queueDepthShouldBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PipelinedEventsReader(EventsUtils.createEventsManager(), 0));
+    }
+}
@@ -0,0 +1,90 @@
+package ch.sbb.rssched.client.pipeline.passenger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransitEventsReaderTest {
+
+    private static final Id<TransitLine> SELECTED_LINE = Id.create("selected", TransitLine.class);
+    private static final Id<TransitLine> OTHER_LINE = Id.create("other", TransitLine.class);
+
+    @TempDir
+    private Path directory;
+
+    private static EventsManager collect(List<Map<String, String>> events) {
+        EventsManager eventsManager = EventsUtils.createEventsManager();
+        eventsManager.addHandler((BasicEventHandler) (Event event) -> events.add(event.getAttributes()));
+        eventsManager.initProcessing();
+        return eventsManager;
+    }
+
+    private String writeEvents() {
+        String eventsFile = directory.resolve("output_events.xml.gz").toString();
+        EventWriterXML writer = new EventWriterXML(eventsFile);
+        Id<TransitStopFacility> facilityId = Id.create("stop", TransitStopFacility.class);
+        Id<Person> passengerId = Id.createPersonId("passenger");
+        int time = 0;
+        for (Id<TransitLine> lineId : List.of(SELECTED_LINE, OTHER_LINE)) {
+            Id<Vehicle> vehicleId = Id.createVehicleId("train_" + lineId);
+            Id<Person> driverId = Id.createPersonId("driver_" + lineId);
+            writer.handleEvent(new ActivityEndEvent(time, passengerId, Id.createLinkId("home"), null, "home"));
+            writer.handleEvent(new TransitDriverStartsEvent(time, driverId, vehicleId, lineId,
+                    Id.create("route", TransitRoute.class), Id.create("departure", Departure.class)));
+            writer.handleEvent(new PersonEntersVehicleEvent(time, driverId, vehicleId));
+            writer.handleEvent(new VehicleArrivesAtFacilityEvent(time + 10, vehicleId, facilityId, 2.5));
+            writer.handleEvent(new PersonEntersVehicleEvent(time + 20, passengerId, vehicleId));
+            writer.handleEvent(new VehicleDepartsAtFacilityEvent(time + 30, vehicleId, facilityId, 0));
+            writer.handleEvent(new PersonLeavesVehicleEvent(time + 40, passengerId, vehicleId));
+            writer.handleEvent(new PersonLeavesVehicleEvent(time + 50, driverId, vehicleId));
+            time += 100;
+        }
+        writer.closeFile();
+        return eventsFile;
+    }
+
+    @Test
+    void onlyEventsOfSelectedTransitLinesShouldBeRead() {
+        String eventsFile = writeEvents();
+
+        List<Map<String, String>> expected = new ArrayList<>();
+        new MatsimEventsReader(collect(expected)).readFile(eventsFile);
+        // the events of the selected line are the transit events before the events of the other line
+        expected = expected.stream()
+                .filter(attributes -> Double.parseDouble(attributes.get("time")) < 100)
+                .filter(attributes -> !attributes.get("type").equals(ActivityEndEvent.EVENT_TYPE))
+                .toList();
+
+        List<Map<String, String>> actual = new ArrayList<>();
+        new TransitEventsReader(collect(actual), Set.of(SELECTED_LINE)).readFile(eventsFile);
+
+        assertEquals(7, actual.size());
+        assertEquals(expected, actual);
+    }
+}
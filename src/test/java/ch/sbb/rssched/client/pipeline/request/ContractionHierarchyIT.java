@@ -0,0 +1,70 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.IntegrationTestData;
+import ch.sbb.rssched.client.config.RsschedRequestConfig.Performance.RoutingAlgorithm;
+import ch.sbb.rssched.client.pipeline.utils.io.ScenarioLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContractionHierarchyIT {
+
+    private static final String INPUT_DIRECTORY = "integration-test/input/de/kelheim/kelheim-v3.0/25pct/";
+    private static final String RUN_ID = "kelheim-v3.0-25pct";
+    private static final String CRS = "EPSG:25832";
+    private static final double SPEED_LIMIT = 90 / 3.6;
+    private static final double BEELINE_DISTANCE_FACTOR = 5;
+
+    private Scenario scenario;
+    private List<TransitStopFacility> facilities;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new IntegrationTestData(false).setup();
+        scenario = new ScenarioLoader(RUN_ID, INPUT_DIRECTORY, CRS).load();
+        facilities = scenario.getTransitSchedule().getFacilities().values().stream()
+                .filter(facility -> scenario.getNetwork().getLinks().containsKey(facility.getLinkId()))
+                .sorted(Comparator.comparing(facility -> facility.getId().toString())).toList();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RoutingAlgorithm.class)
+    void routingAlgorithmShouldMatchMatsimDijkstra(RoutingAlgorithm routingAlgorithm) {
+        LeastCostPathReference reference = new LeastCostPathReference(scenario.getNetwork(), SPEED_LIMIT,
+                BEELINE_DISTANCE_FACTOR);
+        TrainNetworkRouter router = new TrainNetworkRouter(scenario.getNetwork(), SPEED_LIMIT,
+                BEELINE_DISTANCE_FACTOR, routingAlgorithm);
+        for (TransitStopFacility origin : facilities) {
+            TrainNetworkRouter.PathResult[] actual = router.calculateFrom(origin, facilities);
+            for (int i = 0; i < facilities.size(); i++) {
+                reference.assertMatches(origin, facilities.get(i), actual[i]);
+            }
+        }
+    }
+
+    @Test
+    void contractionHierarchyShouldMatchDijkstra() {
+        TrainNetworkRouter dijkstra = new TrainNetworkRouter(scenario.getNetwork(), SPEED_LIMIT,
+                BEELINE_DISTANCE_FACTOR, RoutingAlgorithm.DIJKSTRA);
+        TrainNetworkRouter contractionHierarchy = new TrainNetworkRouter(scenario.getNetwork(), SPEED_LIMIT,
+                BEELINE_DISTANCE_FACTOR, RoutingAlgorithm.CONTRACTION_HIERARCHY);
+        for (TransitStopFacility origin : facilities) {
+            TrainNetworkRouter.PathResult[] expected = dijkstra.calculateFrom(origin, facilities);
+            TrainNetworkRouter.PathResult[] actual = contractionHierarchy.calculateFrom(origin, facilities);
+            for (int i = 0; i < facilities.size(); i++) {
+                String relation = origin.getId() + " to " + facilities.get(i).getId();
+                // durations are exact, distances may only differ between equal-cost alternatives
+                assertEquals(expected[i].duration(), actual[i].duration(), "Duration from " + relation);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.config.RsschedRequestConfig.Performance.RoutingAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DeadHeadTripCacheTest {
+
+    private static final double SPEED_LIMIT = 90 / 3.6;
+    private static final double BEELINE_DISTANCE_FACTOR = 5;
+
+    private final List<TransitStopFacility> facilities = new ArrayList<>();
+    private Network network;
+
+    @TempDir
+    private Path cacheDirectory;
+
+    @BeforeEach
+    void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        network = scenario.getNetwork();
+        Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0, 0));
+        Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(1000, 0));
+        Node c = NetworkUtils.createAndAddNode(network, Id.createNodeId("c"), new Coord(2000, 0));
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("a_b"), a, b, 1000, 10, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("b_c"), b, c, 1000, 40, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("c_b"), c, b, 1000, 40, 1000, 1);
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("b_a"), b, a, 1000, 10, 1000, 1);
+
+        TransitScheduleFactory factory = scenario.getTransitSchedule().getFactory();
+        for (Link link : network.getLinks().values()) {
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create(link.getId().toString(), TransitStopFacility.class), link.getToNode().getCoord(), false);
+            facility.setLinkId(link.getId());
+            facilities.add(facility);
+        }
+    }
+
+    private DeadHeadTripCache open(double speedLimit) {
+        return DeadHeadTripCache.open(cacheDirectory, network, speedLimit, BEELINE_DISTANCE_FACTOR,
+                RoutingAlgorithm.DIJKSTRA);
+    }
+
+    private String fingerprint(RoutingAlgorithm routingAlgorithm) {
+        return DeadHeadTripCache.fingerprint(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR, routingAlgorithm);
+    }
+
+    @Test
+    void cachedRelationsShouldBeReused() {
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        List<TrainNetworkRouter.PathResult> expected = new ArrayList<>();
+        new DeadHeadTripCalculator(router, open(SPEED_LIMIT)).calculate(facilities,
+                (origin, destination, result) -> expected.add(result));
+
+        // reopen, all relations are read from the file and match the calculated ones
+        DeadHeadTripCache cache = open(SPEED_LIMIT);
+        List<TrainNetworkRouter.PathResult> actual = new ArrayList<>();
+        new DeadHeadTripCalculator(router, cache).calculate(facilities, (origin, destination, result) -> {
+            assertEquals(result, cache.get(origin.getLinkId(), destination.getLinkId()));
+            actual.add(result);
+        });
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void fullyCachedMatrixShouldNotCreateRouter() {
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        new DeadHeadTripCalculator(router, open(SPEED_LIMIT)).calculate(facilities, (origin, destination, result) -> {
+        });
+
+        new DeadHeadTripCalculator(() -> {
+            throw new AssertionError("Router created although all relations are cached");
+        }, open(SPEED_LIMIT)).calculate(facilities, (origin, destination, result) -> assertNotNull(result));
+    }
+
+    @Test
+    void truncatedCacheShouldBeRecalculated() throws IOException {
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        List<TrainNetworkRouter.PathResult> expected = new ArrayList<>();
+        new DeadHeadTripCalculator(router, open(SPEED_LIMIT)).calculate(facilities,
+                (origin, destination, result) -> expected.add(result));
+        Path file = cacheDirectory.resolve("deadhead_trips_" + fingerprint(RoutingAlgorithm.DIJKSTRA) + ".bin");
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length / 2));
+
+        // the truncated file is a cache miss, the relations are routed again and the file is replaced
+        DeadHeadTripCache cache = open(SPEED_LIMIT);
+        assertNull(cache.get(Id.createLinkId("a_b"), Id.createLinkId("c_b")));
+        List<TrainNetworkRouter.PathResult> actual = new ArrayList<>();
+        new DeadHeadTripCalculator(router, cache).calculate(facilities,
+                (origin, destination, result) -> actual.add(result));
+        assertEquals(expected, actual);
+        assertEquals(content.length, Files.size(file));
+    }
+
+    @Test
+    void changedRoutingParametersShouldNotHitCache() {
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        new DeadHeadTripCalculator(router, open(SPEED_LIMIT)).calculate(facilities, (origin, destination, result) -> {
+        });
+
+        DeadHeadTripCache cache = open(SPEED_LIMIT / 2);
+        assertNull(cache.get(Id.createLinkId("a_b"), Id.createLinkId("c_b")));
+    }
+
+    @Test
+    void fingerprintShouldDependOnNetwork() {
+        String fingerprint = fingerprint(RoutingAlgorithm.DIJKSTRA);
+        assertEquals(fingerprint, fingerprint(RoutingAlgorithm.DIJKSTRA));
+        network.getLinks().get(Id.createLinkId("b_c")).setLength(1100);
+        assertNotEquals(fingerprint, fingerprint(RoutingAlgorithm.DIJKSTRA));
+    }
+
+    @Test
+    void fingerprintShouldDependOnRoutingAlgorithm() {
+        assertNotEquals(fingerprint(RoutingAlgorithm.DIJKSTRA), fingerprint(RoutingAlgorithm.CONTRACTION_HIERARCHY));
+    }
+}
@@ -0,0 +1,32 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeparturePassengersTest {
+
+    @Test
+    void maximumShouldMatchLinearScanForAllRanges() {
+        Random random = new Random(42);
+        for (int stopCount = 1; stopCount < 40; stopCount++) {
+            int[] passengers = random.ints(stopCount, 0, 500).toArray();
+            int[] seats = random.ints(stopCount, 0, 200).toArray();
+            DeparturePassengers departurePassengers = new DeparturePassengers(passengers, seats);
+            for (int origin = 0; origin < stopCount; origin++) {
+                for (int destination = origin; destination < stopCount; destination++) {
+                    int maxPassengers = 0;
+                    int maxSeats = 0;
+                    for (int leg = origin; leg < destination; leg++) {
+                        maxPassengers = Math.max(maxPassengers, passengers[leg]);
+                        maxSeats = Math.max(maxSeats, seats[leg]);
+                    }
+                    assertEquals(new RequestComposer.PassengerResult(maxPassengers, maxSeats),
+                            departurePassengers.getMaximum(origin, destination));
+                }
+            }
+        }
+    }
+}
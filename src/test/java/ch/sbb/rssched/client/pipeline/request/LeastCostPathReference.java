@@ -0,0 +1,100 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reference least cost paths calculated by the MATSim Dijkstra with the link costs of the train network router.
+ * <p>
+ * Least cost paths of equal cost can differ in length. The reference therefore searches twice, breaking ties towards
+ * the shortest and towards the longest path, and only accepts a result with the same duration and a distance in
+ * between.
+ */
+final class LeastCostPathReference {
+    // cost per meter, far below the cost difference of any two paths which are not equal-cost alternatives
+    private static final double TIE_BREAK = 1e-9;
+    private static final double COST_TOLERANCE = 1e-3;
+    private final Network network;
+    private final double freeSpeedLimit;
+    private final double beelineDistanceFactor;
+    private final LeastCostPathCalculator shortest;
+    private final LeastCostPathCalculator longest;
+
+    LeastCostPathReference(Network network, double freeSpeedLimit, double beelineDistanceFactor) {
+        this.network = network;
+        this.freeSpeedLimit = freeSpeedLimit;
+        this.beelineDistanceFactor = beelineDistanceFactor;
+        this.shortest = new DijkstraFactory(false).createPathCalculator(network, new TieBreakingDisutility(TIE_BREAK),
+                new FreeSpeedTravelTime());
+        this.longest = new DijkstraFactory(false).createPathCalculator(network, new TieBreakingDisutility(-TIE_BREAK),
+                new FreeSpeedTravelTime());
+    }
+
+    private static double length(LeastCostPathCalculator.Path path) {
+        return path.links.stream().mapToDouble(Link::getLength).sum();
+    }
+
+    private double cost(Link link) {
+        return link.getLength() / Math.min(link.getFreespeed(), freeSpeedLimit);
+    }
+
+    private double cost(LeastCostPathCalculator.Path path) {
+        return path.links.stream().mapToDouble(this::cost).sum();
+    }
+
+    /**
+     * Asserts that the path result is a least cost path between the facilities, or the beeline fallback if there is
+     * no path.
+     */
+    void assertMatches(TransitStopFacility from, TransitStopFacility to, TrainNetworkRouter.PathResult actual) {
+        Node fromNode = network.getLinks().get(from.getLinkId()).getToNode();
+        Node toNode = network.getLinks().get(to.getLinkId()).getFromNode();
+        String relation = "from " + from.getId() + " to " + to.getId();
+        LeastCostPathCalculator.Path shortestPath = shortest.calcLeastCostPath(fromNode, toNode, 0, null, null);
+        if (shortestPath == null) {
+            double distance = NetworkUtils.getEuclideanDistance(fromNode.getCoord(),
+                    toNode.getCoord()) * beelineDistanceFactor;
+            assertEquals(new TrainNetworkRouter.PathResult((int) Math.round(distance / freeSpeedLimit),
+                    (int) Math.round(distance)), actual, "Beeline " + relation);
+            return;
+        }
+        LeastCostPathCalculator.Path longestPath = longest.calcLeastCostPath(fromNode, toNode, 0, null, null);
+        assertEquals(Math.round(cost(shortestPath)), actual.duration(), "Duration " + relation);
+        assertEquals(cost(shortestPath), cost(longestPath), COST_TOLERANCE, "Equal-cost paths " + relation);
+        long minDistance = Math.round(length(shortestPath));
+        long maxDistance = Math.round(length(longestPath));
+        assertTrue(minDistance <= actual.distance() && actual.distance() <= maxDistance,
+                String.format("Distance %s: %d not in [%d, %d]", relation, actual.distance(), minDistance,
+                        maxDistance));
+    }
+
+    private final class TieBreakingDisutility implements TravelDisutility {
+        private final double costPerMeter;
+
+        private TieBreakingDisutility(double costPerMeter) {
+            this.costPerMeter = costPerMeter;
+        }
+
+        @Override
+        public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+            return cost(link) + costPerMeter * link.getLength();
+        }
+
+        @Override
+        public double getLinkMinimumTravelDisutility(Link link) {
+            return 0;
+        }
+    }
+}
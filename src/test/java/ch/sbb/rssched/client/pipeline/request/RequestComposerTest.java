@@ -0,0 +1,148 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.config.RsschedRequestConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestComposerTest {
+
+    private static final String[] STOPS = {"A", "B", "C", "D", "E"};
+    private static final LocalDateTime DAY_START = LocalDateTime.of(2020, 1, 1, 0, 0, 0);
+
+    private Scenario scenario;
+    private RsschedRequestConfig config;
+    private Map<Id<TransitLine>, Map<Id<TransitRoute>, Map<Id<Departure>, DeparturePassengers>>> passengers;
+
+    private static List<String> textValues(JsonNode node) {
+        List<String> values = new ArrayList<>();
+        node.forEach(value -> values.add(value.asText()));
+        return values;
+    }
+
+    @BeforeEach
+    void setUp() {
+        Config matsimConfig = ConfigUtils.createConfig();
+        matsimConfig.transit().setUseTransit(true);
+        scenario = ScenarioUtils.createScenario(matsimConfig);
+
+        // a line from A to E with one stop on every link of a chain network
+        Network network = scenario.getNetwork();
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitScheduleFactory factory = schedule.getFactory();
+        List<Id<Link>> linkIds = new ArrayList<>();
+        List<TransitRouteStop> stops = new ArrayList<>();
+        Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("n0"), new Coord(0, 0));
+        for (int i = 0; i < STOPS.length; i++) {
+            Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("n" + (i + 1)),
+                    new Coord((i + 1) * 1000, 0));
+            Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId("l" + i), from, to, 1000, 25, 1000, 1);
+            linkIds.add(link.getId());
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create(STOPS[i], TransitStopFacility.class), to.getCoord(), false);
+            facility.setLinkId(link.getId());
+            schedule.addStopFacility(facility);
+            stops.add(factory.createTransitRouteStop(facility, i * 60, i * 60 + 30));
+            from = to;
+        }
+        TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(linkIds.get(0), linkIds.subList(1, linkIds.size() - 1),
+                        linkIds.get(linkIds.size() - 1)), stops, "rail");
+        VehicleType type = VehicleUtils.createVehicleType(Id.create("train", VehicleType.class));
+        type.getCapacity().setSeats(100);
+        type.getCapacity().setStandingRoom(50);
+        scenario.getTransitVehicles().addVehicleType(type);
+        Vehicle vehicle = VehicleUtils.createVehicle(Id.createVehicleId("train_1"), type);
+        scenario.getTransitVehicles().addVehicle(vehicle);
+        Departure departure = factory.createDeparture(Id.create("departure", Departure.class), 6 * 3600);
+        departure.setVehicleId(vehicle.getId());
+        route.addDeparture(departure);
+        TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+        line.addRoute(route);
+        schedule.addTransitLine(line);
+        passengers = Map.of(line.getId(), Map.of(route.getId(), Map.of(departure.getId(),
+                new DeparturePassengers(new int[]{10, 20, 30, 20, 0}, new int[]{10, 20, 30, 20, 0}))));
+
+        // C and D split the route into segments, the depot is at C and the maintenance slot at the intermediate stop B
+        config = RsschedRequestConfig.builder().setInstanceId("instance").setRunId("run").setInputDirectory("input")
+                .setOutputDirectory("output").setNetworkCrs("EPSG:2056").addShuntingLocation("C")
+                .addShuntingLocation("D").addDepot("depot", "C", 10).addAllowedTypeToDepot("depot", "train", 5)
+                .addMaintenanceSlot("slot", "B", DAY_START.plusHours(20), DAY_START.plusHours(28), 1)
+                .buildWithDefaults();
+        config.getDepot().setCreateAtTerminalLocations(false);
+    }
+
+    private JsonNode compose() throws IOException {
+        RequestPipe pipe = new RequestPipe("run", scenario, passengers);
+        new RequestComposer(config).apply(pipe);
+        return new ObjectMapper().readTree(pipe.getRequest().toJSON());
+    }
+
+    @Test
+    void denseDeadHeadTripsShouldCoverAllLocations() throws IOException {
+        JsonNode request = compose();
+
+        assertEquals(List.of("A", "B", "C", "D", "E"), textValues(request.path("deadHeadTrips").path("indices")));
+    }
+
+    @Test
+    void oneStopRouteShouldBeSkipped() throws IOException {
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitScheduleFactory factory = schedule.getFactory();
+        TransitStopFacility facility = schedule.getFacilities().get(Id.create("A", TransitStopFacility.class));
+        TransitRoute route = factory.createTransitRoute(Id.create("stub", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(facility.getLinkId(), facility.getLinkId()),
+                List.of(factory.createTransitRouteStop(facility, 0, 0)), "rail");
+        schedule.getTransitLines().get(Id.create("line", TransitLine.class)).addRoute(route);
+        config.getDepot().setCreateAtTerminalLocations(true);
+
+        JsonNode request = compose();
+
+        List<String> routeIds = new ArrayList<>();
+        request.path("routes").forEach(node -> routeIds.add(node.path("id").asText()));
+        assertEquals(List.of("route"), routeIds);
+    }
+
+    @Test
+    void sparseDeadHeadTripsShouldCoverTerminalsDepotsAndMaintenanceLocations() throws IOException {
+        config.getGlobal().setSparseDeadHeadTrips(true);
+
+        JsonNode request = compose();
+
+        assertEquals(List.of("A", "B", "C", "D", "E"), request.path("locations").findValuesAsText("id"));
+        assertEquals(List.of("A", "B", "C", "E"), textValues(request.path("deadHeadTrips").path("indices")));
+        JsonNode durations = request.path("deadHeadTrips").path("durations");
+        assertEquals(4, durations.size());
+        durations.forEach(row -> assertEquals(4, row.size()));
+    }
+}
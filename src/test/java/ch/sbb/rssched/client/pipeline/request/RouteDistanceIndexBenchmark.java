@@ -0,0 +1,133 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the segment distances of a long route with many on-route stops, calculated by walking the link list per
+ * segment versus the route distance index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteDistanceIndexBenchmark {
+
+    @Param({"5000"})
+    public int linkCount;
+
+    @Param({"20", "200"})
+    public int stopCount;
+
+    private Network network;
+    private TransitRoute transitRoute;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RouteDistanceIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Distance calculation walking the link list of the route for every segment.
+     */
+    private static int walkLinkIds(Network network, TransitRoute transitRoute, TransitRouteStop origin,
+                                   TransitRouteStop destination) {
+        Id<Link> fromLink = origin.getStopFacility().getLinkId();
+        Id<Link> toLink = destination.getStopFacility().getLinkId();
+        double distance = 0.0;
+        boolean countDistance = !transitRoute.getRoute().getLinkIds().contains(fromLink);
+        for (Id<Link> linkId : transitRoute.getRoute().getLinkIds()) {
+            if (linkId.equals(toLink)) {
+                break;
+            }
+            if (countDistance) {
+                distance += network.getLinks().get(linkId).getLength();
+            }
+            if (linkId.equals(fromLink)) {
+                countDistance = true;
+            }
+        }
+        return (int) Math.round(distance);
+    }
+
+    @Setup
+    public void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        network = scenario.getNetwork();
+        Node previous = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+        List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+        for (int i = 1; i <= linkCount; i++) {
+            Node next = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+            linkIds.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), previous, next, 100 + i % 7, 40,
+                    1000, 1).getId());
+            previous = next;
+        }
+        TransitScheduleFactory factory = scenario.getTransitSchedule().getFactory();
+        List<TransitRouteStop> stops = new ArrayList<>(stopCount);
+        for (int i = 0; i < stopCount; i++) {
+            Id<Link> linkId = linkIds.get(i * (linkCount - 1) / (stopCount - 1));
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create(i, TransitStopFacility.class), network.getLinks().get(linkId).getToNode().getCoord(),
+                    false);
+            facility.setLinkId(linkId);
+            stops.add(factory.createTransitRouteStop(facility, i * 60, i * 60 + 30));
+        }
+        transitRoute = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(linkIds.get(0), linkIds.subList(1, linkCount - 1),
+                        linkIds.get(linkCount - 1)), stops, "rail");
+    }
+
+    @Benchmark
+    public int walkLinks() {
+        List<TransitRouteStop> stops = transitRoute.getStops();
+        int total = 0;
+        for (int i = 1; i < stops.size(); i++) {
+            total += walkLinkIds(network, transitRoute, stops.get(i - 1), stops.get(i));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int routeDistanceIndex() {
+        RouteDistanceIndex index = new RouteDistanceIndex(network, transitRoute);
+        int total = 0;
+        for (int i = 1; i < transitRoute.getStops().size(); i++) {
+            total += index.getDistance(i - 1, i);
+        }
+        return total;
+    }
+}
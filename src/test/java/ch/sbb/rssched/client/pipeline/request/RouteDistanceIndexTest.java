@@ -0,0 +1,67 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteDistanceIndexTest {
+
+    private Network network;
+    private TransitRoute transitRoute;
+
+    @BeforeEach
+    void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        network = scenario.getNetwork();
+
+        // five links with lengths 100 to 500, stops on the first, third and last link
+        Node previous = NetworkUtils.createAndAddNode(network, Id.createNodeId("n0"), new Coord(0, 0));
+        List<Id<Link>> linkIds = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Node next = NetworkUtils.createAndAddNode(network, Id.createNodeId("n" + i), new Coord(i * 1000, 0));
+            linkIds.add(NetworkUtils.createAndAddLink(network, Id.createLinkId("l" + i), previous, next, i * 100, 40,
+                    1000, 1).getId());
+            previous = next;
+        }
+        TransitScheduleFactory factory = scenario.getTransitSchedule().getFactory();
+        List<TransitRouteStop> stops = new ArrayList<>();
+        for (int i : new int[]{0, 2, 4}) {
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create("s" + i, TransitStopFacility.class), new Coord(i * 1000, 0), false);
+            facility.setLinkId(linkIds.get(i));
+            stops.add(factory.createTransitRouteStop(facility, i * 60, i * 60));
+        }
+        transitRoute = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(linkIds.get(0), linkIds.subList(1, 4), linkIds.get(4)), stops,
+                "rail");
+    }
+
+    @Test
+    void distanceShouldExcludeLinksOfOriginAndDestinationStop() {
+        RouteDistanceIndex index = new RouteDistanceIndex(network, transitRoute);
+        assertEquals(200, index.getDistance(0, 1));
+        assertEquals(400, index.getDistance(1, 2));
+        assertEquals(900, index.getDistance(0, 2));
+    }
+}
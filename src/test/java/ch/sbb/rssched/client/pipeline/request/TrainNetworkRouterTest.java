@@ -0,0 +1,142 @@
+package ch.sbb.rssched.client.pipeline.request;
+
+import ch.sbb.rssched.client.config.RsschedRequestConfig.Performance.RoutingAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrainNetworkRouterTest {
+
+    private static final double SPEED_LIMIT = 90 / 3.6;
+    private static final double BEELINE_DISTANCE_FACTOR = 5;
+
+    private final List<TransitStopFacility> facilities = new ArrayList<>();
+    private Network network;
+
+    private static Node addNode(Network network, String id, double x, double y) {
+        return NetworkUtils.createAndAddNode(network, Id.createNodeId(id), new Coord(x, y));
+    }
+
+    private static void addLink(Network network, Node from, Node to, double length, double freespeed) {
+        NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to, length,
+                freespeed, 1000, 1);
+    }
+
+    @BeforeEach
+    void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        network = scenario.getNetwork();
+
+        // a small line with a fast bypass and an isolated branch which is only reachable by beeline
+        Node a = addNode(network, "a", 0, 0);
+        Node b = addNode(network, "b", 1000, 0);
+        Node c = addNode(network, "c", 2000, 0);
+        Node d = addNode(network, "d", 1000, 1000);
+        Node e = addNode(network, "e", 5000, 5000);
+        Node f = addNode(network, "f", 6000, 5000);
+        addLink(network, a, b, 1000, 10);
+        addLink(network, b, a, 1000, 10);
+        addLink(network, b, c, 1000, 40);
+        addLink(network, c, b, 1000, 40);
+        addLink(network, b, d, 1000, 20);
+        addLink(network, d, b, 1000, 20);
+        addLink(network, a, d, 1600, 40);
+        addLink(network, d, c, 1600, 40);
+        addLink(network, e, f, 1000, 30);
+        addLink(network, f, e, 1000, 30);
+
+        TransitScheduleFactory factory = scenario.getTransitSchedule().getFactory();
+        for (Link link : network.getLinks().values()) {
+            TransitStopFacility facility = factory.createTransitStopFacility(
+                    Id.create(link.getId().toString(), TransitStopFacility.class), link.getToNode().getCoord(), false);
+            facility.setLinkId(link.getId());
+            facilities.add(facility);
+        }
+    }
+
+    private TransitStopFacility getFacility(String linkId) {
+        return facilities.stream().filter(facility -> facility.getLinkId().toString().equals(linkId)).findFirst()
+                .orElseThrow();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RoutingAlgorithm.class)
+    void calculateShouldRespectSpeedLimitAndFallBackToBeeline(RoutingAlgorithm routingAlgorithm) {
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR,
+                routingAlgorithm);
+        // from b to c on the direct link, capped at speed limit
+        assertEquals(new TrainNetworkRouter.PathResult(40, 1000),
+                router.calculate(getFacility("a_b"), getFacility("c_b")));
+        // from a to c over d is longer but faster than over b
+        assertEquals(new TrainNetworkRouter.PathResult(128, 3200),
+                router.calculate(getFacility("b_a"), getFacility("c_b")));
+        // from a to e is not connected, beeline distance times factor at speed limit
+        assertEquals(new TrainNetworkRouter.PathResult(1414, 35355),
+                router.calculate(getFacility("b_a"), getFacility("e_f")));
+    }
+
+    @ParameterizedTest
+    @EnumSource(RoutingAlgorithm.class)
+    void calculateFromShouldMatchPointToPointDijkstra(RoutingAlgorithm routingAlgorithm) {
+        TrainNetworkRouter reference = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR,
+                routingAlgorithm);
+        for (TransitStopFacility origin : facilities) {
+            TrainNetworkRouter.PathResult[] results = router.calculateFrom(origin, facilities);
+            for (int i = 0; i < facilities.size(); i++) {
+                assertEquals(reference.calculate(origin, facilities.get(i)), results[i],
+                        "Path result from " + origin.getId() + " to " + facilities.get(i).getId());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RoutingAlgorithm.class)
+    void calculateFromShouldMatchMatsimDijkstra(RoutingAlgorithm routingAlgorithm) {
+        LeastCostPathReference reference = new LeastCostPathReference(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR,
+                routingAlgorithm);
+        for (TransitStopFacility origin : facilities) {
+            TrainNetworkRouter.PathResult[] results = router.calculateFrom(origin, facilities);
+            for (int i = 0; i < facilities.size(); i++) {
+                reference.assertMatches(origin, facilities.get(i), results[i]);
+            }
+        }
+    }
+
+    @Test
+    void calculatorShouldVisitEveryRelationOnce() {
+        TrainNetworkRouter router = new TrainNetworkRouter(network, SPEED_LIMIT, BEELINE_DISTANCE_FACTOR);
+        List<String> relations = new ArrayList<>();
+        AtomicInteger activeConsumers = new AtomicInteger();
+        new DeadHeadTripCalculator(router).calculate(facilities, (origin, destination, result) -> {
+            assertEquals(1, activeConsumers.incrementAndGet(), "Rows should be consumed one at a time");
+            assertEquals(router.calculate(origin, destination), result);
+            relations.add(origin.getId() + "-" + destination.getId());
+            activeConsumers.decrementAndGet();
+        });
+        assertEquals(facilities.size() * (facilities.size() - 1), relations.size());
+        assertEquals(relations.size(), relations.stream().distinct().count());
+    }
+}
@@ -0,0 +1,149 @@
+package ch.sbb.rssched.client.pipeline.response;
+
+import ch.sbb.rssched.client.dto.request.Request;
+import ch.sbb.rssched.client.dto.response.Response;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestDispatcherTest {
+
+    private static final String BASE_URL = "http://localhost";
+    private static final int MAX_IN_FLIGHT_REQUESTS = 2;
+
+    private final Semaphore arrived = new Semaphore(0);
+    private final CountDownLatch solve = new CountDownLatch(1);
+    private final List<DispatchMetrics> metrics = new CopyOnWriteArrayList<>();
+    private final ExecutorService caller = Executors.newSingleThreadExecutor();
+    private ExecutorService serverExecutor;
+    private Request request;
+    private byte[] responseJson;
+    private int status;
+    private HttpServer server;
+    private RequestDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] requestJson = Files.readAllBytes(Paths.get("src/test/resources/request_v6.json"));
+        request = new Request() {
+            @Override
+            public String toJSON() {
+                return new String(requestJson);
+            }
+
+            @Override
+            public void writeJSON(OutputStream out) throws IOException {
+                out.write(requestJson);
+            }
+        };
+        responseJson = Files.readAllBytes(Paths.get("src/test/resources/response_v6.json"));
+        status = 200;
+        // stub solver: holds every request until the test releases them
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/solve", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        dispatcher = new RequestDispatcher(
+                new RequestSender(BASE_URL, server.getAddress().getPort(), Duration.ofSeconds(5),
+                        Duration.ofSeconds(30), false), MAX_IN_FLIGHT_REQUESTS);
+        dispatcher.addListener(metrics::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        solve.countDown();
+        caller.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        arrived.release();
+        try {
+            solve.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(status, responseJson.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(responseJson);
+        }
+    }
+
+    private Future<List<CompletableFuture<Response>>> dispatchInBackground(int count) {
+        return caller.submit(() -> IntStream.range(0, count)
+                .mapToObj(i -> dispatcher.dispatch("instance_" + i, request))
+                .toList());
+    }
+
+    @Test
+    void dispatchShouldBoundRequestsInFlight() throws Exception {
+        Future<List<CompletableFuture<Response>>> dispatched = dispatchInBackground(MAX_IN_FLIGHT_REQUESTS + 1);
+
+        assertTrue(arrived.tryAcquire(MAX_IN_FLIGHT_REQUESTS, 10, TimeUnit.SECONDS));
+        assertFalse(arrived.tryAcquire(200, TimeUnit.MILLISECONDS));
+        assertFalse(dispatched.isDone());
+
+        solve.countDown();
+        List<CompletableFuture<Response>> responses = dispatched.get(10, TimeUnit.SECONDS);
+
+        responses.forEach(response -> assertNotNull(response.join().getInfo()));
+        assertEquals(MAX_IN_FLIGHT_REQUESTS + 1, metrics.size());
+        metrics.forEach(entry -> {
+            assertTrue(entry.successful());
+            assertTrue(entry.solveNanos() > 0);
+        });
+        assertTrue(metrics.stream().anyMatch(entry -> entry.queueNanos() >= TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    @Test
+    void failedRequestShouldReleaseWindow() throws Exception {
+        status = 500;
+        solve.countDown();
+
+        List<CompletableFuture<Response>> responses = dispatchInBackground(MAX_IN_FLIGHT_REQUESTS + 1).get(10,
+                TimeUnit.SECONDS);
+
+        responses.forEach(response -> assertThrows(CompletionException.class, response::join));
+        assertEquals(MAX_IN_FLIGHT_REQUESTS + 1, metrics.size());
+        metrics.forEach(entry -> assertFalse(entry.successful()));
+    }
+
+    @Test
+    void emptyWindowShouldBeRejected() {
+        RequestSender sender = new RequestSender(BASE_URL, server.getAddress().getPort());
+
+        assertThrows(IllegalArgumentException.class, () -> new RequestDispatcher(sender, 0));
+    }
+}
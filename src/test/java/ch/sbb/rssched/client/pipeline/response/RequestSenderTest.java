@@ -0,0 +1,161 @@
+package ch.sbb.rssched.client.pipeline.response;
+
+import ch.sbb.rssched.client.dto.request.Request;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestSenderTest {
+
+    private static final String BASE_URL = "http://localhost";
+
+    private final List<byte[]> receivedBodies = new ArrayList<>();
+    private final List<String> receivedEncodings = new ArrayList<>();
+    @TempDir
+    private Path directory;
+    private byte[] requestJson;
+    private byte[] responseJson;
+    private int status;
+    private HttpServer server;
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static Request request(byte[] json) {
+        return new Request() {
+            @Override
+            public String toJSON() {
+                return new String(json);
+            }
+
+            @Override
+            public void writeJSON(OutputStream out) throws IOException {
+                out.write(json);
+            }
+        };
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        requestJson = Files.readAllBytes(Paths.get("src/test/resources/request_v6.json"));
+        responseJson = Files.readAllBytes(Paths.get("src/test/resources/response_v6.json"));
+        status = 200;
+        // stub solver: records the request bodies and answers with a gzip-encoded response
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/solve", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        receivedEncodings.add(encoding);
+        try (InputStream body = "gzip".equals(encoding) ? new GZIPInputStream(
+                exchange.getRequestBody()) : exchange.getRequestBody()) {
+            receivedBodies.add(body.readAllBytes());
+        }
+        byte[] response = gzip(responseJson);
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private RequestSender sender(boolean compressRequests) {
+        return new RequestSender(BASE_URL, server.getAddress().getPort(), Duration.ofSeconds(5), Duration.ofSeconds(30),
+                compressRequests);
+    }
+
+    @Test
+    void compressedRequestsShouldReuseSender() {
+        RequestSender sender = sender(true);
+
+        for (int i = 0; i < 2; i++) {
+            var pipe = new ResponsePipe("run", request(requestJson));
+            sender.apply(pipe);
+            assertNotNull(pipe.getResponse().getInfo());
+        }
+
+        assertEquals(List.of("gzip", "gzip"), receivedEncodings);
+        receivedBodies.forEach(body -> assertArrayEquals(requestJson, body));
+    }
+
+    @Test
+    void uncompressedRequestShouldBeSentAsIs() {
+        var pipe = new ResponsePipe("run", request(requestJson));
+        sender(false).apply(pipe);
+
+        assertNotNull(pipe.getResponse().getSchedule());
+        assertNull(receivedEncodings.get(0));
+        assertArrayEquals(requestJson, receivedBodies.get(0));
+    }
+
+    @Test
+    void requestFileShouldBeSentWithoutSerializingAgain() throws IOException {
+        Path requestFile = Files.write(directory.resolve("scheduler_request.json"), requestJson);
+        Request request = new Request() {
+            @Override
+            public String toJSON() {
+                throw new AssertionError("The request file should be sent");
+            }
+
+            @Override
+            public void writeJSON(OutputStream out) {
+                throw new AssertionError("The request file should be sent");
+            }
+        };
+
+        for (boolean compressRequests : new boolean[]{false, true}) {
+            var pipe = new ResponsePipe("run", request, requestFile, CompletableFuture.completedFuture(null));
+            sender(compressRequests).apply(pipe);
+            assertNotNull(pipe.getResponse().getSchedule());
+        }
+
+        receivedBodies.forEach(body -> assertArrayEquals(requestJson, body));
+        assertTrue(Files.exists(requestFile));
+    }
+
+    @Test
+    void errorStatusShouldFail() {
+        status = 500;
+        var pipe = new ResponsePipe("run", request(requestJson));
+
+        assertThrows(RuntimeException.class, () -> sender(true).apply(pipe));
+        assertNull(pipe.getResponse());
+    }
+}
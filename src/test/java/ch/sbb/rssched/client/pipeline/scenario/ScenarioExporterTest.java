@@ -0,0 +1,102 @@
+package ch.sbb.rssched.client.pipeline.scenario;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioExporterTest {
+
+    private static final String RUN_ID = "run";
+    private static final String INSTANCE_ID = "instance";
+
+    @TempDir
+    private Path directory;
+
+    private Scenario scenario;
+
+    private static byte[] decompress(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        scenario = ScenarioUtils.createScenario(config);
+        Network network = scenario.getNetwork();
+        Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0, 0));
+        Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(1000, 0));
+        NetworkUtils.createAndAddLink(network, Id.createLinkId("a_b"), a, b, 1000, 40, 1000, 1);
+        VehicleType type = VehicleUtils.createVehicleType(Id.create("train", VehicleType.class));
+        scenario.getTransitVehicles().addVehicleType(type);
+        scenario.getTransitVehicles().addVehicle(VehicleUtils.createVehicle(Id.createVehicleId("train_1"), type));
+    }
+
+    private Path file(Path outputDirectory, String fileName) {
+        return outputDirectory.resolve(String.format("rssched_%s/%s/%s.%s.%s", RUN_ID, INSTANCE_ID, INSTANCE_ID, RUN_ID,
+                fileName));
+    }
+
+    @Test
+    void exportShouldWriteUncompressedFiles() {
+        new ScenarioExporter(directory.toString(), INSTANCE_ID, 0).export(scenario, RUN_ID).join();
+
+        assertTrue(Files.exists(file(directory, "network.xml")));
+        assertTrue(Files.exists(file(directory, "transitSchedule.xml")));
+        assertTrue(Files.exists(file(directory, "transitVehicles.xml")));
+        assertFalse(Files.exists(file(directory, "network.xml.gz")));
+    }
+
+    @Test
+    void exportShouldCompressWithConfiguredLevel() throws IOException {
+        Path uncompressed = directory.resolve("uncompressed");
+        Path compressed = directory.resolve("compressed");
+        new ScenarioExporter(uncompressed.toString(), INSTANCE_ID, 0).export(scenario, RUN_ID).join();
+        new ScenarioExporter(compressed.toString(), INSTANCE_ID, 1).export(scenario, RUN_ID).join();
+
+        for (String fileName : new String[]{"network.xml", "transitSchedule.xml", "transitVehicles.xml"}) {
+            assertFalse(Files.exists(file(compressed, fileName)));
+            assertArrayEquals(Files.readAllBytes(file(uncompressed, fileName)),
+                    decompress(file(compressed, fileName + ".gz")));
+        }
+    }
+
+    @Test
+    void invalidCompressionLevelShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ScenarioExporter(directory.toString(), INSTANCE_ID, 10));
+    }
+
+    @Test
+    void failedExportShouldFailSink() throws IOException {
+        Path notADirectory = Files.writeString(directory.resolve("output"), "file");
+        ScenarioPipe pipe = new ScenarioPipe(RUN_ID, scenario, scenario);
+
+        assertThrows(RuntimeException.class,
+                () -> new ScenarioExporter(notADirectory.toString(), INSTANCE_ID, 0).process(pipe));
+    }
+}
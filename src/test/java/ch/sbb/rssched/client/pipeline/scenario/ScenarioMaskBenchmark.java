@@ -0,0 +1,140 @@
+package ch.sbb.rssched.client.pipeline.scenario;
+
+import ch.sbb.rssched.client.config.selection.TransitLineSelection;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.Vehicles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of masking a synthetic scenario with a chain network of up to one million links, covered by transit lines of
+ * 1000 links each. Every tenth line is selected, so the selection grows with the network; the score should grow
+ * linearly with the number of links.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ScenarioMaskBenchmark {
+
+    private static final int LINKS_PER_LINE = 1000;
+    private static final int LINKS_PER_STOP = 100;
+    private static final int DEPARTURES_PER_ROUTE = 20;
+    private static final int SELECTED_LINE_INTERVAL = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    public int linkCount;
+
+    private final ScenarioMask mask = new ScenarioMask();
+    private Scenario source;
+    private TransitLineSelection selection;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ScenarioMaskBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static Scenario createScenario() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        return ScenarioUtils.createScenario(config);
+    }
+
+    @Setup
+    public void setUp() {
+        source = createScenario();
+        Network network = source.getNetwork();
+        List<Link> links = new ArrayList<>(linkCount);
+        Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+        for (int i = 0; i < linkCount; i++) {
+            Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + 1), new Coord((i + 1) * 100., 0));
+            links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), from, to, 100, 40, 1000, 1));
+            from = to;
+        }
+
+        TransitSchedule schedule = source.getTransitSchedule();
+        TransitScheduleFactory factory = schedule.getFactory();
+        Vehicles vehicles = source.getTransitVehicles();
+        List<VehicleType> vehicleTypes = List.of(
+                vehicles.getFactory().createVehicleType(Id.create("train", VehicleType.class)),
+                vehicles.getFactory().createVehicleType(Id.create("bus", VehicleType.class)));
+        vehicleTypes.forEach(vehicles::addVehicleType);
+        selection = new TransitLineSelection();
+        for (int l = 0; l < linkCount / LINKS_PER_LINE; l++) {
+            List<Link> lineLinks = links.subList(l * LINKS_PER_LINE, (l + 1) * LINKS_PER_LINE);
+            List<TransitRouteStop> stops = new ArrayList<>();
+            for (int s = 0; s < LINKS_PER_LINE; s += LINKS_PER_STOP) {
+                Link link = lineLinks.get(s);
+                TransitStopFacility facility = factory.createTransitStopFacility(
+                        Id.create(link.getId().toString(), TransitStopFacility.class), link.getToNode().getCoord(),
+                        false);
+                facility.setLinkId(link.getId());
+                schedule.addStopFacility(facility);
+                stops.add(factory.createTransitRouteStop(facility, s * 6, s * 6 + 30));
+            }
+            List<Id<Link>> routeLinkIds = lineLinks.stream().map(Link::getId).toList();
+            TransitRoute route = factory.createTransitRoute(Id.create(l, TransitRoute.class),
+                    RouteUtils.createLinkNetworkRouteImpl(routeLinkIds.get(0),
+                            routeLinkIds.subList(1, routeLinkIds.size() - 1),
+                            routeLinkIds.get(routeLinkIds.size() - 1)), stops, "rail");
+            for (int d = 0; d < DEPARTURES_PER_ROUTE; d++) {
+                Vehicle vehicle = vehicles.getFactory()
+                        .createVehicle(Id.createVehicleId(l + "_" + d), vehicleTypes.get(l % vehicleTypes.size()));
+                vehicles.addVehicle(vehicle);
+                Departure departure = factory.createDeparture(Id.create(d, Departure.class), d * 1800);
+                departure.setVehicleId(vehicle.getId());
+                route.addDeparture(departure);
+            }
+            TransitLine line = factory.createTransitLine(Id.create(l, TransitLine.class));
+            line.addRoute(route);
+            schedule.addTransitLine(line);
+            if (l % SELECTED_LINE_INTERVAL == 0) {
+                selection.add(TransitLineSelection.NO_GROUP, line.getId(), route.getId());
+            }
+        }
+    }
+
+    @Benchmark
+    public Scenario mask() {
+        ScenarioPipe pipe = new ScenarioPipe("run", source, createScenario());
+        pipe.selection = selection;
+        mask.apply(pipe);
+        return pipe.getScenario();
+    }
+}
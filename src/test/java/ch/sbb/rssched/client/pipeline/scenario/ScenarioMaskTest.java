@@ -0,0 +1,178 @@
+package ch.sbb.rssched.client.pipeline.scenario;
+
+import ch.sbb.rssched.client.config.selection.TransitLineSelection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioMaskTest {
+
+    private static final String CRS = "EPSG:2056";
+
+    private Scenario source;
+    private TransitLineSelection selection;
+
+    private static Scenario createScenario() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        return ScenarioUtils.createScenario(config);
+    }
+
+    private static <T> Set<String> ids(Set<Id<T>> ids) {
+        return ids.stream().map(Id::toString).collect(Collectors.toSet());
+    }
+
+    @BeforeEach
+    void setUp() {
+        // chain network n0 - n1 - ... - n5 with links l0 to l4
+        source = createScenario();
+        Network network = source.getNetwork();
+        ProjectionUtils.putCRS(network, CRS);
+        Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("n0"), new Coord(0, 0));
+        for (int i = 0; i < 5; i++) {
+            Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("n" + (i + 1)),
+                    new Coord((i + 1) * 1000, 0));
+            NetworkUtils.createAndAddLink(network, Id.createLinkId("l" + i), from, to, 1000, 40, 1000, 1);
+            from = to;
+        }
+
+        TransitSchedule schedule = source.getTransitSchedule();
+        ProjectionUtils.putCRS(schedule, CRS);
+        VehicleType train = VehicleUtils.createVehicleType(Id.create("train", VehicleType.class));
+        train.getCapacity().setSeats(400);
+        VehicleType bus = VehicleUtils.createVehicleType(Id.create("bus", VehicleType.class));
+        source.getTransitVehicles().addVehicleType(train);
+        source.getTransitVehicles().addVehicleType(bus);
+
+        // the rail line has a selected route A to B and a second route B to C, the bus line runs from D to E
+        TransitLine rail = addLine("rail");
+        addRoute(rail, "rail_ab", List.of("A", "B"), List.of("l0", "l1"), train, "train_1");
+        addRoute(rail, "rail_bc", List.of("B", "C"), List.of("l1", "l2"), train, "train_2");
+        rail.getAttributes().putAttribute("operator", "SBB");
+        TransitLine busLine = addLine("bus");
+        addRoute(busLine, "bus_de", List.of("D", "E"), List.of("l3", "l4"), bus, "bus_1");
+
+        selection = new TransitLineSelection();
+        selection.add(TransitLineSelection.NO_GROUP, rail.getId(), Id.create("rail_ab", TransitRoute.class));
+    }
+
+    private TransitLine addLine(String id) {
+        TransitSchedule schedule = source.getTransitSchedule();
+        TransitLine line = schedule.getFactory().createTransitLine(Id.create(id, TransitLine.class));
+        schedule.addTransitLine(line);
+        return line;
+    }
+
+    /**
+     * Adds a route with a stop on each link, stop facilities are shared between routes.
+     */
+    private void addRoute(TransitLine line, String id, List<String> stopIds, List<String> linkIds, VehicleType type,
+                          String vehicleId) {
+        TransitSchedule schedule = source.getTransitSchedule();
+        TransitScheduleFactory factory = schedule.getFactory();
+        List<TransitRouteStop> stops = new ArrayList<>();
+        for (int i = 0; i < stopIds.size(); i++) {
+            Id<TransitStopFacility> facilityId = Id.create(stopIds.get(i), TransitStopFacility.class);
+            TransitStopFacility facility = schedule.getFacilities().get(facilityId);
+            if (facility == null) {
+                Link link = source.getNetwork().getLinks().get(Id.createLinkId(linkIds.get(i)));
+                facility = factory.createTransitStopFacility(facilityId, link.getToNode().getCoord(), false);
+                facility.setLinkId(link.getId());
+                schedule.addStopFacility(facility);
+            }
+            stops.add(factory.createTransitRouteStop(facility, i * 300, i * 300 + 30));
+        }
+        TransitRoute route = factory.createTransitRoute(Id.create(id, TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(linkIds.get(0)),
+                        Id.createLinkId(linkIds.get(linkIds.size() - 1))), stops, "rail");
+        Vehicle vehicle = VehicleUtils.createVehicle(Id.createVehicleId(vehicleId), type);
+        source.getTransitVehicles().addVehicle(vehicle);
+        Departure departure = factory.createDeparture(Id.create(id, Departure.class), 8 * 3600);
+        departure.setVehicleId(vehicle.getId());
+        route.addDeparture(departure);
+        line.addRoute(route);
+    }
+
+    private Scenario mask() {
+        ScenarioPipe pipe = new ScenarioPipe("run", source, createScenario());
+        pipe.selection = selection;
+        new ScenarioMask().apply(pipe);
+        return pipe.getScenario();
+    }
+
+    @Test
+    void maskShouldKeepElementsReachableFromSelectedLines() {
+        Scenario masked = mask();
+
+        TransitSchedule schedule = masked.getTransitSchedule();
+        assertEquals(Set.of("rail"), ids(schedule.getTransitLines().keySet()));
+        TransitLine rail = schedule.getTransitLines().get(Id.create("rail", TransitLine.class));
+        assertEquals(Set.of("rail_ab", "rail_bc"), ids(rail.getRoutes().keySet()));
+        assertEquals(Set.of("A", "B", "C"), ids(schedule.getFacilities().keySet()));
+        assertEquals(Set.of("train_1", "train_2"), ids(masked.getTransitVehicles().getVehicles().keySet()));
+        assertEquals(Set.of("train"), ids(masked.getTransitVehicles().getVehicleTypes().keySet()));
+        assertEquals(400, (int) masked.getTransitVehicles().getVehicleTypes().get(Id.create("train", VehicleType.class))
+                .getCapacity().getSeats());
+        assertEquals(Set.of("l0", "l1", "l2"), ids(masked.getNetwork().getLinks().keySet()));
+        assertEquals(Set.of("n0", "n1", "n2", "n3"), ids(masked.getNetwork().getNodes().keySet()));
+    }
+
+    @Test
+    void maskShouldOnlyKeepCrsAttributes() {
+        Scenario masked = mask();
+
+        assertEquals(CRS, ProjectionUtils.getCRS(masked.getTransitSchedule()));
+        assertEquals(CRS, ProjectionUtils.getCRS(masked.getNetwork()));
+        assertNull(masked.getTransitSchedule().getTransitLines().get(Id.create("rail", TransitLine.class))
+                .getAttributes().getAttribute("operator"));
+    }
+
+    @Test
+    void maskShouldSkipNetworkIfNotLoaded() {
+        List.copyOf(source.getNetwork().getLinks().keySet()).forEach(source.getNetwork()::removeLink);
+
+        Scenario masked = mask();
+
+        assertEquals(2, masked.getTransitSchedule().getTransitLines().get(Id.create("rail", TransitLine.class))
+                .getRoutes().size());
+        assertTrue(masked.getNetwork().getLinks().isEmpty());
+    }
+
+    @Test
+    void missingLinkShouldFail() {
+        source.getNetwork().removeLink(Id.createLinkId("l2"));
+
+        assertThrows(IllegalStateException.class, this::mask);
+    }
+}
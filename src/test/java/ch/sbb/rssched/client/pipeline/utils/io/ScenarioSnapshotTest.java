@@ -0,0 +1,185 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioSnapshotTest {
+
+    private static final String CRS = "EPSG:2056";
+
+    @TempDir
+    private Path directory;
+
+    private Scenario scenario;
+    private Path snapshotFile;
+    private List<Path> inputFiles;
+
+    private static Scenario createScenario() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        return ScenarioUtils.createScenario(config);
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        scenario = createScenario();
+        Network network = scenario.getNetwork();
+        Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0, 0));
+        Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(1000, 0));
+        Node c = NetworkUtils.createAndAddNode(network, Id.createNodeId("c"), new Coord(2000, 0));
+        Link ab = NetworkUtils.createAndAddLink(network, Id.createLinkId("a_b"), a, b, 1000, 40, 1000, 1);
+        Link bc = NetworkUtils.createAndAddLink(network, Id.createLinkId("b_c"), b, c, 1000, 40, 1000, 2);
+
+        TransitScheduleFactory factory = scenario.getTransitSchedule().getFactory();
+        TransitStopFacility first = factory.createTransitStopFacility(Id.create("first", TransitStopFacility.class),
+                a.getCoord(), false);
+        first.setLinkId(ab.getId());
+        first.setName("First");
+        TransitStopFacility last = factory.createTransitStopFacility(Id.create("last", TransitStopFacility.class),
+                c.getCoord(), true);
+        last.setLinkId(bc.getId());
+        scenario.getTransitSchedule().addStopFacility(first);
+        scenario.getTransitSchedule().addStopFacility(last);
+        List<TransitRouteStop> stops = List.of(factory.createTransitRouteStop(first, 0, 30),
+                factory.createTransitRouteStop(last, 120, 150));
+        TransitRoute route = factory.createTransitRoute(Id.create("route", TransitRoute.class),
+                RouteUtils.createLinkNetworkRouteImpl(ab.getId(), bc.getId()), stops, "rail");
+        Departure departure = factory.createDeparture(Id.create("departure", Departure.class), 3600);
+        departure.setVehicleId(Id.createVehicleId("train"));
+        route.addDeparture(departure);
+        TransitLine line = factory.createTransitLine(Id.create("line", TransitLine.class));
+        line.addRoute(route);
+        scenario.getTransitSchedule().addTransitLine(line);
+
+        VehicleType type = VehicleUtils.createVehicleType(Id.create("type", VehicleType.class));
+        type.getCapacity().setSeats(200);
+        type.getCapacity().setStandingRoom(100);
+        type.setLength(150);
+        scenario.getTransitVehicles().addVehicleType(type);
+        scenario.getTransitVehicles().addVehicle(VehicleUtils.createVehicle(Id.createVehicleId("train"), type));
+
+        snapshotFile = directory.resolve("run.scenario_snapshot.bin");
+        inputFiles = List.of(Files.writeString(directory.resolve("run.output_transitSchedule.xml.gz"), "schedule"),
+                Files.writeString(directory.resolve("run.output_transitVehicles.xml.gz"), "vehicles"));
+    }
+
+    @Test
+    void snapshotShouldRestoreScenario() {
+        ScenarioSnapshot.write(snapshotFile, inputFiles, CRS, null, scenario);
+        Scenario restored = createScenario();
+        assertTrue(ScenarioSnapshot.read(snapshotFile, inputFiles, CRS, null, restored));
+
+        assertEquals(3, restored.getNetwork().getNodes().size());
+        Link link = restored.getNetwork().getLinks().get(Id.createLinkId("b_c"));
+        assertEquals(1000, link.getLength());
+        assertEquals(2, link.getNumberOfLanes());
+        assertEquals(Id.createNodeId("b"), link.getFromNode().getId());
+
+        TransitStopFacility first = restored.getTransitSchedule().getFacilities()
+                .get(Id.create("first", TransitStopFacility.class));
+        assertEquals("First", first.getName());
+        assertEquals(Id.createLinkId("a_b"), first.getLinkId());
+        TransitRoute route = restored.getTransitSchedule().getTransitLines().get(Id.create("line", TransitLine.class))
+                .getRoutes().get(Id.create("route", TransitRoute.class));
+        assertEquals("rail", route.getTransportMode());
+        assertEquals(2, route.getStops().size());
+        assertEquals(120, route.getStops().get(1).getArrivalOffset().seconds());
+        assertEquals(first, route.getStops().get(0).getStopFacility());
+        Departure departure = route.getDepartures().get(Id.create("departure", Departure.class));
+        assertEquals(3600, departure.getDepartureTime());
+        assertEquals(Id.createVehicleId("train"), departure.getVehicleId());
+
+        Vehicle vehicle = restored.getTransitVehicles().getVehicles().get(Id.createVehicleId("train"));
+        assertEquals(200, (int) vehicle.getType().getCapacity().getSeats());
+        assertEquals(100, (int) vehicle.getType().getCapacity().getStandingRoom());
+        assertEquals(150, vehicle.getType().getLength());
+    }
+
+    @Test
+    void changedInputFileShouldInvalidateSnapshot() throws IOException {
+        ScenarioSnapshot.write(snapshotFile, inputFiles, CRS, null, scenario);
+        Files.writeString(inputFiles.get(0), "changed schedule");
+        assertFalse(ScenarioSnapshot.read(snapshotFile, inputFiles, CRS, null, createScenario()));
+    }
+
+    @Test
+    void changedNetworkCrsShouldInvalidateSnapshot() {
+        ScenarioSnapshot.write(snapshotFile, inputFiles, CRS, null, scenario);
+        assertFalse(ScenarioSnapshot.read(snapshotFile, inputFiles, null, null, createScenario()));
+    }
+
+    @Test
+    void changedSelectionShouldInvalidateSnapshot() {
+        ScenarioSnapshot.write(snapshotFile, inputFiles, CRS, null, scenario);
+        assertFalse(ScenarioSnapshot.read(snapshotFile, inputFiles, CRS, "NoFilterStrategy()", createScenario()));
+    }
+
+    @Test
+    void unwritableDirectoryShouldSkipSnapshot() {
+        Path missingDirectory = directory.resolve("missing").resolve("run.scenario_snapshot.bin");
+        ScenarioSnapshot.write(missingDirectory, inputFiles, CRS, null, scenario);
+        assertFalse(Files.exists(missingDirectory));
+    }
+
+    @Test
+    void truncatedSnapshotShouldBeIgnored() throws IOException {
+        ScenarioSnapshot.write(snapshotFile, inputFiles, CRS, null, scenario);
+        byte[] content = Files.readAllBytes(snapshotFile);
+        Files.write(snapshotFile, Arrays.copyOf(content, content.length - 16));
+
+        Scenario restored = createScenario();
+        assertFalse(ScenarioSnapshot.read(snapshotFile, inputFiles, CRS, null, restored));
+        assertFalse(Files.exists(snapshotFile));
+        assertTrue(restored.getNetwork().getNodes().isEmpty());
+        assertTrue(restored.getTransitSchedule().getTransitLines().isEmpty());
+        assertTrue(restored.getTransitVehicles().getVehicleTypes().isEmpty());
+    }
+
+    @Test
+    void routeWithoutNetworkRouteShouldBeRestored() {
+        TransitSchedule schedule = scenario.getTransitSchedule();
+        TransitStopFacility first = schedule.getFacilities().get(Id.create("first", TransitStopFacility.class));
+        TransitRoute route = schedule.getFactory().createTransitRoute(Id.create("unrouted", TransitRoute.class), null,
+                List.of(schedule.getFactory().createTransitRouteStop(first, 0, 0)), "rail");
+        schedule.getTransitLines().get(Id.create("line", TransitLine.class)).addRoute(route);
+
+        ScenarioSnapshot.write(snapshotFile, inputFiles, CRS, null, scenario);
+        Scenario restored = createScenario();
+        assertTrue(ScenarioSnapshot.read(snapshotFile, inputFiles, CRS, null, restored));
+        assertNull(restored.getTransitSchedule().getTransitLines().get(Id.create("line", TransitLine.class))
+                .getRoutes().get(Id.create("unrouted", TransitRoute.class)).getRoute());
+    }
+}
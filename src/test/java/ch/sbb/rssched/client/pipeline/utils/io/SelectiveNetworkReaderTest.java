@@ -0,0 +1,77 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SelectiveNetworkReaderTest {
+
+    private static final String NETWORK = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <network>
+              <attributes>
+                <attribute name="coordinateReferenceSystem" class="java.lang.String">EPSG:2056</attribute>
+              </attributes>
+              <nodes>
+                <node id="a" x="0.0" y="0.0"/>
+                <node id="b" x="1000.0" y="0.0">
+                  <attributes><attribute name="type" class="java.lang.String">station</attribute></attributes>
+                </node>
+                <node id="c" x="2000.0" y="0.0"/>
+                <node id="d" x="3000.0" y="0.0"/>
+              </nodes>
+              <links capperiod="01:00:00" effectivecellsize="7.5" effectivelanewidth="3.75">
+                <link id="a_b" from="a" to="b" length="1000.0" freespeed="40.0" capacity="1000.0" permlanes="1.0" oneway="1" modes="rail"/>
+                <link id="b_c" from="b" to="c" length="1000.0" freespeed="40.0" capacity="1000.0" permlanes="2.0" oneway="1" modes="rail,car">
+                  <attributes><attribute name="type" class="java.lang.String">track</attribute></attributes>
+                </link>
+                <link id="c_d" from="c" to="d" length="1000.0" freespeed="40.0" capacity="1000.0" permlanes="1.0" oneway="1" modes="rail"/>
+              </links>
+            </network>
+            """;
+
+    private static InputStream stream() {
+        return new ByteArrayInputStream(NETWORK.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readerShouldOnlyBuildLinksOfInterest() {
+        Network network = NetworkUtils.createNetwork();
+        var reader = new SelectiveNetworkReader(Set.of(Id.createLinkId("a_b"), Id.createLinkId("b_c")), "EPSG:2056",
+                network);
+        reader.read(stream());
+
+        assertEquals(Set.of(Id.createNodeId("a"), Id.createNodeId("b"), Id.createNodeId("c")),
+                network.getNodes().keySet());
+        assertEquals(Set.of(Id.createLinkId("a_b"), Id.createLinkId("b_c")), network.getLinks().keySet());
+        Link link = network.getLinks().get(Id.createLinkId("b_c"));
+        assertEquals(Id.createNodeId("b"), link.getFromNode().getId());
+        assertEquals(2, link.getNumberOfLanes());
+        assertEquals(Set.of("rail", "car"), link.getAllowedModes());
+        assertTrue(link.getAttributes().getAsMap().isEmpty());
+        assertEquals(3600, network.getCapacityPeriod());
+        assertEquals("EPSG:2056", ProjectionUtils.getCRS(network));
+    }
+
+    @Test
+    void missingNodeShouldNameLink() {
+        String network = NETWORK.replace("<node id=\"d\" x=\"3000.0\" y=\"0.0\"/>", "");
+        var reader = new SelectiveNetworkReader(Set.of(Id.createLinkId("c_d")), null, NetworkUtils.createNetwork());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> reader.read(new ByteArrayInputStream(network.getBytes(StandardCharsets.UTF_8))));
+        assertTrue(exception.getMessage().contains("c_d"));
+    }
+}
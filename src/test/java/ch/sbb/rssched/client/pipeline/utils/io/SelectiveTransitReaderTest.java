@@ -0,0 +1,176 @@
+package ch.sbb.rssched.client.pipeline.utils.io;
+
+import ch.sbb.rssched.client.config.selection.NoFilterStrategy;
+import ch.sbb.rssched.client.config.selection.VehicleTypeFilterStrategy;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.VehicleType;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SelectiveTransitReaderTest {
+
+    private static final String VEHICLES = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <vehicleDefinitions xmlns="http://www.matsim.org/files/dtd">
+              <vehicleType id="train">
+                <attributes><attribute name="operator" class="java.lang.String">SBB</attribute></attributes>
+                <description>Intercity</description>
+                <capacity seats="400" standingRoomInPersons="200"/>
+                <length meter="200.0"/>
+                <width meter="3.0"/>
+                <networkMode networkMode="rail"/>
+              </vehicleType>
+              <vehicleType id="bus">
+                <capacity seats="40" standingRoomInPersons="30"/>
+                <length meter="12.0"/>
+              </vehicleType>
+              <vehicle id="train_1" type="train"/>
+              <vehicle id="bus_1" type="bus"/>
+            </vehicleDefinitions>
+            """;
+
+    private static final String SCHEDULE = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <transitSchedule>
+              <attributes>
+                <attribute name="coordinateReferenceSystem" class="java.lang.String">EPSG:2056</attribute>
+              </attributes>
+              <transitStops>
+                <stopFacility id="a" x="0.0" y="0.0" linkRefId="l_a" name="A" isBlocking="false">
+                  <attributes><attribute name="code" class="java.lang.String">A1</attribute></attributes>
+                </stopFacility>
+                <stopFacility id="b" x="1000.0" y="0.0" linkRefId="l_b" name="B" isBlocking="false"/>
+                <stopFacility id="c" x="0.0" y="1000.0" linkRefId="l_c" name="C" isBlocking="false"/>
+              </transitStops>
+              <transitLine id="rail_line" name="IC">
+                <attributes><attribute name="operator" class="java.lang.String">SBB</attribute></attributes>
+                <transitRoute id="rail_route">
+                  <description>A to B</description>
+                  <transportMode>rail</transportMode>
+                  <routeProfile>
+                    <stop refId="a" departureOffset="00:00:00" awaitDeparture="true"/>
+                    <stop refId="b" arrivalOffset="00:10:00" awaitDeparture="false"/>
+                  </routeProfile>
+                  <route>
+                    <link refId="l_a"/>
+                    <link refId="l_ab"/>
+                    <link refId="l_b"/>
+                  </route>
+                  <departures>
+                    <departure id="d1" departureTime="08:00:00" vehicleRefId="train_1"/>
+                  </departures>
+                </transitRoute>
+              </transitLine>
+              <transitLine id="bus_line">
+                <transitRoute id="bus_route">
+                  <transportMode>bus</transportMode>
+                  <routeProfile>
+                    <stop refId="a" departureOffset="00:00:00" awaitDeparture="true"/>
+                    <stop refId="c" arrivalOffset="00:05:00" awaitDeparture="false"/>
+                  </routeProfile>
+                  <route>
+                    <link refId="l_a"/>
+                    <link refId="l_c"/>
+                  </route>
+                  <departures>
+                    <departure id="d1" departureTime="09:00:00" vehicleRefId="bus_1"/>
+                  </departures>
+                </transitRoute>
+              </transitLine>
+            </transitSchedule>
+            """;
+
+    private static Scenario read(SelectiveTransitReader reader, Scenario scenario) {
+        reader.readVehicles(new ByteArrayInputStream(VEHICLES.getBytes(StandardCharsets.UTF_8)));
+        reader.readTransitSchedule(new ByteArrayInputStream(SCHEDULE.getBytes(StandardCharsets.UTF_8)));
+        return scenario;
+    }
+
+    private static Scenario createScenario() {
+        Config config = ConfigUtils.createConfig();
+        config.transit().setUseTransit(true);
+        return ScenarioUtils.createScenario(config);
+    }
+
+    @Test
+    void readerShouldOnlyKeepSelectedRoutes() {
+        Scenario scenario = createScenario();
+        var strategy = new VehicleTypeFilterStrategy(
+                Set.of(new VehicleTypeFilterStrategy.VehicleCategory("IC", Set.of("train"))));
+        read(new SelectiveTransitReader(strategy, "EPSG:2056", scenario), scenario);
+
+        assertEquals(1, scenario.getTransitSchedule().getTransitLines().size());
+        TransitLine line = scenario.getTransitSchedule().getTransitLines().get(Id.create("rail_line", TransitLine.class));
+        assertEquals("IC", line.getName());
+        TransitRoute route = line.getRoutes().get(Id.create("rail_route", TransitRoute.class));
+        assertEquals("rail", route.getTransportMode());
+        assertEquals("A to B", route.getDescription());
+        assertEquals(600, route.getStops().get(1).getArrivalOffset().seconds());
+        assertEquals(Id.createLinkId("l_a"), route.getRoute().getStartLinkId());
+        assertEquals(Id.createLinkId("l_b"), route.getRoute().getEndLinkId());
+        assertEquals(1, route.getRoute().getLinkIds().size());
+        assertEquals(8 * 3600, route.getDepartures().values().iterator().next().getDepartureTime());
+        assertTrue(line.getAttributes().getAsMap().isEmpty());
+
+        assertEquals(Set.of(Id.create("a", TransitStopFacility.class), Id.create("b", TransitStopFacility.class)),
+                scenario.getTransitSchedule().getFacilities().keySet());
+        assertTrue(scenario.getTransitSchedule().getFacilities().get(Id.create("a", TransitStopFacility.class))
+                .getAttributes().getAsMap().isEmpty());
+
+        assertEquals(Set.of(Id.createVehicleId("train_1")), scenario.getTransitVehicles().getVehicles().keySet());
+        VehicleType type = scenario.getTransitVehicles().getVehicleTypes().get(Id.create("train", VehicleType.class));
+        assertEquals(400, (int) type.getCapacity().getSeats());
+        assertEquals(200, (int) type.getCapacity().getStandingRoom());
+        assertEquals(200, type.getLength());
+        assertEquals("rail", type.getNetworkMode());
+        assertNull(type.getAttributes().getAttribute("operator"));
+        assertFalse(scenario.getTransitVehicles().getVehicleTypes().containsKey(Id.create("bus", VehicleType.class)));
+    }
+
+    @Test
+    void readerShouldKeepAllRoutesWithoutFilter() {
+        Scenario scenario = createScenario();
+        read(new SelectiveTransitReader(new NoFilterStrategy(), null, scenario), scenario);
+
+        assertEquals(2, scenario.getTransitSchedule().getTransitLines().size());
+        assertEquals(3, scenario.getTransitSchedule().getFacilities().size());
+        assertEquals(2, scenario.getTransitVehicles().getVehicles().size());
+        assertEquals(2, scenario.getTransitVehicles().getVehicleTypes().size());
+    }
+
+    @Test
+    void readerShouldKeepRoutesWithAnySelectedDeparture() {
+        Scenario scenario = createScenario();
+        var strategy = new VehicleTypeFilterStrategy(
+                Set.of(new VehicleTypeFilterStrategy.VehicleCategory("Bus", Set.of("bus"))));
+        String departure = "<departure id=\"d1\" departureTime=\"08:00:00\" vehicleRefId=\"train_1\"/>";
+        String schedule = SCHEDULE.replace(departure,
+                departure + "<departure id=\"d2\" departureTime=\"10:00:00\" vehicleRefId=\"bus_1\"/>");
+        var reader = new SelectiveTransitReader(strategy, null, scenario);
+        reader.readVehicles(new ByteArrayInputStream(VEHICLES.getBytes(StandardCharsets.UTF_8)));
+        reader.readTransitSchedule(new ByteArrayInputStream(schedule.getBytes(StandardCharsets.UTF_8)));
+
+        // the rail route is kept, so the filter strategy rejects its inconsistent vehicle types as on a full schedule
+        TransitRoute route = scenario.getTransitSchedule().getTransitLines()
+                .get(Id.create("rail_line", TransitLine.class)).getRoutes()
+                .get(Id.create("rail_route", TransitRoute.class));
+        assertEquals(2, route.getDepartures().size());
+        assertThrows(RuntimeException.class, () -> strategy.filter(scenario));
+    }
+}